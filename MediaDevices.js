@@ -24,6 +24,19 @@ class MediaDevices extends EventTarget(MEDIA_DEVICES_EVENTS) {
         return new Promise(resolve => WebRTCModule.enumerateDevices(resolve));
     }
 
+    /**
+     * Gets how often the formats of the cameras were loaded from the native
+     * persistent cache (rather than enumerated by opening the cameras) and
+     * how long it took: {@code loads}, {@code hits}, {@code totalLoadTimeMs},
+     * {@code lastLoadTimeMs}, {@code enumerations} and
+     * {@code totalEnumerationTimeMs}.
+     *
+     * @returns {Promise}
+     */
+    getCameraFormatCacheStats() {
+        return WebRTCModule.cameraFormatCacheGetStats();
+    }
+
     /**
      * W3C "Screen Capture" compatible {@code getDisplayMedia} implementation.
      * See: https://w3c.github.io/mediacapture-screen-share/
@@ -10,7 +10,9 @@ const {WebRTCModule} = NativeModules;
 
 const MEDIA_STREAM_TRACK_EVENTS = [
   'ended',
+  'freeze',
   'mute',
+  'resize',
   'unmute',
   // see: https://www.w3.org/TR/mediacapture-streams/#constrainable-interface
   'overconstrained',
@@ -54,7 +56,9 @@ class MediaStreamTrack extends EventTarget(MEDIA_STREAM_TRACK_EVENTS) {
   remote: boolean;
 
   onended: ?Function;
+  onfreeze: ?Function;
   onmute: ?Function;
+  onresize: ?Function;
   onunmute: ?Function;
   overconstrained: ?Function;
 
@@ -126,6 +130,40 @@ class MediaStreamTrack extends EventTarget(MEDIA_STREAM_TRACK_EVENTS) {
     WebRTCModule.mediaStreamTrackSwitchCamera(this.id);
   }
 
+  /**
+   * Keeps the camera which {@code _switchCamera} would switch to open, without
+   * streaming, so that switching to it skips opening it (Android, Camera2
+   * cameras which the device can stream concurrently only).
+   *
+   * @param {boolean} enabled
+   */
+  _setCameraStandby(enabled) {
+    if (this.remote) {
+      throw new Error('Not implemented for remote tracks');
+    }
+    if (this.kind !== 'video') {
+      throw new Error('Only implemented for video tracks');
+    }
+    WebRTCModule.mediaStreamTrackSetCameraStandby(this.id, Boolean(enabled));
+  }
+
+  /**
+   * Gets the latencies of the camera switches of a local video track, from
+   * the request to the first frame of the other camera: warmSwitches and
+   * coldSwitches (with and without a standby camera), their
+   * averageWarmSwitchLatencyMs and averageColdSwitchLatencyMs,
+   * lastSwitchLatencyMs, lastSwitchWarm, standbyEnabled, standbyReady,
+   * standbyCameraName and standbyFailures.
+   *
+   * @returns {Promise}
+   */
+  getCameraSwitchStats() {
+    if (this.remote || this.kind !== 'video') {
+      return Promise.reject(new Error('Only implemented for local video tracks'));
+    }
+    return WebRTCModule.mediaStreamTrackGetCameraSwitchStats(this.id);
+  }
+
   applyConstraints() {
     throw new Error('Not implemented.');
   }
@@ -142,6 +180,54 @@ class MediaStreamTrack extends EventTarget(MEDIA_STREAM_TRACK_EVENTS) {
     return deepClone(this._constraints);
   }
 
+  /**
+   * Gets a snapshot of the statistics which are collected natively from the
+   * frames of a remote video track: framesReceived, framesPerSecond,
+   * averageFrameIntervalMs, freezeCount, totalFreezesDurationMs, frameWidth,
+   * frameHeight, resolutionChanges and an inter-frame gapHistogram. Cheaper
+   * than the stats of the RTCPeerConnection.
+   *
+   * @returns {Promise}
+   */
+  getFrameStats() {
+    if (!this.remote || this.kind !== 'video') {
+      return Promise.reject(new Error('Only implemented for remote video tracks'));
+    }
+    return WebRTCModule.mediaStreamTrackGetFrameStats(this.id);
+  }
+
+  /**
+   * Gets the stats of the buffers into which the camera of a local video
+   * track captures (Android, Camera1 without texture capture only): buffers,
+   * buffersInFlight, peakBuffersInFlight, framesCaptured, starvations,
+   * framesDroppedEstimate, grows and shrinks.
+   *
+   * @returns {Promise}
+   */
+  getCaptureStats() {
+    if (this.remote || this.kind !== 'video') {
+      return Promise.reject(new Error('Only implemented for local video tracks'));
+    }
+    return WebRTCModule.mediaStreamTrackGetCaptureStats(this.id);
+  }
+
+  /**
+   * Overrides the delays without frames after which a remote video track is
+   * reported as muted. By default the delay adapts to the measured framerate
+   * of the track.
+   *
+   * @param {Object} options - {@code initialMuteDelayMs} (before the first
+   * frame) and {@code muteDelayMs} (after it) in milliseconds; a missing or
+   * {@code null} value restores the default.
+   * @returns {Promise}
+   */
+  setMuteDelays(options = {}) {
+    if (!this.remote || this.kind !== 'video') {
+      return Promise.reject(new Error('Only implemented for remote video tracks'));
+    }
+    return WebRTCModule.mediaStreamTrackSetMuteDelays(this.id, options);
+  }
+
   getSettings() {
     throw new Error('Not implemented.');
   }
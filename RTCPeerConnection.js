@@ -9,6 +9,9 @@ import MediaStreamTrack from './MediaStreamTrack';
 import MediaStreamTrackEvent from './MediaStreamTrackEvent';
 import RTCDataChannel from './RTCDataChannel';
 import RTCDataChannelEvent from './RTCDataChannelEvent';
+import RTCRtpReceiver from './RTCRtpReceiver';
+import RTCRtpSender from './RTCRtpSender';
+import RTCRtpTransceiver from './RTCRtpTransceiver';
 import RTCSessionDescription from './RTCSessionDescription';
 import RTCIceCandidate from './RTCIceCandidate';
 import RTCIceCandidateEvent from './RTCIceCandidateEvent';
@@ -49,13 +52,17 @@ type RTCIceConnectionState =
   'closed';
 
 const PEER_CONNECTION_EVENTS = [
+  'bandwidthdecision',
   'connectionstatechange',
   'icecandidate',
   'icecandidateerror',
   'iceconnectionstatechange',
   'icegatheringstatechange',
   'negotiationneeded',
+  'qualityalarm',
+  'qualitychange',
   'signalingstatechange',
+  'track',
   // Peer-to-peer Data API:
   'datachannel',
   // old:
@@ -65,6 +72,26 @@ const PEER_CONNECTION_EVENTS = [
 
 let nextPeerConnectionId = 0;
 
+/**
+ * The names of the configuration profiles registered with
+ * {@link RTCPeerConnection.registerConfiguration}.
+ */
+const configurationProfiles: Set<string> = new Set();
+
+/**
+ * Gets the name of the configuration profile referenced by a specific
+ * configuration, i.e. {@code { profile: 'name' }}, if any.
+ */
+function getConfigurationProfile(configuration): ?string {
+  if (configuration && typeof configuration.profile === 'string') {
+    if (!configurationProfiles.has(configuration.profile)) {
+      throw new Error(`Unknown configuration profile: ${configuration.profile}`);
+    }
+    return configuration.profile;
+  }
+  return undefined;
+}
+
 export default class RTCPeerConnection extends EventTarget(PEER_CONNECTION_EVENTS) {
   localDescription: RTCSessionDescription;
   remoteDescription: RTCSessionDescription;
@@ -74,13 +101,17 @@ export default class RTCPeerConnection extends EventTarget(PEER_CONNECTION_EVENT
   connectionState: RTCPeerConnectionState = 'new';
   iceConnectionState: RTCIceConnectionState = 'new';
 
+  onbandwidthdecision: ?Function;
   onconnectionstatechange: ?Function;
   onicecandidate: ?Function;
   onicecandidateerror: ?Function;
   oniceconnectionstatechange: ?Function;
   onicegatheringstatechange: ?Function;
   onnegotiationneeded: ?Function;
+  onqualityalarm: ?Function;
+  onqualitychange: ?Function;
   onsignalingstatechange: ?Function;
+  ontrack: ?Function;
 
   onaddstream: ?Function;
   onremovestream: ?Function;
@@ -88,6 +119,15 @@ export default class RTCPeerConnection extends EventTarget(PEER_CONNECTION_EVENT
   _peerConnectionId: number;
   _localStreams: Array<MediaStream> = [];
   _remoteStreams: Array<MediaStream> = [];
+
+  /**
+   * The remote tracks by id, including those which are not part of any
+   * stream (common with Unified Plan and SFUs), so that their native events
+   * reach them.
+   */
+  _remoteTracks: Map<string, MediaStreamTrack> = new Map();
+
+  _senders: Array<RTCRtpSender> = [];
   _subscriptions: Array<any>;
 
   /**
@@ -97,8 +137,13 @@ export default class RTCPeerConnection extends EventTarget(PEER_CONNECTION_EVENT
 
   constructor(configuration) {
     super();
+    const profile = getConfigurationProfile(configuration);
     this._peerConnectionId = nextPeerConnectionId++;
-    WebRTCModule.peerConnectionInit(configuration, this._peerConnectionId);
+    if (profile) {
+      WebRTCModule.peerConnectionInitWithProfile(profile, this._peerConnectionId);
+    } else {
+      WebRTCModule.peerConnectionInit(configuration, this._peerConnectionId);
+    }
     this._registerEvents();
   }
 
@@ -120,6 +165,77 @@ export default class RTCPeerConnection extends EventTarget(PEER_CONNECTION_EVENT
       WebRTCModule.peerConnectionRemoveStream(stream._reactTag, this._peerConnectionId);
   }
 
+  /**
+   * Adds a track to be sent to the remote peer. Unlike in browsers, the
+   * RTCRtpSender is created asynchronously.
+   *
+   * @param {MediaStreamTrack} track - The local track to send.
+   * @param {...MediaStream} streams - The streams the remote peer is to
+   * associate the track with.
+   * @returns {Promise<RTCRtpSender>}
+   */
+  addTrack(track: MediaStreamTrack, ...streams: Array<MediaStream>) {
+    return WebRTCModule.peerConnectionAddTrack(
+        this._peerConnectionId,
+        track.id,
+        streams.map(stream => stream.id))
+      .then(info => {
+        const sender = new RTCRtpSender(this._peerConnectionId, info.id, track);
+        this._senders.push(sender);
+        return sender;
+      });
+  }
+
+  /**
+   * Adds a transceiver. Requires {@code sdpSemantics: 'unified-plan'}.
+   *
+   * @param {MediaStreamTrack|string} trackOrKind - The local track to send or
+   * the kind ({@code 'audio'} or {@code 'video'}) of a transceiver without
+   * a track.
+   * @param {?Object} init - The {@code direction}, {@code streams} and
+   * {@code sendEncodings}. For simulcast, {@code sendEncodings} lists the
+   * layers, each with its {@code rid} and e.g. {@code scaleResolutionDownBy}
+   * and {@code maxBitrate}.
+   * @returns {Promise<RTCRtpTransceiver>}
+   */
+  addTransceiver(trackOrKind: MediaStreamTrack | string, init = {}) {
+    const track = typeof trackOrKind === 'string' ? null : trackOrKind;
+    const options = {
+      direction: init.direction,
+      streamIds: (init.streams || []).map(stream => stream.id),
+      sendEncodings: init.sendEncodings,
+    };
+    if (track) {
+      options.trackId = track.id;
+    } else {
+      options.kind = trackOrKind;
+    }
+    return WebRTCModule.peerConnectionAddTransceiver(this._peerConnectionId, options)
+      .then(info => {
+        const sender = new RTCRtpSender(this._peerConnectionId, info.sender.id, track);
+        const receiver = new RTCRtpReceiver(info.receiver.id, null);
+        this._senders.push(sender);
+        return new RTCRtpTransceiver(info, sender, receiver);
+      });
+  }
+
+  /**
+   * Stops sending the track of a specific RTCRtpSender created by
+   * {@link #addTrack} or {@link #addTransceiver}.
+   *
+   * @returns {Promise}
+   */
+  removeTrack(sender: RTCRtpSender) {
+    return WebRTCModule.peerConnectionRemoveTrack(this._peerConnectionId, sender.id)
+      .then(() => {
+        sender.track = null;
+      });
+  }
+
+  getSenders(): Array<RTCRtpSender> {
+    return this._senders.slice();
+  }
+
   createOffer(options) {
     return new Promise((resolve, reject) => {
       WebRTCModule.peerConnectionCreateOffer(
@@ -150,8 +266,53 @@ export default class RTCPeerConnection extends EventTarget(PEER_CONNECTION_EVENT
     });
   }
 
+  /**
+   * Configures the transformation applied natively to the SDPs created by
+   * {@link #createOffer} and {@link #createAnswer} so that they need not be
+   * munged in JS.
+   *
+   * @param {?Object} options - The transformation or {@code null} to leave
+   * the SDPs as they are created: {@code codecOrder} and
+   * {@code removeCodecs} (codec names by media type, e.g.
+   * {@code { video: ['H264'] }}), {@code bandwidth} (kbps by media type) and
+   * {@code opus} (fmtp parameters such as {@code useinbandfec},
+   * {@code usedtx} and {@code maxaveragebitrate}).
+   * @returns {Promise}
+   */
+  setSdpTransform(options) {
+    return WebRTCModule.peerConnectionSetSdpTransform(this._peerConnectionId, options || null);
+  }
+
+  /**
+   * Starts (or restarts with new options) the native adaptation of the video
+   * sent by this RTCPeerConnection to its link. From its stats the
+   * bitrate, the framerate and the resolution of the video senders are
+   * stepped down a ladder of levels when the link degrades and back up, more
+   * slowly, when it recovers. Each step is dispatched as a
+   * {@code bandwidthdecision} event (with {@code level},
+   * {@code previousLevel}, {@code reason}, {@code parameters} and
+   * {@code metrics}).
+   *
+   * @param {?Object} options - {@code null} to stop the adaptation or the
+   * optional {@code intervalMs}, {@code levels} (best first, each with
+   * {@code maxBitrate}, {@code maxFramerate} and
+   * {@code scaleResolutionDownBy}), {@code maxPacketLoss} and
+   * {@code minPacketLoss} (percent), {@code maxRoundTripTime} (ms),
+   * {@code stepDownSamples}, {@code stepUpSamples} and {@code adaptCapture}
+   * (to scale the capture format of local tracks instead of the encodings).
+   * @returns {Promise}
+   */
+  setBandwidthController(options) {
+    return WebRTCModule.peerConnectionSetBandwidthController(this._peerConnectionId, options || null);
+  }
+
   setConfiguration(configuration) {
-    WebRTCModule.peerConnectionSetConfiguration(configuration, this._peerConnectionId);
+    const profile = getConfigurationProfile(configuration);
+    if (profile) {
+      WebRTCModule.peerConnectionSetConfigurationWithProfile(profile, this._peerConnectionId);
+    } else {
+      WebRTCModule.peerConnectionSetConfiguration(configuration, this._peerConnectionId);
+    }
   }
 
   setLocalDescription(sessionDescription: RTCSessionDescription) {
@@ -232,6 +393,221 @@ export default class RTCPeerConnection extends EventTarget(PEER_CONNECTION_EVENT
     });
   }
 
+  /**
+   * Collects the stats of all RTCPeerConnections in a single native call.
+   * Resolves with an object carrying the stats (in the same format as
+   * {@link #getStats}) keyed by RTCPeerConnection id in {@code stats} and the
+   * duration of the whole collection in {@code durationMs}.
+   *
+   * @param {MediaStreamTrack} [track] - If specified, limits the stats to the
+   * track and skips the RTCPeerConnections which do not know it.
+   * @returns {Promise}
+   */
+  static getAllStats(track) {
+    return new Promise((resolve, reject) => {
+      WebRTCModule.peerConnectionGetAllStats(
+        (track && track.id) || '',
+        (success, data) => {
+          if (success) {
+            try {
+              resolve(JSON.parse(data));
+            } catch (e) {
+              reject(e);
+            }
+          } else {
+            reject(new Error(data));
+          }
+        });
+    });
+  }
+
+  /**
+   * Registers (or replaces) a named configuration profile which is parsed
+   * natively once. An RTCPeerConnection constructed (or reconfigured) with
+   * {@code { profile: name }} uses it without sending or parsing the
+   * configuration again. Equal configurations are cached natively anyway;
+   * profiles additionally skip their transfer over the bridge.
+   *
+   * @param {string} name - The name of the profile.
+   * @param {Object} configuration - The RTCConfiguration.
+   */
+  static registerConfiguration(name: string, configuration) {
+    WebRTCModule.peerConnectionRegisterConfiguration(name, configuration);
+    configurationProfiles.add(name);
+  }
+
+  static unregisterConfiguration(name: string) {
+    WebRTCModule.peerConnectionUnregisterConfiguration(name);
+    configurationProfiles.delete(name);
+  }
+
+  /**
+   * @returns {Promise} Resolved with the number of cached configurations
+   * ({@code size}) and {@code profiles} and how many configurations were
+   * found in the cache ({@code hits}) or parsed ({@code misses}).
+   */
+  static getConfigurationCacheStats() {
+    return WebRTCModule.peerConnectionGetConfigurationCacheStats();
+  }
+
+  /**
+   * Creates idle native peer connections ahead of time. A later
+   * RTCPeerConnection constructed with an equal configuration adopts one of
+   * them, which has its DTLS certificate and (with a non-zero
+   * {@code iceCandidatePoolSize}) its ICE candidates ready.
+   *
+   * @param {Object} configuration - The RTCConfiguration the RTCPeerConnection
+   * will be constructed with.
+   * @param {number} count - The number of idle peer connections to keep for
+   * the configuration.
+   * @returns {Promise} Resolved with the number of idle peer connections for
+   * the configuration.
+   */
+  static prewarm(configuration, count = 1) {
+    return WebRTCModule.peerConnectionPoolPrewarm(configuration, count);
+  }
+
+  /**
+   * Disposes of all idle peer connections created by {@link #prewarm}.
+   *
+   * @returns {Promise}
+   */
+  static clearPrewarmed() {
+    return WebRTCModule.peerConnectionPoolClear();
+  }
+
+  /**
+   * @returns {Promise} Resolved with the number of {@code idle} peer
+   * connections and how many RTCPeerConnections adopted one ({@code hits})
+   * or had to create a new one while the pool was in use ({@code misses}).
+   */
+  static getPrewarmStats() {
+    return WebRTCModule.peerConnectionPoolGetStats();
+  }
+
+  /**
+   * Persists the options of the native video encoder factory. The factory is
+   * created when the native module is initialized so they take effect the
+   * next time the application starts.
+   *
+   * @param {Object} options - {@code enableH264HighProfile},
+   * {@code enableHardwareVideoEncoder} and {@code enableIntelVp8Encoder}
+   * (booleans, {@code null} restores the default).
+   * @returns {Promise}
+   */
+  static setVideoEncoderOptions(options) {
+    return WebRTCModule.videoEncoderSetOptions(options);
+  }
+
+  /**
+   * @returns {Promise} Resolved with the video encoders created so far
+   * ({@code encoders}, each with its {@code codec}, {@code implementation},
+   * {@code initTimeMs} and {@code fallbackReason}) and the number of
+   * fallbacks from hardware to software, or with {@code null} if the
+   * application provided its own encoder factory.
+   */
+  static getVideoEncoderStats() {
+    return WebRTCModule.videoEncoderGetStats();
+  }
+
+  /**
+   * Gets the video codecs (and their profiles) this device can encode and
+   * decode, e.g. to build offers with the best codecs first. Collected
+   * natively on the first call and cached.
+   *
+   * @returns {Promise} Resolved with {@code encoders} and {@code decoders},
+   * each an array of codecs with {@code mimeType}, {@code clockRate},
+   * {@code sdpFmtpLine} and, if known, whether it is {@code hardware}
+   * accelerated.
+   */
+  static getCodecCapabilities() {
+    return WebRTCModule.getCodecCapabilities();
+  }
+
+  /**
+   * Calibrates the hardware video encoders of the device by encoding a short
+   * synthetic sequence with each of them (a few seconds per codec). The
+   * results are persisted for the current build of the device and, from the
+   * next start of the application, the hardware encoders found too slow or
+   * broken are skipped in favor of software ones and the codecs with the
+   * fastest encoders are preferred.
+   *
+   * @returns {Promise} Resolved with the results: per codec, the
+   * {@code averageEncodeMs}, {@code maxEncodeMs}, {@code bitrateBps} and
+   * whether it is {@code usable}.
+   */
+  static runVideoEncoderBenchmark() {
+    return WebRTCModule.videoEncoderRunBenchmark();
+  }
+
+  /**
+   * @returns {Promise} Resolved with the persisted results of
+   * {@link #runVideoEncoderBenchmark} or {@code null} if it has not been run
+   * on the current build of the device.
+   */
+  static getVideoEncoderBenchmark() {
+    return WebRTCModule.videoEncoderGetBenchmark();
+  }
+
+  /**
+   * Replaces the quality alarm rules which are evaluated natively against the
+   * stats of all RTCPeerConnections. An RTCPeerConnection dispatches a
+   * {@code qualityalarm} event (with {@code ruleId}, {@code metric},
+   * {@code active}, {@code value} and {@code threshold}) only when a rule is
+   * raised or cleared for it.
+   *
+   * @param {Array} rules - Objects with {@code id}, {@code metric} (one of
+   * packetLoss, audioPacketLoss, videoPacketLoss, roundTripTime, jitter,
+   * framesPerSecond, concealment and freezeDuration), {@code operator}
+   * ({@code 'above'} or {@code 'below'}), {@code threshold} and optionally
+   * {@code clearThreshold} (for hysteresis), {@code durationMs} and
+   * {@code peerConnectionId}. An empty array stops the evaluation.
+   * @param {number} [intervalMs] - The interval at which the rules are
+   * evaluated.
+   * @returns {Promise}
+   */
+  static setQualityAlarms(rules, intervalMs = 1000) {
+    return WebRTCModule.qualityAlarmsSetRules(rules || [], intervalMs);
+  }
+
+  /**
+   * Starts (or stops) the native estimation of the call quality of all
+   * RTCPeerConnections. While it runs, an RTCPeerConnection dispatches a
+   * {@code qualitychange} event (with {@code score}, {@code audioScore} and
+   * {@code videoScore}) whenever its score changes and {@link #getQuality}
+   * returns its latest estimate.
+   *
+   * @param {number} intervalMs - The interval at which the quality is
+   * estimated or 0 to stop the estimation.
+   * @returns {Promise}
+   */
+  static setQualityEstimation(intervalMs = 2000) {
+    return WebRTCModule.qualityEstimatorSetInterval(intervalMs);
+  }
+
+  /**
+   * Gets the latest MOS-like quality estimate of this RTCPeerConnection,
+   * between 1 (bad) and 4.5 (excellent), without waiting for new stats. The
+   * metrics the estimate was computed from are in {@code inputs}.
+   *
+   * @returns {?Object} The estimate or {@code null} if the estimation is not
+   * running or has not sampled this RTCPeerConnection yet.
+   */
+  getQuality() {
+    return WebRTCModule.peerConnectionGetQuality(this._peerConnectionId);
+  }
+
+  /**
+   * Diagnostics of the native index of the remote streams of this
+   * RTCPeerConnection: the number of remote streams and how many lookups
+   * (hits and misses) it served during stream additions and removals.
+   *
+   * @returns {Promise}
+   */
+  getStreamIndexStats() {
+    return WebRTCModule.peerConnectionGetStreamIndexStats(this._peerConnectionId);
+  }
+
   getLocalStreams() {
     return this._localStreams.slice();
   }
@@ -240,11 +616,39 @@ export default class RTCPeerConnection extends EventTarget(PEER_CONNECTION_EVENT
     return this._remoteStreams.slice();
   }
 
+  /**
+   * Closes this RTCPeerConnection. The native teardown happens in the
+   * background.
+   *
+   * @returns {Promise} Resolved when the native teardown has completed with
+   * its {@code durationMs} (from the request), {@code queuedMs} and
+   * {@code teardownMs}.
+   */
   close() {
-    WebRTCModule.peerConnectionClose(this._peerConnectionId);
+    const id = this._peerConnectionId;
+
+    return new Promise(resolve => {
+      const subscription = EventEmitter.addListener('peerConnectionClosed', ev => {
+        if (ev.id !== id) {
+          return;
+        }
+        subscription.remove();
+        resolve({
+          durationMs: ev.durationMs,
+          queuedMs: ev.queuedMs,
+          teardownMs: ev.teardownMs
+        });
+      });
+      WebRTCModule.peerConnectionClose(id);
+    });
   }
 
   _getTrack(streamReactTag, trackId): MediaStreamTrack {
+    const track = this._remoteTracks.get(trackId);
+    if (track) {
+      return track;
+    }
+
     const stream
       = this._remoteStreams.find(
           stream => stream._reactTag === streamReactTag);
@@ -252,6 +656,14 @@ export default class RTCPeerConnection extends EventTarget(PEER_CONNECTION_EVENT
     return stream && stream._tracks.find(track => track.id === trackId);
   }
 
+  _addRemoteTracks(stream: MediaStream): void {
+    for (const track of stream._tracks) {
+      if (!this._remoteTracks.has(track.id)) {
+        this._remoteTracks.set(track.id, track);
+      }
+    }
+  }
+
   _unregisterEvents(): void {
     this._subscriptions.forEach(e => e.remove());
     this._subscriptions = [];
@@ -265,6 +677,27 @@ export default class RTCPeerConnection extends EventTarget(PEER_CONNECTION_EVENT
         }
         this.dispatchEvent(new RTCEvent('negotiationneeded'));
       }),
+      EventEmitter.addListener('peerConnectionBandwidthDecision', ev => {
+        if (ev.id !== this._peerConnectionId) {
+          return;
+        }
+        const { id, ...decision } = ev;
+        this.dispatchEvent(new RTCEvent('bandwidthdecision', decision));
+      }),
+      EventEmitter.addListener('peerConnectionQualityAlarm', ev => {
+        if (ev.id !== this._peerConnectionId) {
+          return;
+        }
+        const { id, ...alarm } = ev;
+        this.dispatchEvent(new RTCEvent('qualityalarm', alarm));
+      }),
+      EventEmitter.addListener('peerConnectionQualityChanged', ev => {
+        if (ev.id !== this._peerConnectionId) {
+          return;
+        }
+        const { id, ...quality } = ev;
+        this.dispatchEvent(new RTCEvent('qualitychange', quality));
+      }),
       EventEmitter.addListener('peerConnectionIceConnectionChanged', ev => {
         if (ev.id !== this._peerConnectionId) {
           return;
@@ -298,10 +731,71 @@ export default class RTCPeerConnection extends EventTarget(PEER_CONNECTION_EVENT
         if (ev.id !== this._peerConnectionId) {
           return;
         }
-        const stream = new MediaStream(ev);
-        this._remoteStreams.push(stream);
+        // The stream may be known through a track event already.
+        let stream = this._remoteStreams.find(s => s._reactTag === ev.streamReactTag);
+        if (stream) {
+          for (const trackInfo of ev.tracks) {
+            if (!stream.getTrackById(trackInfo.id)) {
+              stream._tracks.push(
+                this._remoteTracks.get(trackInfo.id) || new MediaStreamTrack(trackInfo));
+            }
+          }
+        } else {
+          stream = new MediaStream(ev);
+          this._remoteStreams.push(stream);
+        }
+        this._addRemoteTracks(stream);
         this.dispatchEvent(new MediaStreamEvent('addstream', {stream}));
       }),
+      EventEmitter.addListener('peerConnectionAddedTrack', ev => {
+        if (ev.id !== this._peerConnectionId) {
+          return;
+        }
+        // The streams which are first known through this track. An
+        // addstream event may still follow for them.
+        for (const streamInfo of ev.streams) {
+          if (!this._remoteStreams.find(s => s._reactTag === streamInfo.streamReactTag)) {
+            const stream = new MediaStream(streamInfo);
+            this._remoteStreams.push(stream);
+            this._addRemoteTracks(stream);
+          }
+        }
+        const streams = ev.streamReactTags
+          .map(reactTag => this._remoteStreams.find(s => s._reactTag === reactTag))
+          .filter(stream => stream);
+        let track = this._remoteTracks.get(ev.track.id);
+        if (!track) {
+          track = new MediaStreamTrack(ev.track);
+          this._remoteTracks.set(track.id, track);
+        }
+        // With Unified Plan, a track may be added to a known stream. The
+        // track is already part of the stream on the native side.
+        for (const stream of streams) {
+          if (!stream.getTrackById(track.id)) {
+            stream._tracks.push(track);
+          }
+        }
+        const receiver = new RTCRtpReceiver(ev.receiverId, track);
+        this.dispatchEvent(new RTCEvent('track', {track, receiver, streams}));
+      }),
+      EventEmitter.addListener('peerConnectionRemovedTrack', ev => {
+        if (ev.id !== this._peerConnectionId) {
+          return;
+        }
+        let track = this._remoteTracks.get(ev.trackId);
+        this._remoteTracks.delete(ev.trackId);
+        for (const stream of this._remoteStreams) {
+          const streamTrack = stream.getTrackById(ev.trackId);
+          if (streamTrack) {
+            track = track || streamTrack;
+            stream._tracks.splice(stream._tracks.indexOf(streamTrack), 1);
+          }
+        }
+        if (track && track.readyState !== 'ended') {
+          track.readyState = 'ended';
+          track.dispatchEvent(new MediaStreamTrackEvent('ended', {track}));
+        }
+      }),
       EventEmitter.addListener('peerConnectionRemovedStream', ev => {
         if (ev.id !== this._peerConnectionId) {
           return;
@@ -312,6 +806,10 @@ export default class RTCPeerConnection extends EventTarget(PEER_CONNECTION_EVENT
           if (index !== -1) {
             this._remoteStreams.splice(index, 1);
           }
+          // The native side no longer reports on the tracks of the stream.
+          for (const track of stream._tracks) {
+            this._remoteTracks.delete(track.id);
+          }
         }
         this.dispatchEvent(new MediaStreamEvent('removestream', {stream}));
       }),
@@ -326,6 +824,28 @@ export default class RTCPeerConnection extends EventTarget(PEER_CONNECTION_EVENT
           track.dispatchEvent(new MediaStreamTrackEvent(eventName, {track}));
         }
       }),
+      EventEmitter.addListener('mediaStreamTrackFreeze', ev => {
+        if (ev.peerConnectionId !== this._peerConnectionId) {
+          return;
+        }
+        const track = this._getTrack(ev.streamReactTag, ev.trackId);
+        if (track) {
+          track.dispatchEvent(
+            new MediaStreamTrackEvent('freeze', {track, durationMs: ev.durationMs}));
+        }
+      }),
+      EventEmitter.addListener('mediaStreamTrackResolutionChanged', ev => {
+        if (ev.peerConnectionId !== this._peerConnectionId) {
+          return;
+        }
+        const track = this._getTrack(ev.streamReactTag, ev.trackId);
+        if (track) {
+          track.dispatchEvent(
+            new MediaStreamTrackEvent(
+              'resize',
+              {track, width: ev.width, height: ev.height}));
+        }
+      }),
       EventEmitter.addListener('peerConnectionGotICECandidate', ev => {
         if (ev.id !== this._peerConnectionId) {
           return;
@@ -0,0 +1,13 @@
+'use strict';
+
+import type MediaStreamTrack from './MediaStreamTrack';
+
+export default class RTCRtpReceiver {
+  id: string;
+  track: ?MediaStreamTrack;
+
+  constructor(id: string, track: ?MediaStreamTrack) {
+    this.id = id;
+    this.track = track;
+  }
+}
@@ -0,0 +1,76 @@
+'use strict';
+
+import {NativeModules} from 'react-native';
+
+import type MediaStreamTrack from './MediaStreamTrack';
+
+const {WebRTCModule} = NativeModules;
+
+export default class RTCRtpSender {
+  id: string;
+  track: ?MediaStreamTrack;
+
+  _peerConnectionId: number;
+
+  constructor(peerConnectionId: number, id: string, track: ?MediaStreamTrack) {
+    this._peerConnectionId = peerConnectionId;
+    this.id = id;
+    this.track = track;
+  }
+
+  /**
+   * Gets the encoding parameters of this RTCRtpSender:
+   * {@code degradationPreference} and {@code encodings} (with {@code rid},
+   * {@code active}, {@code maxBitrate}, {@code minBitrate},
+   * {@code maxFramerate} and {@code scaleResolutionDownBy}).
+   *
+   * @returns {Promise}
+   */
+  getParameters() {
+    return WebRTCModule.peerConnectionGetSenderParameters(this._peerConnectionId, this.id);
+  }
+
+  /**
+   * Updates the encoding parameters of this RTCRtpSender without a
+   * renegotiation. Only the given values change; {@code null} removes a
+   * limit. The number of {@code encodings}, if given, must not change.
+   *
+   * @returns {Promise} Resolved with the parameters in effect.
+   */
+  setParameters(parameters: Object) {
+    return WebRTCModule.peerConnectionSetSenderParameters(
+        this._peerConnectionId,
+        this.id,
+        parameters);
+  }
+
+  /**
+   * Gets the {@code outbound-rtp} statistics of each layer sent by this
+   * RTCRtpSender (e.g. each simulcast layer, with its {@code rid},
+   * {@code frameWidth}, {@code frameHeight}, {@code framesPerSecond} and
+   * {@code bytesSent}) in the order of its encodings.
+   *
+   * @returns {Promise<Array<Object>>}
+   */
+  getLayerStats() {
+    return WebRTCModule.peerConnectionGetSenderStats(this._peerConnectionId, this.id);
+  }
+
+  /**
+   * Replaces the track sent by this RTCRtpSender (e.g. when switching
+   * cameras or toggling screen sharing) without a renegotiation.
+   *
+   * @param {?MediaStreamTrack} track - The new track or {@code null} to stop
+   * sending.
+   * @returns {Promise}
+   */
+  replaceTrack(track: ?MediaStreamTrack) {
+    return WebRTCModule.peerConnectionReplaceTrack(
+        this._peerConnectionId,
+        this.id,
+        track ? track.id : null)
+      .then(() => {
+        this.track = track;
+      });
+  }
+}
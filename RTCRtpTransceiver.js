@@ -0,0 +1,24 @@
+'use strict';
+
+import type RTCRtpReceiver from './RTCRtpReceiver';
+import type RTCRtpSender from './RTCRtpSender';
+
+type RTCRtpTransceiverDirection =
+  'sendrecv' |
+  'sendonly' |
+  'recvonly' |
+  'inactive';
+
+export default class RTCRtpTransceiver {
+  direction: RTCRtpTransceiverDirection;
+  mid: ?string;
+  receiver: RTCRtpReceiver;
+  sender: RTCRtpSender;
+
+  constructor(info, sender: RTCRtpSender, receiver: RTCRtpReceiver) {
+    this.mid = info.mid;
+    this.direction = info.direction;
+    this.sender = sender;
+    this.receiver = receiver;
+  }
+}
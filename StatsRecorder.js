@@ -0,0 +1,58 @@
+'use strict';
+
+import { NativeModules } from 'react-native';
+
+const { WebRTCModule } = NativeModules;
+
+/**
+ * Type declaration for the options of {@link StatsRecorder.start}.
+ */
+type StatsRecorderOptions = {
+    intervalMs?: number;
+    maxFileBytes?: number;
+    maxFileAgeMs?: number;
+    maxFiles?: number;
+    gzip?: boolean;
+}
+
+/**
+ * Records the stats of all peer connections natively, without crossing the
+ * bridge for every sample, into rotating newline-delimited JSON files in the
+ * app-private storage. Every line is an object with the {@code timestamp} of
+ * the sample, the {@code peerConnectionId} and the {@code stats} report.
+ */
+class StatsRecorder {
+    /**
+     * Starts (or restarts with new options) the recording.
+     *
+     * @returns {Promise} resolved with the path of the directory in which the
+     * files are recorded.
+     */
+    start(options: StatsRecorderOptions = {}) {
+        return WebRTCModule.statsRecorderStart(options);
+    }
+
+    /**
+     * Stops the recording and closes the current file.
+     */
+    stop() {
+        return WebRTCModule.statsRecorderStop();
+    }
+
+    /**
+     * @returns {Promise} resolved with the recorded files, oldest first, as
+     * objects with {@code path}, {@code size} and {@code lastModified}.
+     */
+    getFiles() {
+        return WebRTCModule.statsRecorderGetFiles();
+    }
+
+    /**
+     * Stops the recording and deletes all recorded files.
+     */
+    deleteFiles() {
+        return WebRTCModule.statsRecorderDeleteFiles();
+    }
+}
+
+export default new StatsRecorder();
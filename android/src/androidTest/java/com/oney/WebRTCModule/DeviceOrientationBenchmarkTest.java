@@ -0,0 +1,58 @@
+package com.oney.WebRTCModule;
+
+import android.content.Context;
+import android.util.Log;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.platform.app.InstrumentationRegistry;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Times reading the device orientation, which the camera sessions need for
+ * every frame, through {@link DeviceOrientation} against a
+ * {@code WindowManager} lookup per read. The timings are logged; only the
+ * agreement of both reads is asserted.
+ */
+@RunWith(AndroidJUnit4.class)
+public class DeviceOrientationBenchmarkTest {
+    private static final String TAG = WebRTCModule.TAG;
+
+    private static final int ITERATIONS = 10000;
+
+    @Test
+    public void timesCachedAndWindowManagerReads() {
+        Context context
+            = InstrumentationRegistry.getInstrumentation().getTargetContext();
+
+        // Warm both paths up so that neither pays for class loading.
+        for (int i = 0; i < 100; i++) {
+            DeviceOrientation.get(context);
+            CameraSession.getDeviceOrientation(context);
+        }
+
+        long startNs = System.nanoTime();
+        for (int i = 0; i < ITERATIONS; i++) {
+            CameraSession.getDeviceOrientation(context);
+        }
+        long windowManagerNs = System.nanoTime() - startNs;
+
+        startNs = System.nanoTime();
+        for (int i = 0; i < ITERATIONS; i++) {
+            DeviceOrientation.get(context);
+        }
+        long cachedNs = System.nanoTime() - startNs;
+
+        Log.i(TAG, "DeviceOrientation: WindowManager "
+            + ((double) windowManagerNs / ITERATIONS) + " ns/call, cached "
+            + ((double) cachedNs / ITERATIONS) + " ns/call");
+
+        int orientation = DeviceOrientation.get(context);
+        assertTrue(orientation % 90 == 0 && orientation >= 0 && orientation < 360);
+        assertEquals(CameraSession.getDeviceOrientation(context), orientation);
+    }
+}
@@ -0,0 +1,126 @@
+package com.oney.WebRTCModule;
+
+import android.util.SparseArray;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.webrtc.RTCStats;
+import org.webrtc.RTCStatsReport;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+@RunWith(AndroidJUnit4.class)
+public class QualityEstimatorTest {
+    private static final int ID = 1;
+
+    private static SparseArray<RTCStatsReport> reportsWithoutMedia(long timestampMs) {
+        SparseArray<RTCStatsReport> reports = new SparseArray<>();
+
+        reports.put(ID, new RTCStatsReport(timestampMs * 1000, Collections.emptyMap()));
+        return reports;
+    }
+
+    /**
+     * A {@code PeerConnection} without inbound media has no score yet. Nothing
+     * is emitted for it (the estimator has no {@code WebRTCModule} to emit
+     * with) and later samples are still estimated.
+     */
+    @Test
+    public void firstSampleWithoutMediaEmitsNothing() {
+        QualityEstimator estimator = new QualityEstimator(null, 1000);
+
+        estimator.onStatsSampled(1000, reportsWithoutMedia(1000));
+        QualityEstimator.Estimate first = estimator.get(ID);
+        assertNotNull(first);
+        assertTrue(Double.isNaN(first.score));
+
+        estimator.onStatsSampled(2000, reportsWithoutMedia(2000));
+        QualityEstimator.Estimate second = estimator.get(ID);
+        assertNotNull(second);
+        assertEquals(2000, second.timestampMs);
+        assertTrue(Double.isNaN(second.emittedScore));
+    }
+
+    private static RTCStats stats(
+            long timestampMs,
+            String type,
+            String id,
+            Object... members) {
+        Map<String, Object> map = new HashMap<>();
+
+        for (int i = 0; i < members.length; i += 2) {
+            map.put((String) members[i], members[i + 1]);
+        }
+        return new RTCStats(timestampMs * 1000, type, id, map);
+    }
+
+    private static RTCStatsReport report(long timestampMs, RTCStats... stats) {
+        Map<String, RTCStats> map = new HashMap<>();
+
+        for (RTCStats s : stats) {
+            map.put(s.getId(), s);
+        }
+        return new RTCStatsReport(timestampMs * 1000, map);
+    }
+
+    /**
+     * Over a second, inbound audio loses 5 of 100 packets with 10 ms of
+     * jitter, inbound video decodes 30 frames without loss, and the remote
+     * side measures a round-trip time of 100 ms.
+     */
+    private static StatsMetrics sampleMetrics() {
+        RTCStatsReport previous
+            = report(
+                1000,
+                stats(1000, "inbound-rtp", "audio", "kind", "audio",
+                    "packetsReceived", 0L, "packetsLost", 0, "jitter", 0.01),
+                stats(1000, "inbound-rtp", "video", "kind", "video",
+                    "packetsReceived", 0L, "packetsLost", 0, "framesDecoded", 0L),
+                stats(1000, "remote-inbound-rtp", "remote", "roundTripTime", 0.1));
+        RTCStatsReport current
+            = report(
+                2000,
+                stats(2000, "inbound-rtp", "audio", "kind", "audio",
+                    "packetsReceived", 95L, "packetsLost", 5, "jitter", 0.01),
+                stats(2000, "inbound-rtp", "video", "kind", "video",
+                    "packetsReceived", 1000L, "packetsLost", 0, "framesDecoded", 30L),
+                stats(2000, "remote-inbound-rtp", "remote", "roundTripTime", 0.1));
+
+        return StatsMetrics.compute(previous, current);
+    }
+
+    @Test
+    public void metricsFromInboundAndRemoteInboundRtp() {
+        StatsMetrics metrics = sampleMetrics();
+
+        assertEquals(5, metrics.audioPacketLossPercent, 1e-9);
+        assertEquals(0, metrics.videoPacketLossPercent, 1e-9);
+        assertEquals(10, metrics.jitterMs, 1e-9);
+        assertEquals(100, metrics.roundTripTimeMs, 1e-9);
+        assertEquals(30, metrics.framesPerSecond, 1e-9);
+    }
+
+    /**
+     * The audio score follows the E-model: an effective latency of 50 + 20 +
+     * 10 ms gives R = 91.2, the loss takes 12.5 off, and R = 78.7 maps to a
+     * MOS of about 3.97. The lossless 30 fps video scores the maximum, so
+     * the overall score is the audio one.
+     */
+    @Test
+    public void scoreFromInboundAndRemoteInboundRtp() {
+        QualityEstimator.Estimate estimate
+            = new QualityEstimator.Estimate(2000, sampleMetrics(), null);
+
+        assertEquals(3.97, estimate.audioScore, 0.01);
+        assertEquals(QualityEstimator.MAX_SCORE, estimate.videoScore, 1e-9);
+        assertEquals(estimate.audioScore, estimate.score, 1e-9);
+    }
+}
@@ -0,0 +1,118 @@
+package com.oney.WebRTCModule;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.webrtc.VideoFrame;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+@RunWith(AndroidJUnit4.class)
+public class VideoFrameMonitorTest {
+    private static final VideoFrame FRAME = new VideoFrame(new Buffer(), 0, 0);
+
+    private static final VideoFrameMonitor.Listener LISTENER
+        = new VideoFrameMonitor.Listener() {
+            @Override
+            public void onFreeze(long durationMs) {
+            }
+
+            @Override
+            public void onResolutionChanged(int width, int height) {
+            }
+        };
+
+    /**
+     * Feeds a specific number of frames at a specific interval to a specific
+     * monitor.
+     *
+     * @return the time of the last frame
+     */
+    static long feed(VideoFrameMonitor monitor, long timeNs, long intervalMs, int frames) {
+        for (int i = 0; i < frames; i++) {
+            timeNs += TimeUnit.MILLISECONDS.toNanos(intervalMs);
+            monitor.onFrame(FRAME, timeNs);
+        }
+        return timeNs;
+    }
+
+    /**
+     * A screen share which drops from 30 fps to 1 fps on static content
+     * freezes once, not with every frame from then on.
+     */
+    @Test
+    public void sustainedFramerateDropStopsCountingFreezes() {
+        VideoFrameMonitor monitor = new VideoFrameMonitor(LISTENER);
+
+        long timeNs = feed(monitor, 0, 33, 90);
+        assertEquals(0, monitor.getFreezeCount());
+
+        timeNs = feed(monitor, timeNs, 1000, 30);
+        assertTrue(monitor.getFreezeCount() <= VideoFrameMonitor.MAX_CONSECUTIVE_FREEZES);
+        assertEquals(1000, monitor.getAverageIntervalMs(), 50);
+
+        long freezes = monitor.getFreezeCount();
+        feed(monitor, timeNs, 1000, 30);
+        assertEquals(freezes, monitor.getFreezeCount());
+    }
+
+    /**
+     * A single long gap amid a steady framerate is a freeze and does not
+     * raise the threshold for the next one.
+     */
+    @Test
+    public void isolatedGapsAreFreezes() {
+        VideoFrameMonitor monitor = new VideoFrameMonitor(LISTENER);
+
+        long timeNs = feed(monitor, 0, 33, 90);
+        timeNs = feed(monitor, timeNs, 1000, 1);
+        timeNs = feed(monitor, timeNs, 33, 30);
+        feed(monitor, timeNs, 1000, 1);
+
+        assertEquals(2, monitor.getFreezeCount());
+        assertEquals(33, monitor.getAverageIntervalMs(), 5);
+    }
+
+    /**
+     * A 2x2 frame which is never converted.
+     */
+    private static class Buffer implements VideoFrame.Buffer {
+        @Override
+        public int getWidth() {
+            return 2;
+        }
+
+        @Override
+        public int getHeight() {
+            return 2;
+        }
+
+        @Override
+        public VideoFrame.I420Buffer toI420() {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public void retain() {
+        }
+
+        @Override
+        public void release() {
+        }
+
+        @Override
+        public VideoFrame.Buffer cropAndScale(
+                int cropX,
+                int cropY,
+                int cropWidth,
+                int cropHeight,
+                int scaleWidth,
+                int scaleHeight) {
+            throw new UnsupportedOperationException();
+        }
+    }
+}
@@ -0,0 +1,58 @@
+package com.oney.WebRTCModule;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+@RunWith(AndroidJUnit4.class)
+public class VideoTrackAdapterTest {
+    private static final VideoFrameMonitor.Listener LISTENER
+        = new VideoFrameMonitor.Listener() {
+            @Override
+            public void onFreeze(long durationMs) {
+            }
+
+            @Override
+            public void onResolutionChanged(int width, int height) {
+            }
+        };
+
+    /**
+     * A track at 30 fps is muted quickly; once it has dropped to 1 fps the
+     * delay exceeds the gap after every frame so that it is not muted and
+     * unmuted with every frame.
+     */
+    @Test
+    public void muteDelayFollowsFramerateDrop() {
+        VideoFrameMonitor monitor = new VideoFrameMonitor(LISTENER);
+
+        long timeNs = VideoFrameMonitorTest.feed(monitor, 0, 33, 90);
+        assertEquals(
+            VideoTrackAdapter.MIN_MUTE_DELAY,
+            VideoTrackAdapter.getAdaptiveMuteDelay(monitor));
+
+        for (int i = 0; i < 30; i++) {
+            timeNs = VideoFrameMonitorTest.feed(monitor, timeNs, 1000, 1);
+            long delayMs = VideoTrackAdapter.getAdaptiveMuteDelay(monitor);
+            assertTrue("delay " + delayMs + " ms after frame " + i, delayMs > 1000);
+        }
+    }
+
+    /**
+     * Before the first gap is known a track is not muted before the longest
+     * delay, so that a slow screen share survives until its second frame.
+     */
+    @Test
+    public void muteDelayBeforeSecondFrameIsLongest() {
+        VideoFrameMonitor monitor = new VideoFrameMonitor(LISTENER);
+
+        VideoFrameMonitorTest.feed(monitor, 0, 1000, 1);
+        assertEquals(
+            VideoTrackAdapter.MAX_MUTE_DELAY,
+            VideoTrackAdapter.getAdaptiveMuteDelay(monitor));
+    }
+}
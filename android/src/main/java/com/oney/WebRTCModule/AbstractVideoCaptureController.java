@@ -34,6 +34,18 @@ public abstract class AbstractVideoCaptureController {
         return videoCapturer;
     }
 
+    public int getWidth() {
+        return width;
+    }
+
+    public int getHeight() {
+        return height;
+    }
+
+    public int getFps() {
+        return fps;
+    }
+
     public void startCapture() {
         try {
             videoCapturer.startCapture(width, height, fps);
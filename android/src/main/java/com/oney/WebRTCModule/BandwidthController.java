@@ -0,0 +1,588 @@
+package com.oney.WebRTCModule;
+
+import android.util.Log;
+import android.util.SparseArray;
+
+import androidx.annotation.Nullable;
+
+import com.facebook.react.bridge.Arguments;
+import com.facebook.react.bridge.ReadableArray;
+import com.facebook.react.bridge.ReadableMap;
+import com.facebook.react.bridge.WritableMap;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+import org.webrtc.MediaStreamTrack;
+import org.webrtc.RTCStats;
+import org.webrtc.RTCStatsReport;
+import org.webrtc.RtpParameters;
+import org.webrtc.RtpSender;
+
+/**
+ * Adapts the video sent by a specific {@code PeerConnection} to its link on
+ * the thread of {@link StatsSampler}. From the {@code remote-inbound-rtp}
+ * (loss, round-trip time), {@code candidate-pair} (available outgoing bitrate)
+ * and {@code outbound-rtp} (quality limitation) stats it steps through a
+ * ladder of levels, each limiting the bitrate, the framerate and the
+ * resolution of the video senders and optionally the capture format.
+ *
+ * A level is left downwards after the link has been bad for
+ * {@code stepDownSamples} consecutive samples and upwards only after it has
+ * been good for the (larger) {@code stepUpSamples}; samples in between reset
+ * both. Every step is emitted to JS as a
+ * {@code peerConnectionBandwidthDecision} event.
+ *
+ * The available outgoing bitrate only counts against the current level, and
+ * not while the senders are application-limited: the estimate of an
+ * application-limited sender stays near what it actually sends, which the
+ * controller itself caps. Stepping up therefore relies on the loss, the
+ * round-trip time and the quality limitation alone. When the controller is
+ * stopped, the senders and the capture formats are restored.
+ */
+class BandwidthController implements StatsSampler.Listener {
+    /**
+     * The {@link Log} tag with which {@code BandwidthController} is to log.
+     */
+    private static final String TAG = WebRTCModule.TAG;
+
+    /**
+     * The levels used if none are specified, best first.
+     */
+    private static final Level[] DEFAULT_LEVELS = {
+        new Level(1_500_000, 30, 1),
+        new Level(1_000_000, 30, 1.5),
+        new Level(600_000, 24, 2),
+        new Level(300_000, 15, 3),
+        new Level(150_000, 10, 4)
+    };
+
+    /**
+     * Whether the capture format of the local video tracks is adapted along
+     * with the encodings. Affects all the {@code PeerConnection}s which send
+     * the same tracks.
+     */
+    private final boolean adaptCapture;
+
+    private int badSamples;
+
+    private int goodSamples;
+
+    private final int id;
+
+    /**
+     * The IDs of the local video tracks whose capture format was adapted.
+     * Only accessed on the executor of {@link ThreadUtils}.
+     */
+    private final Set<String> adaptedTrackIds = new HashSet<>();
+
+    /**
+     * The encodings of the video senders before the controller first
+     * changed them by sender ID. Only accessed on the executor of
+     * {@link ThreadUtils}.
+     */
+    private final Map<String, Encoding> originalEncodings = new HashMap<>();
+
+    /**
+     * The bytes sent as of the previous sample and its timestamp, from which
+     * the actually sent bitrate is derived. Only accessed on the sampler
+     * thread.
+     */
+    private double previousBytesSent = Double.NaN;
+    private long previousTimestampUs;
+
+    /**
+     * Whether {@link #stop()} has been invoked. Only accessed on the executor
+     * of {@link ThreadUtils}.
+     */
+    private boolean stopped;
+
+    private final long intervalMs;
+
+    /**
+     * The index in {@link #levels} of the current level.
+     */
+    private int level;
+
+    private final Level[] levels;
+
+    /**
+     * The packet loss in percent above which the link is bad.
+     */
+    private final double maxPacketLoss;
+
+    /**
+     * The round-trip time in milliseconds above which the link is bad.
+     */
+    private final double maxRoundTripTimeMs;
+
+    /**
+     * The packet loss in percent below which the link is good.
+     */
+    private final double minPacketLoss;
+
+    private final int stepDownSamples;
+
+    private final int stepUpSamples;
+
+    private final WebRTCModule webRTCModule;
+
+    /**
+     * Initializes a new {@code BandwidthController} instance.
+     *
+     * @param options a JS object with the optional {@code intervalMs},
+     * {@code levels} (best first, each with {@code maxBitrate},
+     * {@code maxFramerate} and {@code scaleResolutionDownBy}),
+     * {@code maxPacketLoss}, {@code minPacketLoss} (percent),
+     * {@code maxRoundTripTime} (ms), {@code stepDownSamples},
+     * {@code stepUpSamples} and {@code adaptCapture}
+     * @throws IllegalArgumentException if {@code options} are invalid
+     */
+    BandwidthController(WebRTCModule webRTCModule, int id, ReadableMap options) {
+        this.webRTCModule = webRTCModule;
+        this.id = id;
+
+        intervalMs = (long) getDouble(options, "intervalMs", 2000);
+        maxPacketLoss = getDouble(options, "maxPacketLoss", 10);
+        minPacketLoss = getDouble(options, "minPacketLoss", 2);
+        maxRoundTripTimeMs = getDouble(options, "maxRoundTripTime", 500);
+        stepDownSamples = (int) getDouble(options, "stepDownSamples", 2);
+        stepUpSamples = (int) getDouble(options, "stepUpSamples", 5);
+        adaptCapture
+            = options.hasKey("adaptCapture") && options.getBoolean("adaptCapture");
+
+        if (minPacketLoss > maxPacketLoss) {
+            throw new IllegalArgumentException(
+                "minPacketLoss must not exceed maxPacketLoss");
+        }
+        if (stepDownSamples < 1 || stepUpSamples < stepDownSamples) {
+            throw new IllegalArgumentException(
+                "stepUpSamples must be at least stepDownSamples which must be"
+                    + " positive");
+        }
+
+        if (options.hasKey("levels") && !options.isNull("levels")) {
+            ReadableArray array = options.getArray("levels");
+            if (array.size() == 0) {
+                throw new IllegalArgumentException("levels must not be empty");
+            }
+            levels = new Level[array.size()];
+            for (int i = 0; i < levels.length; i++) {
+                levels[i] = new Level(array.getMap(i));
+            }
+        } else {
+            levels = DEFAULT_LEVELS;
+        }
+    }
+
+    long getIntervalMs() {
+        return intervalMs;
+    }
+
+    @Override
+    public void onStatsSampled(long timestampMs, SparseArray<RTCStatsReport> reports) {
+        RTCStatsReport report = reports.get(id);
+        if (report == null) {
+            return;
+        }
+
+        Sample sample = new Sample(report);
+        long timestampUs = (long) report.getTimestampUs();
+        if (!Double.isNaN(previousBytesSent)
+                && sample.bytesSent >= previousBytesSent
+                && timestampUs > previousTimestampUs) {
+            sample.sentBitrate
+                = (sample.bytesSent - previousBytesSent) * 8 * 1e6
+                    / (timestampUs - previousTimestampUs);
+        }
+        previousBytesSent = sample.bytesSent;
+        previousTimestampUs = timestampUs;
+
+        String reason = sample.getBadReason(this);
+
+        if (reason != null) {
+            goodSamples = 0;
+            if (++badSamples >= stepDownSamples && level < levels.length - 1) {
+                badSamples = 0;
+                step(level + 1, reason, sample);
+            }
+        } else if (sample.isGood(this)) {
+            badSamples = 0;
+            if (++goodSamples >= stepUpSamples && level > 0) {
+                goodSamples = 0;
+                step(level - 1, "recovered", sample);
+            }
+        } else {
+            badSamples = 0;
+            goodSamples = 0;
+        }
+    }
+
+    /**
+     * Applies the first level to the senders of the {@code PeerConnection}
+     * e.g. when the controller starts.
+     */
+    void start() {
+        Level l = levels[level];
+        ThreadUtils.runOnExecutor(() -> apply(l));
+    }
+
+    /**
+     * Restores the video senders of the {@code PeerConnection}, if it is still
+     * open, and the capture formats of their tracks as they were before the
+     * controller started.
+     */
+    void stop() {
+        ThreadUtils.runOnExecutor(() -> {
+            stopped = true;
+
+            PeerConnectionObserver pco
+                = webRTCModule.getPeerConnectionObservers().get(id);
+            if (pco != null) {
+                for (RtpSender sender : pco.getSenders()) {
+                    Encoding original = originalEncodings.get(sender.id());
+                    if (original == null) {
+                        continue;
+                    }
+                    RtpParameters parameters = sender.getParameters();
+                    if (parameters.encodings.size() != 1) {
+                        continue;
+                    }
+                    original.applyTo(parameters.encodings.get(0));
+                    if (!sender.setParameters(parameters)) {
+                        Log.w(TAG, "BandwidthController failed to restore the"
+                            + " parameters of sender " + sender.id());
+                    }
+                }
+            }
+            originalEncodings.clear();
+
+            for (String trackId : adaptedTrackIds) {
+                webRTCModule.scaleCaptureFormat(trackId, 1, 0);
+            }
+            adaptedTrackIds.clear();
+        });
+    }
+
+    private void step(int newLevel, String reason, Sample sample) {
+        int oldLevel = level;
+        Level l = levels[newLevel];
+
+        level = newLevel;
+        Log.d(TAG, "BandwidthController stepping PeerConnection " + id
+            + " from level " + oldLevel + " to " + newLevel + ": " + reason);
+        ThreadUtils.runOnExecutor(() -> apply(l));
+
+        WritableMap params = Arguments.createMap();
+        params.putInt("id", id);
+        params.putInt("level", newLevel);
+        params.putInt("previousLevel", oldLevel);
+        params.putString("reason", reason);
+        params.putMap("parameters", l.toMap());
+        params.putMap("metrics", sample.toMap());
+        webRTCModule.sendEvent("peerConnectionBandwidthDecision", params);
+    }
+
+    /**
+     * Applies a specific level to the video senders of the
+     * {@code PeerConnection}. Invoked on the executor of {@link ThreadUtils}.
+     * Simulcast senders are left to the per-layer adaptation of WebRTC.
+     */
+    private void apply(Level l) {
+        if (stopped) {
+            return;
+        }
+
+        PeerConnectionObserver pco
+            = webRTCModule.getPeerConnectionObservers().get(id);
+        if (pco == null) {
+            return;
+        }
+
+        for (RtpSender sender : pco.getSenders()) {
+            MediaStreamTrack track = sender.track();
+            if (track == null
+                    || !MediaStreamTrack.VIDEO_TRACK_KIND.equals(track.kind())) {
+                continue;
+            }
+
+            RtpParameters parameters = sender.getParameters();
+            if (parameters.encodings.size() != 1) {
+                continue;
+            }
+
+            RtpParameters.Encoding encoding = parameters.encodings.get(0);
+            if (!originalEncodings.containsKey(sender.id())) {
+                originalEncodings.put(sender.id(), new Encoding(encoding));
+            }
+            encoding.maxBitrateBps = l.maxBitrateBps;
+            encoding.maxFramerate = l.maxFramerate;
+            if (adaptCapture) {
+                // The capturer delivers fewer pixels in the first place.
+                encoding.scaleResolutionDownBy = null;
+                adaptedTrackIds.add(track.id());
+                webRTCModule.scaleCaptureFormat(
+                    track.id(),
+                    l.scaleResolutionDownBy,
+                    (l.maxFramerate == null) ? 0 : l.maxFramerate);
+            } else {
+                encoding.scaleResolutionDownBy = l.scaleResolutionDownBy;
+            }
+            if (!sender.setParameters(parameters)) {
+                Log.w(TAG, "BandwidthController failed to set the parameters of"
+                    + " sender " + sender.id());
+            }
+        }
+    }
+
+    private static double getDouble(
+            ReadableMap map,
+            String key,
+            double defaultValue) {
+        return (map.hasKey(key) && !map.isNull(key))
+            ? map.getDouble(key)
+            : defaultValue;
+    }
+
+    private static double getDouble(Map<String, Object> members, String name) {
+        Object value = members.get(name);
+        return (value instanceof Number)
+            ? ((Number) value).doubleValue()
+            : Double.NaN;
+    }
+
+    /**
+     * The limits of a single video encoding which the controller overrides.
+     */
+    private static class Encoding {
+        @Nullable
+        final Integer maxBitrateBps;
+
+        @Nullable
+        final Integer maxFramerate;
+
+        @Nullable
+        final Double scaleResolutionDownBy;
+
+        Encoding(RtpParameters.Encoding encoding) {
+            maxBitrateBps = encoding.maxBitrateBps;
+            maxFramerate = encoding.maxFramerate;
+            scaleResolutionDownBy = encoding.scaleResolutionDownBy;
+        }
+
+        void applyTo(RtpParameters.Encoding encoding) {
+            encoding.maxBitrateBps = maxBitrateBps;
+            encoding.maxFramerate = maxFramerate;
+            encoding.scaleResolutionDownBy = scaleResolutionDownBy;
+        }
+    }
+
+    /**
+     * The limits of the video senders at a specific level.
+     */
+    private static class Level {
+        @Nullable
+        final Integer maxBitrateBps;
+
+        @Nullable
+        final Integer maxFramerate;
+
+        final double scaleResolutionDownBy;
+
+        Level(
+                @Nullable Integer maxBitrateBps,
+                @Nullable Integer maxFramerate,
+                double scaleResolutionDownBy) {
+            this.maxBitrateBps = maxBitrateBps;
+            this.maxFramerate = maxFramerate;
+            this.scaleResolutionDownBy = scaleResolutionDownBy;
+        }
+
+        Level(ReadableMap map) {
+            this(getPositiveInteger(map, "maxBitrate"),
+                getPositiveInteger(map, "maxFramerate"),
+                getDouble(map, "scaleResolutionDownBy", 1));
+            if (scaleResolutionDownBy < 1) {
+                throw new IllegalArgumentException(
+                    "scaleResolutionDownBy must be at least 1: "
+                        + scaleResolutionDownBy);
+            }
+        }
+
+        @Nullable
+        private static Integer getPositiveInteger(ReadableMap map, String key) {
+            if (!map.hasKey(key) || map.isNull(key)) {
+                return null;
+            }
+
+            double v = map.getDouble(key);
+            if (v <= 0) {
+                throw new IllegalArgumentException(key + " must be positive: " + v);
+            }
+            return (int) Math.min(v, Integer.MAX_VALUE);
+        }
+
+        WritableMap toMap() {
+            WritableMap map = Arguments.createMap();
+
+            if (maxBitrateBps != null) {
+                map.putInt("maxBitrate", maxBitrateBps);
+            }
+            if (maxFramerate != null) {
+                map.putInt("maxFramerate", maxFramerate);
+            }
+            map.putDouble("scaleResolutionDownBy", scaleResolutionDownBy);
+            return map;
+        }
+    }
+
+    /**
+     * The state of the link of the {@code PeerConnection} as of a specific
+     * report.
+     */
+    private static class Sample {
+        double availableOutgoingBitrate = Double.NaN;
+
+        /**
+         * The bytes sent by the video senders in total.
+         */
+        double bytesSent;
+
+        /**
+         * The highest packet loss in percent reported by the remote endpoint
+         * for the video sent.
+         */
+        double packetLoss = Double.NaN;
+
+        @Nullable
+        String qualityLimitationReason;
+
+        double roundTripTimeMs = Double.NaN;
+
+        /**
+         * The bitrate actually sent by the video senders since the previous
+         * sample.
+         */
+        double sentBitrate = Double.NaN;
+
+        Sample(RTCStatsReport report) {
+            for (RTCStats stats : report.getStatsMap().values()) {
+                Map<String, Object> members = stats.getMembers();
+
+                switch (stats.getType()) {
+                case "candidate-pair":
+                    if (Boolean.TRUE.equals(members.get("nominated"))
+                            && "succeeded".equals(members.get("state"))) {
+                        availableOutgoingBitrate
+                            = getDouble(members, "availableOutgoingBitrate");
+                    }
+                    break;
+
+                case "remote-inbound-rtp":
+                    if (!"video".equals(members.get("kind"))) {
+                        break;
+                    }
+                    double fractionLost = getDouble(members, "fractionLost");
+                    if (!Double.isNaN(fractionLost)) {
+                        packetLoss = Double.isNaN(packetLoss)
+                            ? fractionLost * 100
+                            : Math.max(packetLoss, fractionLost * 100);
+                    }
+                    double rtt = getDouble(members, "roundTripTime");
+                    if (!Double.isNaN(rtt)) {
+                        roundTripTimeMs = Double.isNaN(roundTripTimeMs)
+                            ? rtt * 1000
+                            : Math.max(roundTripTimeMs, rtt * 1000);
+                    }
+                    break;
+
+                case "outbound-rtp":
+                    if (!"video".equals(members.get("kind"))) {
+                        break;
+                    }
+                    double bytes = getDouble(members, "bytesSent");
+                    if (!Double.isNaN(bytes)) {
+                        bytesSent += bytes;
+                    }
+                    Object reason = members.get("qualityLimitationReason");
+                    if (reason instanceof String && !"none".equals(reason)) {
+                        qualityLimitationReason = (String) reason;
+                    }
+                    break;
+                }
+            }
+        }
+
+        /**
+         * Gets why the link is bad at the current level of a specific
+         * controller.
+         *
+         * @return the reason or {@code null} if the link is not bad
+         */
+        @Nullable
+        String getBadReason(BandwidthController controller) {
+            if (packetLoss > controller.maxPacketLoss) {
+                return "packetLoss";
+            }
+            if (roundTripTimeMs > controller.maxRoundTripTimeMs) {
+                return "roundTripTime";
+            }
+
+            Integer maxBitrateBps = controller.levels[controller.level].maxBitrateBps;
+            if (maxBitrateBps != null
+                    && availableOutgoingBitrate < maxBitrateBps * 0.8
+                    && !isApplicationLimited()) {
+                return "availableOutgoingBitrate";
+            }
+            if ("bandwidth".equals(qualityLimitationReason)) {
+                return "qualityLimitation";
+            }
+            return null;
+        }
+
+        /**
+         * Determines whether the senders send well below the available
+         * outgoing bitrate, in which case the estimate does not reflect the
+         * capacity of the link (e.g. while ramping up or with static
+         * content). An unknown sent bitrate counts as application-limited.
+         */
+        boolean isApplicationLimited() {
+            return Double.isNaN(sentBitrate)
+                || sentBitrate < availableOutgoingBitrate * 0.5;
+        }
+
+        /**
+         * Determines whether the link would carry the next better level of a
+         * specific controller. The available outgoing bitrate is not
+         * considered: the controller caps what is sent, so the estimate
+         * cannot reach beyond the current level.
+         */
+        boolean isGood(BandwidthController controller) {
+            return !Double.isNaN(packetLoss)
+                && packetLoss < controller.minPacketLoss
+                && !(roundTripTimeMs > controller.maxRoundTripTimeMs / 2)
+                && qualityLimitationReason == null;
+        }
+
+        WritableMap toMap() {
+            WritableMap map = Arguments.createMap();
+
+            putIfKnown(map, "packetLoss", packetLoss);
+            putIfKnown(map, "roundTripTime", roundTripTimeMs);
+            putIfKnown(map, "availableOutgoingBitrate", availableOutgoingBitrate);
+            putIfKnown(map, "sentBitrate", sentBitrate);
+            if (qualityLimitationReason != null) {
+                map.putString("qualityLimitationReason", qualityLimitationReason);
+            }
+            return map;
+        }
+
+        private static void putIfKnown(WritableMap map, String key, double value) {
+            if (!Double.isNaN(value)) {
+                map.putDouble(key, value);
+            }
+        }
+    }
+}
@@ -15,7 +15,9 @@ import android.os.SystemClock;
 import android.util.Log;
 
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import org.webrtc.CameraEnumerationAndroid.CaptureFormat;
 import org.webrtc.CameraEnumerator;
 import org.webrtc.CameraVideoCapturer;
@@ -27,10 +29,12 @@ import org.webrtc.Size;
 @SuppressWarnings("deprecation")
 public class Camera1Enumerator implements CameraEnumerator {
     private final static String TAG = "Camera1Enumerator";
-    // Each entry contains the supported formats for corresponding camera index. The formats for all
-    // cameras are enumerated on the first call to getSupportedFormats(), and cached for future
-    // reference.
-    private static List<List<CaptureFormat>> cachedSupportedFormats;
+    // Maps camera indices to their supported formats. The formats of a camera are enumerated on the
+    // first call to getSupportedFormats() for it, and cached for future reference.
+    private static final Map<Integer, CameraFormatCache.Formats> cachedSupportedFormats = new HashMap<>();
+    // Persists the enumerated formats across launches so that cameras need not be opened to
+    // enumerate them again.
+    private static volatile CameraFormatCache persistentCache;
     private final boolean captureToTexture;
     public Camera1Enumerator() {
         this(true /* captureToTexture */);
@@ -86,16 +90,49 @@ public class Camera1Enumerator implements CameraEnumerator {
         }
         return info;
     }
-    static synchronized List<CaptureFormat> getSupportedFormats(int cameraId) {
-        if (cachedSupportedFormats == null) {
-            cachedSupportedFormats = new ArrayList<List<CaptureFormat>>();
-            for (int i = 0; i < android.hardware.Camera.getNumberOfCameras(); ++i) {
-                cachedSupportedFormats.add(enumerateFormats(i));
+    /**
+     * Sets the cache in which the formats enumerated by opening cameras are
+     * persisted, or {@code null} to always open the cameras.
+     */
+    static void setPersistentCache(CameraFormatCache cache) {
+        persistentCache = cache;
+    }
+
+    static List<CaptureFormat> getSupportedFormats(int cameraId) {
+        return getFormats(cameraId, true).captureFormats;
+    }
+    // Returns the formats of a camera which were enumerated or loaded from the persistent cache
+    // already, so that a session need not parse them from the parameters of the opened camera
+    // again. Returns null if there are none, as the camera is not opened to enumerate them.
+    static CameraFormatCache.Formats getKnownFormats(int cameraId) {
+        final CameraFormatCache.Formats formats = getFormats(cameraId, false);
+        return (formats == null || formats.captureFormats.isEmpty()) ? null : formats;
+    }
+    private static synchronized CameraFormatCache.Formats getFormats(int cameraId, boolean enumerate) {
+        CameraFormatCache.Formats formats = cachedSupportedFormats.get(cameraId);
+        if (formats == null) {
+            final CameraFormatCache cache = persistentCache;
+            formats = (cache == null) ? null : cache.load(cameraId);
+            if (formats == null) {
+                if (!enumerate) {
+                    return null;
+                }
+                formats = enumerateFormats(cameraId, cache);
+                if (formats == null) {
+                    formats = new CameraFormatCache.Formats(
+                            new ArrayList<CaptureFormat>(),
+                            new ArrayList<CaptureFormat.FramerateRange>(),
+                            new ArrayList<Size>());
+                }
             }
+            cachedSupportedFormats.put(cameraId, formats);
         }
-        return cachedSupportedFormats.get(cameraId);
+        return formats;
     }
-    private static List<CaptureFormat> enumerateFormats(int cameraId) {
+    // Returns null if the camera could not be opened. Persists the formats in |cache| only if
+    // they were enumerated completely, so that neither failure is persisted.
+    private static CameraFormatCache.Formats enumerateFormats(
+            int cameraId, CameraFormatCache cache) {
         Log.d(TAG, "Get supported formats for camera index " + cameraId + ".");
         final long startTimeMs = SystemClock.elapsedRealtime();
         final android.hardware.Camera.Parameters parameters;
@@ -106,13 +143,16 @@ public class Camera1Enumerator implements CameraEnumerator {
             parameters = camera.getParameters();
         } catch (RuntimeException e) {
             Log.e(TAG, "Open camera failed on camera index " + cameraId, e);
-            return new ArrayList<CaptureFormat>();
+            return null;
         } finally {
             if (camera != null) {
                 camera.release();
             }
         }
         final List<CaptureFormat> formatList = new ArrayList<CaptureFormat>();
+        List<CaptureFormat.FramerateRange> framerateRanges = new ArrayList<CaptureFormat.FramerateRange>();
+        List<Size> pictureSizes = new ArrayList<Size>();
+        boolean complete = false;
         try {
             int minFps = 0;
             int maxFps = 0;
@@ -123,17 +163,25 @@ public class Camera1Enumerator implements CameraEnumerator {
                 final int[] range = listFpsRange.get(listFpsRange.size() - 1);
                 minFps = range[android.hardware.Camera.Parameters.PREVIEW_FPS_MIN_INDEX];
                 maxFps = range[android.hardware.Camera.Parameters.PREVIEW_FPS_MAX_INDEX];
+                framerateRanges = convertFramerates(listFpsRange);
             }
             for (android.hardware.Camera.Size size : parameters.getSupportedPreviewSizes()) {
                 formatList.add(new CaptureFormat(size.width, size.height, minFps, maxFps));
             }
+            pictureSizes = convertSizes(parameters.getSupportedPictureSizes());
+            complete = true;
         } catch (Exception e) {
             Log.e(TAG, "getSupportedFormats() failed on camera index " + cameraId, e);
         }
         final long endTimeMs = SystemClock.elapsedRealtime();
         Log.d(TAG, "Get supported formats for camera index " + cameraId + " done."
                 + " Time spent: " + (endTimeMs - startTimeMs) + " ms.");
-        return formatList;
+        final CameraFormatCache.Formats formats
+                = new CameraFormatCache.Formats(formatList, framerateRanges, pictureSizes);
+        if (complete && cache != null) {
+            cache.store(cameraId, formats, endTimeMs - startTimeMs);
+        }
+        return formats;
     }
     // Convert from android.hardware.Camera.Size to Size.
     static List<Size> convertSizes(List<android.hardware.Camera.Size> cameraSizes) {
@@ -1,9 +1,11 @@
 package com.oney.WebRTCModule;
 
 import android.util.Log;
+import androidx.annotation.Nullable;
 
 import com.facebook.react.bridge.ReadableMap;
 import com.facebook.react.bridge.Callback;
+import com.facebook.react.bridge.WritableMap;
 
 import org.webrtc.CameraEnumerator;
 import org.webrtc.CameraVideoCapturer;
@@ -24,7 +26,6 @@ public class CameraCaptureController extends AbstractVideoCaptureController {
     //MINE
     private boolean flashEnabled = false;
     private int zoomValue = 0;
-    private MyCameraCapturer myVideoCapturer;
 
     private final CameraEnumerator cameraEnumerator;
     private final ReadableMap constraints;
@@ -184,11 +185,6 @@ public class CameraCaptureController extends AbstractVideoCaptureController {
             if (videoCapturer != null) {
                 Log.d(TAG, message + " succeeded");
                 this.isFrontFacing = cameraEnumerator.isFrontFacing(name);
-                
-                //MINE
-                this.myVideoCapturer = (MyCameraCapturer) videoCapturer;                
-                
-                
                 return videoCapturer;
             } else {
                 Log.d(TAG, message + " failed");
@@ -220,25 +216,48 @@ public class CameraCaptureController extends AbstractVideoCaptureController {
     }
 
     //MINE
+    //Both MyCameraCapturer (Cam 1 API) and MyCamera2Capturer (Cam 2 API)
+    private CameraCapturer getCameraCapturer() {
+        return (CameraCapturer) videoCapturer;
+    }
+
     public void setZoom(final int percentage){
         try{
-            if(this.myVideoCapturer.isZoomSupported()){
-                final int value = this.myVideoCapturer.getMaxZoom() * percentage / 100;
-                this.myVideoCapturer.setZoom(value);
+            CameraCapturer capturer = getCameraCapturer();
+            if(capturer.isZoomSupported()){
+                final int value = capturer.getMaxZoom() * percentage / 100;
+                capturer.setZoom(value);
                 this.zoomValue = value;
             }
-        }catch(final MyCameraCapturer.CameraException e){
+        }catch(final Exception e){
             Log.i("CAMERA EXCEPTION ", e.getMessage() + e.getCause());
         }
 
     }
 
     public void switchFlash(){
-        this.myVideoCapturer.switchFlash(!flashEnabled);
-        flashEnabled = !flashEnabled;
+        try{
+            getCameraCapturer().switchFlash(!flashEnabled);
+            flashEnabled = !flashEnabled;
+        }catch(final Exception e){
+            Log.i("CAMERA EXCEPTION ", e.getMessage() + e.getCause());
+        }
     }
 
     public void takePhoto(final ReadableMap options, final Callback successCallback, final Callback errorCallback){
-        this.myVideoCapturer.takePicture(options, successCallback, errorCallback, this.zoomValue, this.flashEnabled);
+        getCameraCapturer().takePicture(options, successCallback, errorCallback, this.zoomValue, this.flashEnabled);
+    }
+
+    public void setStandbyEnabled(boolean enabled) {
+        getCameraCapturer().setStandbyEnabled(enabled);
+    }
+
+    public WritableMap getSwitchStats() {
+        return getCameraCapturer().getSwitchStats();
+    }
+
+    @Nullable
+    public WritableMap getCaptureStats() {
+        return videoCapturer == null ? null : getCameraCapturer().getCaptureStats();
     }
 }
@@ -11,7 +11,14 @@ package com.oney.WebRTCModule;
 import android.content.Context;
 import android.os.Handler;
 import android.os.Looper;
+import android.os.SystemClock;
 import android.util.Log;
+import androidx.annotation.Nullable;
+
+import com.facebook.react.bridge.Arguments;
+import com.facebook.react.bridge.Callback;
+import com.facebook.react.bridge.ReadableMap;
+import com.facebook.react.bridge.WritableMap;
 
 import java.util.Arrays;
 import java.util.List;
@@ -80,6 +87,7 @@ abstract class CameraCapturer implements CameraVideoCapturer {
                             sessionOpening = false;
                             stateLock.notifyAll();
                             if (switchState != SwitchState.IDLE) {
+                                switchStartNs = -1;
                                 if (switchEventsHandler != null) {
                                     switchEventsHandler.onCameraSwitchError(error);
                                     switchEventsHandler = null;
@@ -157,6 +165,20 @@ abstract class CameraCapturer implements CameraVideoCapturer {
                 if (!firstFrameObserved) {
                     eventsHandler.onFirstFrameAvailable();
                     firstFrameObserved = true;
+                    if (switchStartNs >= 0) {
+                        switchStats.add(
+                            SystemClock.elapsedRealtimeNanos() - switchStartNs, switchFromStandby);
+                        switchStartNs = -1;
+                    }
+                    if (standbyEnabled) {
+                        // Not before the first frame so that the standby camera
+                        // does not compete with the start of this one.
+                        cameraThreadHandler.post(() -> {
+                            synchronized (stateLock) {
+                                openStandbyInternal();
+                            }
+                        });
+                    }
                 }
                 cameraStatistics.addFrame();
                 capturerObserver.onFrameCaptured(frame);
@@ -190,6 +212,18 @@ abstract class CameraCapturer implements CameraVideoCapturer {
     // Valid from onDone call until stopCapture, otherwise null.
     private CameraStatistics cameraStatistics; /* guarded by stateLock */
     private boolean firstFrameObserved; /* guarded by stateLock */
+
+    //MINE
+    // The warm standby of the camera which a switch would select, opened
+    // without streaming while enabled and supported.
+    private boolean standbyEnabled; /* guarded by stateLock */
+    private StandbyCamera standbyCamera; /* guarded by stateLock */
+    private StandbyCallback standbyRequest; /* guarded by stateLock */
+    private int standbyFailures; /* guarded by stateLock */
+    // When the pending switch was requested or -1.
+    private long switchStartNs = -1; /* guarded by stateLock */
+    private boolean switchFromStandby; /* guarded by stateLock */
+    private final SwitchStats switchStats = new SwitchStats(); /* guarded by stateLock */
     public CameraCapturer(String cameraName,  CameraEventsHandler eventsHandler,
                           CameraEnumerator cameraEnumerator) {
         if (eventsHandler == null) {
@@ -249,12 +283,15 @@ abstract class CameraCapturer implements CameraVideoCapturer {
         }
     }
     private void createSessionInternal(int delayMs) {
+        createSessionInternal(delayMs, null);
+    }
+    private void createSessionInternal(int delayMs, final StandbyCamera standbyCamera) {
         uiThreadHandler.postDelayed(openCameraTimeoutRunnable, delayMs + OPEN_CAMERA_TIMEOUT);
         cameraThreadHandler.postDelayed(new Runnable() {
             @Override
             public void run() {
                 createCameraSession(createSessionCallback, cameraSessionEventsHandler, applicationContext,
-                        surfaceHelper, cameraName, width, height, framerate);
+                        surfaceHelper, cameraName, width, height, framerate, standbyCamera);
             }
         }, delayMs);
     }
@@ -272,6 +309,8 @@ abstract class CameraCapturer implements CameraVideoCapturer {
                     return;
                 }
             }
+            closeStandbyInternal();
+            switchStartNs = -1;
             if (currentSession != null) {
                 Log.d(TAG, "Stop capture: Nulling session");
                 cameraStatistics.release();
@@ -315,8 +354,11 @@ abstract class CameraCapturer implements CameraVideoCapturer {
                     reportCameraSwitchError("No camera to switch to.", switchEventsHandler);
                     return;
                 }
-                int cameraNameIndex = deviceNames.indexOf(cameraName);
-                String cameraName = deviceNames.get((cameraNameIndex + 1) % deviceNames.size());
+                String cameraName;
+                synchronized (stateLock) {
+                    // The same camera which is kept on standby, if any.
+                    cameraName = getAlternateCameraName();
+                }
                 switchCameraInternal(switchEventsHandler, cameraName);
             }
         });
@@ -378,6 +420,9 @@ abstract class CameraCapturer implements CameraVideoCapturer {
                 return;
             }
             this.switchEventsHandler = switchEventsHandler;
+            if (switchStartNs < 0) {
+                switchStartNs = SystemClock.elapsedRealtimeNanos();
+            }
             if (sessionOpening) {
                 switchState = SwitchState.PENDING;
                 pendingCameraName = selectedCameraName;
@@ -399,7 +444,17 @@ abstract class CameraCapturer implements CameraVideoCapturer {
             cameraName = selectedCameraName;
             sessionOpening = true;
             openAttemptsRemaining = 1;
-            createSessionInternal(0);
+            StandbyCamera standby = null;
+            if (standbyCamera != null && standbyCamera.getCameraName().equals(selectedCameraName)) {
+                Log.d(TAG, "switchCamera: Using the standby camera " + selectedCameraName);
+                standby = standbyCamera;
+                standbyCamera = null;
+                standbyRequest = null;
+            } else {
+                closeStandbyInternal();
+            }
+            switchFromStandby = (standby != null);
+            createSessionInternal(0, standby);
         }
         Log.d(TAG, "switchCamera done");
     }
@@ -414,10 +469,239 @@ abstract class CameraCapturer implements CameraVideoCapturer {
             return cameraName;
         }
     }
+    /**
+     * Creates a session on a specific camera or, if {@code standbyCamera} is
+     * not null, on the standby camera opened for it by
+     * {@link #openStandbyCamera}, which the session takes over.
+     */
     abstract protected void createCameraSession(
             CameraSession.CreateSessionCallback createSessionCallback, CameraSession.Events events,
             Context applicationContext, SurfaceTextureHelper surfaceTextureHelper, String cameraName,
-            int width, int height, int framerate);
+            int width, int height, int framerate, @Nullable StandbyCamera standbyCamera);
+
+
+    //MINE
+    //The zoom, flash and picture API implemented for the Cam 1 and the Cam 2 API
+    public abstract boolean isZoomSupported() throws Exception;
+
+    public abstract int getMaxZoom() throws Exception;
+
+    public abstract void setZoom(int value) throws Exception;
+
+    public abstract void switchFlash(boolean enable);
+
+    public abstract void takePicture(ReadableMap options, Callback successCallback, Callback errorCallback,
+                                     int zoomValue, boolean flashEnabled);
+
+    /**
+     * A camera opened ahead of a switch to it, without streaming.
+     */
+    protected interface StandbyCamera {
+        String getCameraName();
+
+        /**
+         * Closes the camera unless a session has taken it over. Invoked on the
+         * camera thread.
+         */
+        void close();
+    }
+
+    /**
+     * Notified on the camera thread about a standby camera.
+     */
+    protected interface StandbyCallback {
+        void onOpened(StandbyCamera camera);
+
+        /**
+         * The standby camera failed to open or was lost before a switch to it.
+         */
+        void onFailure(String error);
+    }
+
+    /**
+     * Whether a specific camera may be opened as a standby while another
+     * streams without evicting it. Unsupported unless overridden.
+     */
+    protected boolean isStandbySupported(String cameraName, String standbyCameraName) {
+        return false;
+    }
+
+    /**
+     * Opens a specific camera as a standby. Invoked on the camera thread only
+     * if {@link #isStandbySupported} for it.
+     */
+    protected void openStandbyCamera(String cameraName, StandbyCallback callback) {
+        callback.onFailure("Standby cameras are not supported.");
+    }
+
+    /**
+     * Enables or disables keeping the camera which a switch would select open
+     * while this one streams so that switching to it skips opening it.
+     */
+    public void setStandbyEnabled(final boolean enabled) {
+        synchronized (stateLock) {
+            standbyEnabled = enabled;
+            if (cameraThreadHandler == null) {
+                // Opened after the first frame once capturing.
+                return;
+            }
+        }
+        cameraThreadHandler.post(() -> {
+            synchronized (stateLock) {
+                if (!standbyEnabled) {
+                    closeStandbyInternal();
+                } else if (switchState == SwitchState.IDLE) {
+                    openStandbyInternal();
+                }
+            }
+        });
+    }
+
+    /**
+     * Gets the camera which a switch selects and which is kept on standby:
+     * the next one with another facing or, if there is none, just the next
+     * one.
+     */
+    private String getAlternateCameraName() {
+        List<String> deviceNames = Arrays.asList(cameraEnumerator.getDeviceNames());
+        int cameraNameIndex = deviceNames.indexOf(cameraName);
+        boolean frontFacing = cameraEnumerator.isFrontFacing(cameraName);
+        for (int i = 1; i < deviceNames.size(); i++) {
+            String name = deviceNames.get((cameraNameIndex + i) % deviceNames.size());
+            if (cameraEnumerator.isFrontFacing(name) != frontFacing) {
+                return name;
+            }
+        }
+        return deviceNames.get((cameraNameIndex + 1) % deviceNames.size());
+    }
+
+    /* Invoked on the camera thread with stateLock held. */
+    private void openStandbyInternal() {
+        if (!standbyEnabled || currentSession == null || sessionOpening) {
+            return;
+        }
+        if (cameraEnumerator.getDeviceNames().length < 2) {
+            return;
+        }
+        final String standbyCameraName = getAlternateCameraName();
+        if (standbyCamera != null && standbyCamera.getCameraName().equals(standbyCameraName)) {
+            return;
+        }
+        closeStandbyInternal();
+        if (!isStandbySupported(cameraName, standbyCameraName)) {
+            Log.d(TAG, "Camera " + standbyCameraName + " cannot be kept on standby with " + cameraName);
+            return;
+        }
+        Log.d(TAG, "Opening the standby camera " + standbyCameraName);
+        standbyRequest = new StandbyCallback() {
+            @Override
+            public void onOpened(StandbyCamera camera) {
+                synchronized (stateLock) {
+                    if (standbyRequest != this) {
+                        camera.close();
+                        return;
+                    }
+                    standbyCamera = camera;
+                }
+            }
+
+            @Override
+            public void onFailure(String error) {
+                synchronized (stateLock) {
+                    if (standbyRequest != this) {
+                        return;
+                    }
+                    Log.w(TAG, "Standby camera " + standbyCameraName + " failed: " + error);
+                    standbyRequest = null;
+                    standbyCamera = null;
+                    standbyFailures++;
+                }
+            }
+        };
+        openStandbyCamera(standbyCameraName, standbyRequest);
+    }
+
+    /* Invoked with stateLock held. */
+    private void closeStandbyInternal() {
+        standbyRequest = null;
+        if (standbyCamera != null) {
+            final StandbyCamera camera = standbyCamera;
+            standbyCamera = null;
+            cameraThreadHandler.post(camera::close);
+        }
+    }
+
+    /**
+     * Describes the camera switches, whether they used a standby camera and
+     * how long they took from the request to the first frame of the other
+     * camera.
+     */
+    public WritableMap getSwitchStats() {
+        synchronized (stateLock) {
+            WritableMap map = switchStats.toWritableMap();
+            map.putBoolean("standbyEnabled", standbyEnabled);
+            map.putBoolean("standbyReady", standbyCamera != null);
+            if (standbyCamera != null) {
+                map.putString("standbyCameraName", standbyCamera.getCameraName());
+            }
+            map.putInt("standbyFailures", standbyFailures);
+            return map;
+        }
+    }
+
+    /**
+     * The latencies of the camera switches with and without a standby
+     * camera.
+     */
+    private static class SwitchStats {
+        private int coldSwitches;
+        private long coldSwitchesNs;
+        private long lastSwitchNs = -1;
+        private boolean lastSwitchWarm;
+        private int warmSwitches;
+        private long warmSwitchesNs;
+
+        void add(long latencyNs, boolean warm) {
+            if (warm) {
+                warmSwitches++;
+                warmSwitchesNs += latencyNs;
+            } else {
+                coldSwitches++;
+                coldSwitchesNs += latencyNs;
+            }
+            lastSwitchNs = latencyNs;
+            lastSwitchWarm = warm;
+            Log.d(TAG, "Camera switch " + (warm ? "from standby" : "without standby")
+                + " took " + (latencyNs / 1000000) + " ms");
+        }
+
+        WritableMap toWritableMap() {
+            WritableMap map = Arguments.createMap();
+
+            map.putInt("warmSwitches", warmSwitches);
+            map.putInt("coldSwitches", coldSwitches);
+            if (warmSwitches > 0) {
+                map.putDouble("averageWarmSwitchLatencyMs", warmSwitchesNs / 1e6 / warmSwitches);
+            }
+            if (coldSwitches > 0) {
+                map.putDouble("averageColdSwitchLatencyMs", coldSwitchesNs / 1e6 / coldSwitches);
+            }
+            if (lastSwitchNs >= 0) {
+                map.putDouble("lastSwitchLatencyMs", lastSwitchNs / 1e6);
+                map.putBoolean("lastSwitchWarm", lastSwitchWarm);
+            }
+            return map;
+        }
+    }
+
+    /**
+     * Gets the stats of the capture buffers of the running session or null if
+     * the session does not capture into buffers of its own.
+     */
+    @Nullable
+    public WritableMap getCaptureStats() {
+        return null;
+    }
 
 
     //MINE
@@ -0,0 +1,226 @@
+package com.oney.WebRTCModule;
+
+import android.content.SharedPreferences;
+import android.os.Build;
+import android.os.SystemClock;
+import android.util.Log;
+
+import androidx.annotation.Nullable;
+
+import com.facebook.react.bridge.Arguments;
+import com.facebook.react.bridge.WritableMap;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+import org.webrtc.CameraEnumerationAndroid.CaptureFormat;
+import org.webrtc.Size;
+
+/**
+ * Persists the capture formats, framerate ranges and picture sizes which
+ * {@link Camera1Enumerator} obtains by opening a camera, so that later
+ * launches on the same build of the device need not open any camera to
+ * enumerate them. The entries are kept in the {@code SharedPreferences} of
+ * {@link WebRTCModule} per camera index together with
+ * {@code Build.FINGERPRINT}; an entry of another build is ignored.
+ */
+class CameraFormatCache {
+    /**
+     * The {@link Log} tag with which {@code CameraFormatCache} is to log.
+     */
+    private static final String TAG = WebRTCModule.TAG;
+
+    /**
+     * The prefix of the keys of the entries in the {@code SharedPreferences}
+     * of {@link WebRTCModule}; the camera index follows.
+     */
+    private static final String PREFERENCES_KEY_PREFIX = "cameraFormats.";
+
+    private int enumerations;
+
+    private long enumerationTimeMs;
+
+    private int hits;
+
+    private long lastLoadTimeNs = -1;
+
+    private int loads;
+
+    private long loadTimeNs;
+
+    private final SharedPreferences preferences;
+
+    CameraFormatCache(SharedPreferences preferences) {
+        this.preferences = preferences;
+    }
+
+    /**
+     * Loads the persisted formats of a specific camera if they were
+     * enumerated on the current build of the device.
+     *
+     * @return the formats or {@code null} if there are none for the current
+     * build
+     */
+    @Nullable
+    Formats load(int cameraId) {
+        long startNs = SystemClock.elapsedRealtimeNanos();
+        Formats formats = null;
+        String json = preferences.getString(PREFERENCES_KEY_PREFIX + cameraId, null);
+
+        if (json != null) {
+            try {
+                JSONObject object = new JSONObject(json);
+                if (Build.FINGERPRINT.equals(object.optString("fingerprint"))) {
+                    formats = Formats.fromJSON(object);
+                }
+            } catch (JSONException e) {
+                Log.w(TAG, "Failed to load the formats of camera " + cameraId, e);
+            }
+        }
+
+        long durationNs = SystemClock.elapsedRealtimeNanos() - startNs;
+        synchronized (this) {
+            loads++;
+            if (formats != null) {
+                hits++;
+            }
+            loadTimeNs += durationNs;
+            lastLoadTimeNs = durationNs;
+        }
+        Log.d(TAG, "Loading the formats of camera " + cameraId
+            + (formats == null ? " missed" : " hit") + " in "
+            + (durationNs / 1000) + " us");
+        return formats;
+    }
+
+    /**
+     * Persists the formats of a specific camera which were enumerated by
+     * opening it in a specific time.
+     */
+    void store(int cameraId, Formats formats, long enumerationTimeMs) {
+        synchronized (this) {
+            enumerations++;
+            this.enumerationTimeMs += enumerationTimeMs;
+        }
+        try {
+            JSONObject object = formats.toJSON();
+            object.put("fingerprint", Build.FINGERPRINT);
+            preferences.edit()
+                .putString(PREFERENCES_KEY_PREFIX + cameraId, object.toString())
+                .apply();
+        } catch (JSONException e) {
+            Log.w(TAG, "Failed to persist the formats of camera " + cameraId, e);
+        }
+    }
+
+    /**
+     * Describes how often the cache was consulted and hit and the time spent
+     * loading from it and enumerating cameras for JS.
+     */
+    synchronized WritableMap getStats() {
+        WritableMap map = Arguments.createMap();
+
+        map.putInt("loads", loads);
+        map.putInt("hits", hits);
+        map.putDouble("totalLoadTimeMs", loadTimeNs / 1e6);
+        if (lastLoadTimeNs >= 0) {
+            map.putDouble("lastLoadTimeMs", lastLoadTimeNs / 1e6);
+        }
+        map.putInt("enumerations", enumerations);
+        map.putDouble("totalEnumerationTimeMs", enumerationTimeMs);
+        return map;
+    }
+
+    /**
+     * What is enumerated about a camera: the capture formats (each preview
+     * size at the highest framerate range), all the framerate ranges and the
+     * picture sizes.
+     */
+    static class Formats {
+        final List<CaptureFormat> captureFormats;
+
+        final List<CaptureFormat.FramerateRange> framerateRanges;
+
+        final List<Size> pictureSizes;
+
+        Formats(
+                List<CaptureFormat> captureFormats,
+                List<CaptureFormat.FramerateRange> framerateRanges,
+                List<Size> pictureSizes) {
+            this.captureFormats = Collections.unmodifiableList(captureFormats);
+            this.framerateRanges = Collections.unmodifiableList(framerateRanges);
+            this.pictureSizes = Collections.unmodifiableList(pictureSizes);
+        }
+
+        static Formats fromJSON(JSONObject object) throws JSONException {
+            JSONArray array = object.getJSONArray("captureFormats");
+            List<CaptureFormat> captureFormats = new ArrayList<>(array.length());
+            for (int i = 0; i < array.length(); i++) {
+                JSONObject f = array.getJSONObject(i);
+                captureFormats.add(
+                    new CaptureFormat(
+                        f.getInt("width"),
+                        f.getInt("height"),
+                        f.getInt("minFps"),
+                        f.getInt("maxFps")));
+            }
+
+            array = object.getJSONArray("framerateRanges");
+            List<CaptureFormat.FramerateRange> framerateRanges
+                = new ArrayList<>(array.length());
+            for (int i = 0; i < array.length(); i++) {
+                JSONObject r = array.getJSONObject(i);
+                framerateRanges.add(
+                    new CaptureFormat.FramerateRange(r.getInt("min"), r.getInt("max")));
+            }
+
+            array = object.getJSONArray("pictureSizes");
+            List<Size> pictureSizes = new ArrayList<>(array.length());
+            for (int i = 0; i < array.length(); i++) {
+                JSONObject s = array.getJSONObject(i);
+                pictureSizes.add(new Size(s.getInt("width"), s.getInt("height")));
+            }
+
+            return new Formats(captureFormats, framerateRanges, pictureSizes);
+        }
+
+        JSONObject toJSON() throws JSONException {
+            JSONObject object = new JSONObject();
+
+            JSONArray array = new JSONArray();
+            for (CaptureFormat format : captureFormats) {
+                JSONObject f = new JSONObject();
+                f.put("width", format.width);
+                f.put("height", format.height);
+                f.put("minFps", format.framerate.min);
+                f.put("maxFps", format.framerate.max);
+                array.put(f);
+            }
+            object.put("captureFormats", array);
+
+            array = new JSONArray();
+            for (CaptureFormat.FramerateRange range : framerateRanges) {
+                JSONObject r = new JSONObject();
+                r.put("min", range.min);
+                r.put("max", range.max);
+                array.put(r);
+            }
+            object.put("framerateRanges", array);
+
+            array = new JSONArray();
+            for (Size size : pictureSizes) {
+                JSONObject s = new JSONObject();
+                s.put("width", size.width);
+                s.put("height", size.height);
+                array.put(s);
+            }
+            object.put("pictureSizes", array);
+
+            return object;
+        }
+    }
+}
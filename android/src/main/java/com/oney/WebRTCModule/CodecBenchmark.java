@@ -0,0 +1,422 @@
+package com.oney.WebRTCModule;
+
+import android.content.SharedPreferences;
+import android.os.Build;
+import android.os.SystemClock;
+import android.util.Log;
+
+import androidx.annotation.Nullable;
+
+import com.facebook.react.bridge.Arguments;
+import com.facebook.react.bridge.WritableArray;
+import com.facebook.react.bridge.WritableMap;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+import org.webrtc.EncodedImage;
+import org.webrtc.JavaI420Buffer;
+import org.webrtc.VideoCodecInfo;
+import org.webrtc.VideoCodecStatus;
+import org.webrtc.VideoEncoder;
+import org.webrtc.VideoEncoderFactory;
+import org.webrtc.VideoFrame;
+
+/**
+ * Calibrates the hardware video encoders of the device: encodes a short
+ * synthetic sequence with each of them and measures the time from the
+ * submission of a frame to its output, the share of frames output and the
+ * bitrate against the target. The results are persisted with the fingerprint
+ * of the device build and, from the next initialization of
+ * {@link WebRTCModule}, {@link InstrumentedVideoEncoderFactory} skips the
+ * hardware encoders which are too slow or broken (in favor of software ones)
+ * and prefers the fastest codecs.
+ *
+ * Software encoders are native and cannot be driven from Java so they are the
+ * reference the hardware encoders are judged against: a hardware encoder is
+ * only used if it keeps up with real time.
+ */
+class CodecBenchmark {
+    /**
+     * The {@link Log} tag with which {@code CodecBenchmark} is to log.
+     */
+    private static final String TAG = WebRTCModule.TAG;
+
+    private static final int FRAME_COUNT = 60;
+
+    private static final int FRAME_RATE = 30;
+
+    private static final int HEIGHT = 480;
+
+    /**
+     * The key of the results in the {@code SharedPreferences} of
+     * {@link WebRTCModule}.
+     */
+    private static final String PREFERENCES_KEY = "codecBenchmark";
+
+    /**
+     * The bitrate in kbps which the encoders are asked to produce.
+     */
+    private static final int TARGET_BITRATE_KBPS = 800;
+
+    private static final int WIDTH = 640;
+
+    private CodecBenchmark() {
+    }
+
+    /**
+     * Gets the key identifying a specific codec in the results. H.264 is
+     * offered in more than one profile.
+     */
+    static String getCodecKey(VideoCodecInfo info) {
+        String profileLevelId
+            = info.params.get(VideoCodecInfo.H264_FMTP_PROFILE_LEVEL_ID);
+
+        return (profileLevelId == null)
+            ? info.name
+            : info.name + "/" + profileLevelId;
+    }
+
+    /**
+     * Loads the persisted results if they were obtained on the current build
+     * of the device.
+     *
+     * @return the results or {@code null} if there are none for the current
+     * build
+     */
+    @Nullable
+    static Results load(SharedPreferences preferences) {
+        String json = preferences.getString(PREFERENCES_KEY, null);
+
+        if (json == null) {
+            return null;
+        }
+        try {
+            Results results = Results.fromJSON(new JSONObject(json));
+            return Build.FINGERPRINT.equals(results.fingerprint) ? results : null;
+        } catch (JSONException e) {
+            Log.w(TAG, "Failed to load the codec benchmark", e);
+            return null;
+        }
+    }
+
+    /**
+     * Benchmarks each codec supported by a specific factory of hardware
+     * encoders and persists the results. Blocks for a few seconds per codec
+     * and must not be invoked on a thread which delivers encoder output.
+     */
+    static Results run(VideoEncoderFactory factory, SharedPreferences preferences) {
+        List<Result> list = new ArrayList<>();
+
+        for (VideoCodecInfo info : factory.getSupportedCodecs()) {
+            VideoEncoder encoder = factory.createEncoder(info);
+            if (encoder == null) {
+                continue;
+            }
+            Result result = run(getCodecKey(info), encoder);
+            list.add(result);
+            Log.d(TAG, "Codec benchmark: " + result);
+        }
+
+        Results results
+            = new Results(Build.FINGERPRINT, System.currentTimeMillis(), list);
+        try {
+            preferences.edit()
+                .putString(PREFERENCES_KEY, results.toJSON().toString())
+                .apply();
+        } catch (JSONException e) {
+            Log.w(TAG, "Failed to persist the codec benchmark", e);
+        }
+        return results;
+    }
+
+    private static Result run(String codec, VideoEncoder encoder) {
+        Result result = new Result(codec);
+        Map<Long, Long> submissionTimesNs = new ConcurrentHashMap<>();
+        List<Long> encodeTimesNs = Collections.synchronizedList(new ArrayList<>());
+        long[] bytes = new long[1];
+        CountDownLatch done = new CountDownLatch(1);
+        VideoEncoder.Callback callback = (EncodedImage image, VideoEncoder.CodecSpecificInfo info) -> {
+            long nowNs = System.nanoTime();
+            Long submissionTimeNs = submissionTimesNs.remove(image.captureTimeNs);
+            if (submissionTimeNs != null) {
+                encodeTimesNs.add(nowNs - submissionTimeNs);
+            }
+            synchronized (bytes) {
+                bytes[0] += image.buffer.remaining();
+            }
+            if (encodeTimesNs.size() >= FRAME_COUNT) {
+                done.countDown();
+            }
+        };
+
+        VideoEncoder.Settings settings
+            = new VideoEncoder.Settings(
+                /* numberOfCores */ 1,
+                WIDTH,
+                HEIGHT,
+                TARGET_BITRATE_KBPS,
+                FRAME_RATE,
+                /* numberOfSimulcastStreams */ 1,
+                /* automaticResizeOn */ false,
+                new VideoEncoder.Capabilities(/* lossNotification */ false));
+        VideoCodecStatus status;
+
+        try {
+            status = encoder.initEncode(settings, callback);
+        } catch (RuntimeException e) {
+            Log.w(TAG, "Codec benchmark: failed to initialize " + codec, e);
+            status = VideoCodecStatus.ERROR;
+        }
+        result.implementationName = encoder.getImplementationName();
+        if (status != VideoCodecStatus.OK) {
+            return result;
+        }
+        result.initialized = true;
+
+        long frameIntervalNs = TimeUnit.SECONDS.toNanos(1) / FRAME_RATE;
+        long startNs = System.nanoTime();
+
+        for (int i = 0; i < FRAME_COUNT; i++) {
+            long timestampNs = startNs + i * frameIntervalNs;
+            long delayMs = TimeUnit.NANOSECONDS.toMillis(timestampNs - System.nanoTime());
+            if (delayMs > 0) {
+                SystemClock.sleep(delayMs);
+            }
+
+            VideoFrame frame = new VideoFrame(createFrameBuffer(i), 0, timestampNs);
+            VideoEncoder.EncodeInfo encodeInfo
+                = new VideoEncoder.EncodeInfo(
+                    new EncodedImage.FrameType[] {
+                        (i == 0)
+                            ? EncodedImage.FrameType.VideoFrameKey
+                            : EncodedImage.FrameType.VideoFrameDelta
+                    });
+
+            submissionTimesNs.put(timestampNs, System.nanoTime());
+            if (encoder.encode(frame, encodeInfo) == VideoCodecStatus.OK) {
+                result.framesSubmitted++;
+            } else {
+                submissionTimesNs.remove(timestampNs);
+            }
+            frame.release();
+        }
+
+        try {
+            // Wait for the frames still in the encoder pipeline.
+            done.await(1, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        long durationNs = System.nanoTime() - startNs;
+        encoder.release();
+
+        synchronized (encodeTimesNs) {
+            long totalNs = 0;
+            for (long encodeTimeNs : encodeTimesNs) {
+                totalNs += encodeTimeNs;
+                result.maxEncodeMs
+                    = Math.max(result.maxEncodeMs, encodeTimeNs / 1e6);
+            }
+            result.framesEncoded = encodeTimesNs.size();
+            if (result.framesEncoded > 0) {
+                result.averageEncodeMs = totalNs / 1e6 / result.framesEncoded;
+            }
+        }
+        synchronized (bytes) {
+            result.bitrateBps
+                = (long) (bytes[0] * 8 / (durationNs / 1e9));
+        }
+        return result;
+    }
+
+    /**
+     * Creates a frame of a synthetic sequence: a diagonal gradient moving at
+     * every frame so that the encoders cannot skip the content.
+     */
+    private static VideoFrame.Buffer createFrameBuffer(int index) {
+        JavaI420Buffer buffer = JavaI420Buffer.allocate(WIDTH, HEIGHT);
+        ByteBuffer y = buffer.getDataY();
+        int strideY = buffer.getStrideY();
+
+        for (int row = 0; row < HEIGHT; row++) {
+            for (int col = 0; col < WIDTH; col++) {
+                y.put(row * strideY + col, (byte) (row + col + 4 * index));
+            }
+        }
+
+        ByteBuffer u = buffer.getDataU();
+        ByteBuffer v = buffer.getDataV();
+        int chromaSize = buffer.getStrideU() * ((HEIGHT + 1) / 2);
+        for (int i = 0; i < chromaSize; i++) {
+            u.put(i, (byte) (128 + index));
+            v.put(i, (byte) (128 - index));
+        }
+        return buffer;
+    }
+
+    /**
+     * The measurements of a hardware encoder of a codec.
+     */
+    static class Result {
+        double averageEncodeMs;
+        long bitrateBps;
+        final String codec;
+        int framesEncoded;
+        int framesSubmitted;
+        @Nullable
+        String implementationName;
+        boolean initialized;
+        double maxEncodeMs;
+
+        Result(String codec) {
+            this.codec = codec;
+        }
+
+        /**
+         * Determines whether the hardware encoder is fit for real-time use:
+         * it initializes, outputs nearly all frames, keeps its latency within
+         * a few frame intervals and roughly follows the target bitrate.
+         */
+        boolean isUsable() {
+            return initialized
+                && framesSubmitted >= FRAME_COUNT * 9 / 10
+                && framesEncoded >= framesSubmitted * 9 / 10
+                && averageEncodeMs <= 3 * 1000.0 / FRAME_RATE
+                && bitrateBps <= 2 * TARGET_BITRATE_KBPS * 1000L;
+        }
+
+        JSONObject toJSON() throws JSONException {
+            JSONObject json = new JSONObject();
+
+            json.put("codec", codec);
+            json.put("implementationName", implementationName);
+            json.put("initialized", initialized);
+            json.put("framesSubmitted", framesSubmitted);
+            json.put("framesEncoded", framesEncoded);
+            json.put("averageEncodeMs", averageEncodeMs);
+            json.put("maxEncodeMs", maxEncodeMs);
+            json.put("bitrateBps", bitrateBps);
+            return json;
+        }
+
+        static Result fromJSON(JSONObject json) throws JSONException {
+            Result result = new Result(json.getString("codec"));
+
+            result.implementationName = json.optString("implementationName", null);
+            result.initialized = json.getBoolean("initialized");
+            result.framesSubmitted = json.getInt("framesSubmitted");
+            result.framesEncoded = json.getInt("framesEncoded");
+            result.averageEncodeMs = json.getDouble("averageEncodeMs");
+            result.maxEncodeMs = json.getDouble("maxEncodeMs");
+            result.bitrateBps = json.getLong("bitrateBps");
+            return result;
+        }
+
+        WritableMap toMap() {
+            WritableMap map = Arguments.createMap();
+
+            map.putString("codec", codec);
+            map.putString("implementationName", implementationName);
+            map.putBoolean("initialized", initialized);
+            map.putInt("framesSubmitted", framesSubmitted);
+            map.putInt("framesEncoded", framesEncoded);
+            map.putDouble("averageEncodeMs", averageEncodeMs);
+            map.putDouble("maxEncodeMs", maxEncodeMs);
+            map.putDouble("bitrateBps", bitrateBps);
+            map.putBoolean("usable", isUsable());
+            return map;
+        }
+
+        @Override
+        public String toString() {
+            return codec + " (" + implementationName + "): usable " + isUsable()
+                + ", " + framesEncoded + "/" + framesSubmitted + " frames, "
+                + averageEncodeMs + " ms average, " + maxEncodeMs + " ms max, "
+                + bitrateBps + " bps";
+        }
+    }
+
+    /**
+     * The results of a run on a specific build of the device.
+     */
+    static class Results {
+        final String fingerprint;
+        private final Map<String, Result> results = new HashMap<>();
+        final long timeMs;
+
+        Results(String fingerprint, long timeMs, List<Result> results) {
+            this.fingerprint = fingerprint;
+            this.timeMs = timeMs;
+            for (Result result : results) {
+                this.results.put(result.codec, result);
+            }
+        }
+
+        /**
+         * Gets the result of a specific codec.
+         *
+         * @return the result or {@code null} if the codec was not benchmarked
+         */
+        @Nullable
+        Result get(VideoCodecInfo info) {
+            return results.get(getCodecKey(info));
+        }
+
+        /**
+         * Determines whether the hardware encoder of a specific codec is to be
+         * used. Codecs which were not benchmarked are given the benefit of the
+         * doubt.
+         */
+        boolean isHardwareUsable(VideoCodecInfo info) {
+            Result result = get(info);
+            return result == null || result.isUsable();
+        }
+
+        JSONObject toJSON() throws JSONException {
+            JSONObject json = new JSONObject();
+            JSONArray array = new JSONArray();
+
+            json.put("fingerprint", fingerprint);
+            json.put("time", timeMs);
+            for (Result result : results.values()) {
+                array.put(result.toJSON());
+            }
+            json.put("results", array);
+            return json;
+        }
+
+        static Results fromJSON(JSONObject json) throws JSONException {
+            JSONArray array = json.getJSONArray("results");
+            List<Result> results = new ArrayList<>(array.length());
+
+            for (int i = 0; i < array.length(); i++) {
+                results.add(Result.fromJSON(array.getJSONObject(i)));
+            }
+            return new Results(json.getString("fingerprint"), json.getLong("time"), results);
+        }
+
+        WritableMap toMap() {
+            WritableMap map = Arguments.createMap();
+            WritableArray array = Arguments.createArray();
+
+            map.putString("fingerprint", fingerprint);
+            map.putDouble("time", timeMs);
+            for (Result result : results.values()) {
+                array.pushMap(result.toMap());
+            }
+            map.putArray("results", array);
+            return map;
+        }
+    }
+}
@@ -0,0 +1,126 @@
+package com.oney.WebRTCModule;
+
+import androidx.annotation.Nullable;
+
+import com.facebook.react.bridge.Arguments;
+import com.facebook.react.bridge.WritableArray;
+import com.facebook.react.bridge.WritableMap;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+import org.webrtc.VideoCodecInfo;
+
+/**
+ * The video codecs (with their profiles) which the encoder and decoder
+ * factories of {@link WebRTCModule} support and whether each is
+ * hardware-accelerated. Querying the factories enumerates the
+ * {@code MediaCodec}s of the device so they are collected once and the
+ * immutable result is cached.
+ */
+class CodecCapabilities {
+    private final List<Codec> decoders;
+
+    private final List<Codec> encoders;
+
+    /**
+     * @param hardwareEncoders the codecs of {@code encoders} which are encoded
+     * in hardware or {@code null} if that is not known (e.g. for an encoder
+     * factory provided by the application)
+     * @param hardwareDecoders the codecs of {@code decoders} which are decoded
+     * in hardware or {@code null} if that is not known
+     */
+    CodecCapabilities(
+            VideoCodecInfo[] encoders,
+            @Nullable VideoCodecInfo[] hardwareEncoders,
+            VideoCodecInfo[] decoders,
+            @Nullable VideoCodecInfo[] hardwareDecoders) {
+        this.encoders = toCodecs(encoders, hardwareEncoders);
+        this.decoders = toCodecs(decoders, hardwareDecoders);
+    }
+
+    private static List<Codec> toCodecs(
+            VideoCodecInfo[] infos,
+            @Nullable VideoCodecInfo[] hardwareInfos) {
+        Set<VideoCodecInfo> hardware
+            = (hardwareInfos == null)
+                ? null
+                : new HashSet<>(Arrays.asList(hardwareInfos));
+        List<Codec> codecs = new ArrayList<>(infos.length);
+
+        for (VideoCodecInfo info : infos) {
+            codecs.add(
+                new Codec(
+                    info,
+                    (hardware == null) ? null : hardware.contains(info)));
+        }
+        return Collections.unmodifiableList(codecs);
+    }
+
+    private static WritableArray toArray(List<Codec> codecs) {
+        WritableArray array = Arguments.createArray();
+
+        for (Codec codec : codecs) {
+            array.pushMap(codec.toMap());
+        }
+        return array;
+    }
+
+    /**
+     * Describes the capabilities for JS: {@code encoders} and
+     * {@code decoders}, each an array of codecs with {@code mimeType},
+     * {@code sdpFmtpLine} and, if known, {@code hardware}.
+     */
+    WritableMap toMap() {
+        WritableMap map = Arguments.createMap();
+
+        map.putArray("encoders", toArray(encoders));
+        map.putArray("decoders", toArray(decoders));
+        return map;
+    }
+
+    private static class Codec {
+        @Nullable
+        final Boolean hardware;
+
+        final String name;
+
+        /**
+         * The fmtp parameters of the codec sorted by name.
+         */
+        final Map<String, String> params;
+
+        Codec(VideoCodecInfo info, @Nullable Boolean hardware) {
+            this.name = info.name;
+            this.params = new TreeMap<>(info.params);
+            this.hardware = hardware;
+        }
+
+        WritableMap toMap() {
+            WritableMap map = Arguments.createMap();
+
+            map.putString("mimeType", "video/" + name);
+            map.putInt("clockRate", 90000);
+            if (!params.isEmpty()) {
+                StringBuilder sdpFmtpLine = new StringBuilder();
+                for (Map.Entry<String, String> e : params.entrySet()) {
+                    if (sdpFmtpLine.length() != 0) {
+                        sdpFmtpLine.append(';');
+                    }
+                    sdpFmtpLine.append(e.getKey()).append('=').append(e.getValue());
+                }
+                map.putString("sdpFmtpLine", sdpFmtpLine.toString());
+            }
+            if (hardware != null) {
+                map.putBoolean("hardware", hardware);
+            }
+            return map;
+        }
+    }
+}
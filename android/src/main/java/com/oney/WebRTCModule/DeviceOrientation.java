@@ -0,0 +1,91 @@
+package com.oney.WebRTCModule;
+
+import android.content.Context;
+import android.hardware.display.DisplayManager;
+import android.os.Build;
+import android.os.Handler;
+import android.os.Looper;
+import android.util.Log;
+import android.view.Display;
+
+/**
+ * Tracks the rotation of the default display in degrees so that the camera
+ * sessions, which need it for every captured frame, read a volatile field
+ * instead of looking up the {@code WindowManager} and querying the display on
+ * the camera thread. The rotation is updated by a
+ * {@link DisplayManager.DisplayListener} on the main thread, which (unlike a
+ * configuration change) also reports rotations by 180 degrees. Before API
+ * level 17, which introduced {@code DisplayManager}, every read still queries
+ * the display.
+ */
+final class DeviceOrientation {
+    /**
+     * The {@link Log} tag with which {@code DeviceOrientation} is to log.
+     */
+    private static final String TAG = WebRTCModule.TAG;
+
+    /**
+     * The rotation of the default display in degrees or -1 until
+     * {@link #start(Context)}.
+     */
+    private static volatile int orientation = -1;
+
+    private DeviceOrientation() {
+    }
+
+    /**
+     * Gets the rotation of the default display in degrees (0, 90, 180 or
+     * 270). Starts tracking it on the first call. May be invoked on any
+     * thread.
+     */
+    static int get(Context context) {
+        int orientation = DeviceOrientation.orientation;
+
+        return (orientation == -1) ? start(context) : orientation;
+    }
+
+    private static synchronized int start(Context context) {
+        if (orientation != -1) {
+            return orientation;
+        }
+        if (Build.VERSION.SDK_INT < Build.VERSION_CODES.JELLY_BEAN_MR1) {
+            return CameraSession.getDeviceOrientation(context);
+        }
+
+        Context applicationContext = context.getApplicationContext();
+        if (applicationContext == null) {
+            applicationContext = context;
+        }
+        final Context appContext = applicationContext;
+        final DisplayManager displayManager
+            = (DisplayManager) appContext.getSystemService(Context.DISPLAY_SERVICE);
+
+        if (displayManager == null) {
+            // Without a listener the rotation would go stale, so keep asking.
+            Log.w(TAG, "DeviceOrientation cannot track the display rotation");
+            return CameraSession.getDeviceOrientation(appContext);
+        }
+
+        displayManager.registerDisplayListener(
+            new DisplayManager.DisplayListener() {
+                @Override
+                public void onDisplayAdded(int displayId) {
+                }
+
+                @Override
+                public void onDisplayChanged(int displayId) {
+                    if (displayId == Display.DEFAULT_DISPLAY) {
+                        orientation = CameraSession.getDeviceOrientation(appContext);
+                    }
+                }
+
+                @Override
+                public void onDisplayRemoved(int displayId) {
+                }
+            },
+            new Handler(Looper.getMainLooper()));
+        // Queried after the listener is registered so no change is missed.
+        orientation = CameraSession.getDeviceOrientation(appContext);
+        return orientation;
+    }
+}
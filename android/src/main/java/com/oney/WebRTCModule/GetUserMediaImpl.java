@@ -8,6 +8,8 @@ import android.util.DisplayMetrics;
 import android.util.Log;
 import android.view.WindowManager;
 
+import androidx.annotation.Nullable;
+
 import com.facebook.react.bridge.Arguments;
 import com.facebook.react.bridge.BaseActivityEventListener;
 import com.facebook.react.bridge.Callback;
@@ -52,25 +54,33 @@ class GetUserMediaImpl {
     private Promise displayMediaPromise;
     private Intent mediaProjectionPermissionResultData;
 
-    GetUserMediaImpl(WebRTCModule webRTCModule, ReactApplicationContext reactContext) {
+    /**
+     * @param enableCamera2 whether cameras are captured with the Camera2 API
+     * (through {@link MyCamera2Enumerator}) on devices which support it
+     * rather than with the legacy Camera API
+     */
+    GetUserMediaImpl(
+            WebRTCModule webRTCModule,
+            ReactApplicationContext reactContext,
+            boolean enableCamera2) {
         this.webRTCModule = webRTCModule;
         this.reactContext = reactContext;
 
         boolean camera2supported = false;
 
-        //MINE
-        //TODO Support for CAM 2 API
-        /*try {
-            camera2supported = Camera2Enumerator.isSupported(reactContext);
-        } catch (Throwable tr) {
-            // Some devices will crash here with: Fatal Exception: java.lang.AssertionError: Supported FPS ranges cannot be null.
-            // Make sure we don't.
-            Log.w(TAG, "Error checking for Camera2 API support.", tr);
-        }*/
+        if (enableCamera2) {
+            try {
+                camera2supported = MyCamera2Enumerator.isSupported(reactContext);
+            } catch (Throwable tr) {
+                // Some devices will crash here with: Fatal Exception: java.lang.AssertionError: Supported FPS ranges cannot be null.
+                // Make sure we don't.
+                Log.w(TAG, "Error checking for Camera2 API support.", tr);
+            }
+        }
 
         if (camera2supported) {
             Log.d(TAG, "Creating video capturer using Camera2 API.");
-            cameraEnumerator = new Camera2Enumerator(reactContext);
+            cameraEnumerator = new MyCamera2Enumerator(reactContext);
         } else {
             Log.d(TAG, "Creating video capturer using Camera1 API.");
             cameraEnumerator = new Camera1Enumerator(false);
@@ -106,6 +116,7 @@ class GetUserMediaImpl {
         tracks.put(
             id,
             new TrackPrivate(track, audioSource, /* videoCapturer */ null));
+        webRTCModule.mediaRegistry.putTrack(track, MediaRegistry.LOCAL);
 
         return track;
     }
@@ -217,10 +228,74 @@ class GetUserMediaImpl {
     void disposeTrack(String id) {
         TrackPrivate track = tracks.remove(id);
         if (track != null) {
+            webRTCModule.mediaRegistry.removeTrack(id, MediaRegistry.LOCAL);
             track.dispose();
         }
     }
 
+    /**
+     * Scales the frames of a specific local video track down from its capture
+     * format without restarting the capturer.
+     *
+     * @param scale the factor (at least 1) by which the width and the height
+     * are divided
+     * @param fps the maximum framerate or 0 to keep the captured framerate
+     * @return {@code false} if there is no such local video track
+     */
+    boolean scaleCaptureFormat(String trackId, double scale, int fps) {
+        TrackPrivate track = tracks.get(trackId);
+        if (track == null || track.videoCaptureController == null) {
+            return false;
+        }
+
+        AbstractVideoCaptureController controller = track.videoCaptureController;
+        ((VideoSource) track.mediaSource).adaptOutputFormat(
+            (int) (controller.getWidth() / scale),
+            (int) (controller.getHeight() / scale),
+            (fps > 0) ? Math.min(fps, controller.getFps()) : controller.getFps());
+        return true;
+    }
+
+    /**
+     * Gets the stats of the capture buffers of a specific local video track.
+     *
+     * @return the stats or {@code null} if there is no such camera track or
+     * its camera session does not capture into buffers of its own
+     */
+    @Nullable
+    WritableMap getCaptureStats(String trackId) {
+        TrackPrivate track = tracks.get(trackId);
+        if (track != null && track.videoCaptureController instanceof CameraCaptureController) {
+            return ((CameraCaptureController) track.videoCaptureController).getCaptureStats();
+        }
+        return null;
+    }
+
+    /**
+     * Enables or disables keeping the camera which a switch of a specific
+     * local video track would select open without streaming.
+     */
+    void setCameraStandby(String trackId, boolean enabled) {
+        TrackPrivate track = tracks.get(trackId);
+        if (track != null && track.videoCaptureController instanceof CameraCaptureController) {
+            ((CameraCaptureController) track.videoCaptureController).setStandbyEnabled(enabled);
+        }
+    }
+
+    /**
+     * Gets the stats of the camera switches of a specific local video track.
+     *
+     * @return the stats or {@code null} if there is no such camera track
+     */
+    @Nullable
+    WritableMap getCameraSwitchStats(String trackId) {
+        TrackPrivate track = tracks.get(trackId);
+        if (track != null && track.videoCaptureController instanceof CameraCaptureController) {
+            return ((CameraCaptureController) track.videoCaptureController).getSwitchStats();
+        }
+        return null;
+    }
+
     void switchCamera(String trackId) {
         TrackPrivate track = tracks.get(trackId);
         if (track != null && track.videoCaptureController instanceof CameraCaptureController) {
@@ -298,6 +373,8 @@ class GetUserMediaImpl {
 
         Log.d(TAG, "MediaStream id: " + streamId);
         webRTCModule.localStreams.put(streamId, mediaStream);
+        webRTCModule.mediaRegistry.putStream(
+            streamId, mediaStream, MediaRegistry.LOCAL);
 
         successCallback.accept(streamId, tracksInfo);
     }
@@ -339,6 +416,7 @@ class GetUserMediaImpl {
 
         track.setEnabled(true);
         tracks.put(id, new TrackPrivate(track, videoSource, videoCaptureController));
+        webRTCModule.mediaRegistry.putTrack(track, MediaRegistry.LOCAL);
 
         videoCaptureController.startCapture();
 
@@ -0,0 +1,237 @@
+package com.oney.WebRTCModule;
+
+import android.util.Log;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A timer which keeps its timeouts in a hashed wheel of buckets (one bucket
+ * per tick, the deadline of a timeout selects its bucket) and runs them on a
+ * single daemon thread. Scheduling and cancelling are O(1) so that a large
+ * number of short-lived timeouts (e.g. one per remote video track, rearmed
+ * over and over) is cheap, and the thread only wakes up for ticks which have
+ * timeouts due; it sleeps indefinitely while no timeouts are scheduled.
+ *
+ * Timeouts fire no earlier than their delay and up to one tick later.
+ */
+class HashedWheelTimer {
+    /**
+     * The {@link Log} tag with which {@code HashedWheelTimer} is to log.
+     */
+    private static final String TAG = WebRTCModule.TAG;
+
+    private final Timeout[] wheel;
+
+    private final int mask;
+
+    private final String name;
+
+    /**
+     * The number of scheduled timeouts.
+     */
+    private int pending;
+
+    /**
+     * The last tick whose bucket has been processed.
+     */
+    private long processedTick;
+
+    private final long startTimeNs = System.nanoTime();
+
+    private final long tickNs;
+
+    private Thread worker;
+
+    /**
+     * Initializes a new {@code HashedWheelTimer} instance.
+     *
+     * @param name the name of the thread of the new instance
+     * @param tickMs the duration of a tick i.e. the precision of the timeouts
+     * @param ticksPerWheel the number of buckets, rounded up to a power of 2
+     */
+    HashedWheelTimer(String name, long tickMs, int ticksPerWheel) {
+        int size = 1;
+        while (size < ticksPerWheel) {
+            size <<= 1;
+        }
+
+        this.name = name;
+        this.tickNs = TimeUnit.MILLISECONDS.toNanos(tickMs);
+        wheel = new Timeout[size];
+        mask = size - 1;
+    }
+
+    /**
+     * Schedules a specific {@code Runnable} to be run on the thread of this
+     * timer after a specific delay.
+     *
+     * @return a {@code Timeout} which can cancel the run
+     */
+    synchronized Timeout schedule(Runnable task, long delayMs) {
+        long deadlineTick
+            = (System.nanoTime() - startTimeNs
+                    + TimeUnit.MILLISECONDS.toNanos(Math.max(0, delayMs))
+                    + tickNs - 1)
+                / tickNs;
+        Timeout timeout
+            = new Timeout(task, Math.max(deadlineTick, processedTick + 1));
+
+        if (pending == 0) {
+            // The wheel was empty so the worker has not kept processedTick up
+            // to date; no bucket needs to be visited until now.
+            processedTick = Math.max(processedTick, getCurrentTick());
+            timeout.deadlineTick = Math.max(timeout.deadlineTick, processedTick + 1);
+        }
+        link(timeout);
+        pending++;
+
+        if (worker == null) {
+            worker = new Thread(this::run, name);
+            worker.setDaemon(true);
+            worker.start();
+        } else {
+            notify();
+        }
+
+        return timeout;
+    }
+
+    private long getCurrentTick() {
+        return (System.nanoTime() - startTimeNs) / tickNs;
+    }
+
+    private void link(Timeout timeout) {
+        int index = (int) (timeout.deadlineTick & mask);
+        Timeout head = wheel[index];
+
+        timeout.next = head;
+        if (head != null) {
+            head.prev = timeout;
+        }
+        wheel[index] = timeout;
+    }
+
+    private void unlink(Timeout timeout) {
+        if (timeout.prev != null) {
+            timeout.prev.next = timeout.next;
+        } else {
+            wheel[(int) (timeout.deadlineTick & mask)] = timeout.next;
+        }
+        if (timeout.next != null) {
+            timeout.next.prev = timeout.prev;
+        }
+        timeout.prev = timeout.next = null;
+        pending--;
+    }
+
+    private synchronized void cancel(Timeout timeout) {
+        if (!timeout.expired && !timeout.cancelled) {
+            timeout.cancelled = true;
+            unlink(timeout);
+        }
+    }
+
+    private void run() {
+        List<Timeout> expired = new ArrayList<>();
+
+        while (true) {
+            synchronized (this) {
+                try {
+                    awaitNextTick();
+                } catch (InterruptedException e) {
+                    Log.w(TAG, name + " interrupted", e);
+                    return;
+                }
+                long currentTick = getCurrentTick();
+                while (processedTick < currentTick) {
+                    expire(++processedTick, expired);
+                }
+            }
+
+            for (int i = 0, size = expired.size(); i < size; i++) {
+                try {
+                    expired.get(i).task.run();
+                } catch (Throwable t) {
+                    Log.e(TAG, name + " task failed", t);
+                }
+            }
+            expired.clear();
+        }
+    }
+
+    /**
+     * Waits until a tick which has timeouts due. Invoked with the monitor of
+     * this instance held.
+     */
+    private void awaitNextTick() throws InterruptedException {
+        while (true) {
+            if (pending == 0) {
+                wait();
+                continue;
+            }
+
+            long nextTick = findNextTick();
+            long delayNs = nextTick * tickNs - (System.nanoTime() - startTimeNs);
+            if (delayNs <= 0) {
+                return;
+            }
+            long delayMs = TimeUnit.NANOSECONDS.toMillis(delayNs);
+            wait(delayMs, (int) (delayNs - TimeUnit.MILLISECONDS.toNanos(delayMs)));
+        }
+    }
+
+    /**
+     * Finds the earliest tick which has a timeout due within the next turn of
+     * the wheel or the tick one turn ahead if there is none.
+     */
+    private long findNextTick() {
+        for (long tick = processedTick + 1, end = tick + wheel.length; tick < end; tick++) {
+            for (Timeout t = wheel[(int) (tick & mask)]; t != null; t = t.next) {
+                if (t.deadlineTick <= tick) {
+                    return tick;
+                }
+            }
+        }
+        return processedTick + wheel.length;
+    }
+
+    private void expire(long tick, List<Timeout> expired) {
+        Timeout t = wheel[(int) (tick & mask)];
+
+        while (t != null) {
+            Timeout next = t.next;
+            if (t.deadlineTick <= tick) {
+                unlink(t);
+                t.expired = true;
+                expired.add(t);
+            }
+            t = next;
+        }
+    }
+
+    /**
+     * A run of a task scheduled on a {@code HashedWheelTimer}.
+     */
+    class Timeout {
+        boolean cancelled;
+        long deadlineTick;
+        boolean expired;
+        Timeout next;
+        Timeout prev;
+        final Runnable task;
+
+        Timeout(Runnable task, long deadlineTick) {
+            this.task = task;
+            this.deadlineTick = deadlineTick;
+        }
+
+        /**
+         * Cancels the run of the task if it has not started yet.
+         */
+        void cancel() {
+            HashedWheelTimer.this.cancel(this);
+        }
+    }
+}
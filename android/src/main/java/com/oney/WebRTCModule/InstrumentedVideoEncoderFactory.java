@@ -0,0 +1,334 @@
+package com.oney.WebRTCModule;
+
+import android.os.SystemClock;
+import android.util.Log;
+
+import androidx.annotation.Nullable;
+
+import com.facebook.react.bridge.Arguments;
+import com.facebook.react.bridge.WritableArray;
+import com.facebook.react.bridge.WritableMap;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.LinkedHashSet;
+import java.util.List;
+
+import org.webrtc.SoftwareVideoEncoderFactory;
+import org.webrtc.VideoCodecInfo;
+import org.webrtc.VideoCodecStatus;
+import org.webrtc.VideoEncoder;
+import org.webrtc.VideoEncoderFactory;
+import org.webrtc.VideoEncoderFallback;
+import org.webrtc.VideoFrame;
+
+/**
+ * A {@code VideoEncoderFactory} which, like {@code DefaultVideoEncoderFactory},
+ * prefers a hardware encoder and falls back to a software one, and records
+ * which implementation each encoder used, how long the hardware encoder took
+ * to initialize and when it fell back to software.
+ *
+ * Only the hardware encoders are instrumented: the software encoders are
+ * native and cannot be wrapped in Java without losing their native fast path.
+ */
+class InstrumentedVideoEncoderFactory implements VideoEncoderFactory {
+    /**
+     * The {@link Log} tag with which {@code InstrumentedVideoEncoderFactory} is
+     * to log.
+     */
+    private static final String TAG = WebRTCModule.TAG;
+
+    /**
+     * The maximum number of the latest encoders of which records are kept.
+     */
+    private static final int MAX_RECORDS = 32;
+
+    /**
+     * The persisted results of {@link CodecBenchmark} for this device, if
+     * any.
+     */
+    @Nullable
+    private final CodecBenchmark.Results benchmark;
+
+    private long encodersCreated;
+
+    private long fallbacks;
+
+    @Nullable
+    private final VideoEncoderFactory hardwareFactory;
+
+    /**
+     * The records of the latest encoders, oldest first. Guarded by
+     * {@code this}.
+     */
+    private final Deque<Record> records = new ArrayDeque<>();
+
+    private final VideoEncoderFactory softwareFactory
+        = new SoftwareVideoEncoderFactory();
+
+    /**
+     * @param hardwareFactory the factory of the hardware encoders or
+     * {@code null} to only use software encoders
+     * @param benchmark the results of {@link CodecBenchmark} which determine
+     * the hardware encoders to skip and the preference order of the codecs or
+     * {@code null} to use all hardware encoders in their default order
+     */
+    InstrumentedVideoEncoderFactory(
+            @Nullable VideoEncoderFactory hardwareFactory,
+            @Nullable CodecBenchmark.Results benchmark) {
+        this.hardwareFactory = hardwareFactory;
+        this.benchmark = benchmark;
+    }
+
+    private boolean isHardwareUsable(VideoCodecInfo info) {
+        return benchmark == null || benchmark.isHardwareUsable(info);
+    }
+
+    @Nullable
+    @Override
+    public VideoEncoder createEncoder(VideoCodecInfo info) {
+        VideoEncoder software = softwareFactory.createEncoder(info);
+        VideoEncoder hardware
+            = (hardwareFactory == null || !isHardwareUsable(info))
+                ? null
+                : hardwareFactory.createEncoder(info);
+
+        if (hardware == null && software == null) {
+            return null;
+        }
+
+        Record record
+            = new Record(info.name, (hardware == null) ? "software" : "hardware");
+        synchronized (this) {
+            encodersCreated++;
+            records.addLast(record);
+            if (records.size() > MAX_RECORDS) {
+                records.removeFirst();
+            }
+        }
+
+        if (hardware == null) {
+            return software;
+        }
+
+        VideoEncoder instrumented = new InstrumentedVideoEncoder(hardware, record);
+        return (software == null)
+            ? instrumented
+            : new VideoEncoderFallback(software, instrumented);
+    }
+
+    @Override
+    public VideoCodecInfo[] getSupportedCodecs() {
+        LinkedHashSet<VideoCodecInfo> codecs = new LinkedHashSet<>(
+            Arrays.asList(softwareFactory.getSupportedCodecs()));
+
+        if (hardwareFactory != null) {
+            // A codec only the hardware of which supports is dropped if the
+            // hardware encoder is not to be used.
+            for (VideoCodecInfo info : hardwareFactory.getSupportedCodecs()) {
+                if (isHardwareUsable(info)) {
+                    codecs.add(info);
+                }
+            }
+        }
+
+        List<VideoCodecInfo> list = new ArrayList<>(codecs);
+        if (benchmark != null && hardwareFactory != null) {
+            // The codecs with the fastest hardware encoders come first, the
+            // rest keep their order.
+            Collections.sort(list, (a, b) ->
+                Double.compare(getAverageEncodeMs(a), getAverageEncodeMs(b)));
+        }
+        return list.toArray(new VideoCodecInfo[list.size()]);
+    }
+
+    /**
+     * Gets the supported codecs which are encoded in hardware (unless the
+     * hardware encoder fails at run time).
+     */
+    VideoCodecInfo[] getHardwareCodecs() {
+        if (hardwareFactory == null) {
+            return new VideoCodecInfo[0];
+        }
+
+        List<VideoCodecInfo> list = new ArrayList<>();
+        for (VideoCodecInfo info : hardwareFactory.getSupportedCodecs()) {
+            if (isHardwareUsable(info)) {
+                list.add(info);
+            }
+        }
+        return list.toArray(new VideoCodecInfo[list.size()]);
+    }
+
+    private double getAverageEncodeMs(VideoCodecInfo info) {
+        CodecBenchmark.Result result = benchmark.get(info);
+        return (result != null && result.isUsable())
+            ? result.averageEncodeMs
+            : Double.POSITIVE_INFINITY;
+    }
+
+    /**
+     * Describes the encoders created so far and the records of the latest
+     * ones for JS.
+     */
+    synchronized WritableMap getStats() {
+        WritableMap map = Arguments.createMap();
+        WritableArray encoders = Arguments.createArray();
+
+        map.putBoolean("hardwareEnabled", hardwareFactory != null);
+        map.putBoolean("benchmarked", benchmark != null);
+        map.putDouble("encodersCreated", encodersCreated);
+        map.putDouble("fallbacks", fallbacks);
+        for (Record record : records) {
+            encoders.pushMap(record.toMap());
+        }
+        map.putArray("encoders", encoders);
+        return map;
+    }
+
+    private synchronized void onFallback(Record record, String reason) {
+        fallbacks++;
+        record.fallbackReason = reason;
+        record.fallbackTimeMs = System.currentTimeMillis();
+        Log.w(TAG, "Hardware " + record.codec + " encoder ("
+            + record.implementationName + ") fell back to software: " + reason);
+    }
+
+    /**
+     * What is known about an encoder created by the factory. Guarded by the
+     * factory.
+     */
+    private static class Record {
+        final String codec;
+
+        final long creationTimeMs = System.currentTimeMillis();
+
+        @Nullable
+        String fallbackReason;
+
+        long fallbackTimeMs;
+
+        int height;
+
+        /**
+         * {@code "hardware"} or {@code "software"} as chosen at creation time.
+         * A fallback is recorded in {@link #fallbackReason}.
+         */
+        final String implementation;
+
+        @Nullable
+        String implementationName;
+
+        long initTimeMs = -1;
+
+        int width;
+
+        Record(String codec, String implementation) {
+            this.codec = codec;
+            this.implementation = implementation;
+        }
+
+        WritableMap toMap() {
+            WritableMap map = Arguments.createMap();
+
+            map.putString("codec", codec);
+            map.putString(
+                "implementation",
+                (fallbackReason == null) ? implementation : "software");
+            map.putString("implementationName", implementationName);
+            map.putDouble("creationTime", creationTimeMs);
+            if (initTimeMs >= 0) {
+                map.putDouble("initTimeMs", initTimeMs);
+                map.putInt("width", width);
+                map.putInt("height", height);
+            }
+            if (fallbackReason != null) {
+                map.putString("fallbackReason", fallbackReason);
+                map.putDouble("fallbackTime", fallbackTimeMs);
+            }
+            return map;
+        }
+    }
+
+    /**
+     * Times the initialization of a hardware encoder and detects its
+     * fallbacks to software. Invoked on the encoder thread.
+     */
+    private class InstrumentedVideoEncoder implements VideoEncoder {
+        private final VideoEncoder delegate;
+
+        private boolean fellBack;
+
+        private final Record record;
+
+        InstrumentedVideoEncoder(VideoEncoder delegate, Record record) {
+            this.delegate = delegate;
+            this.record = record;
+        }
+
+        @Override
+        public VideoCodecStatus encode(VideoFrame frame, EncodeInfo info) {
+            VideoCodecStatus status = delegate.encode(frame, info);
+
+            if (status == VideoCodecStatus.FALLBACK_SOFTWARE && !fellBack) {
+                fellBack = true;
+                onFallback(record, "encode");
+            }
+            return status;
+        }
+
+        @Override
+        public String getImplementationName() {
+            return delegate.getImplementationName();
+        }
+
+        @Override
+        public ResolutionBitrateLimits[] getResolutionBitrateLimits() {
+            return delegate.getResolutionBitrateLimits();
+        }
+
+        @Override
+        public ScalingSettings getScalingSettings() {
+            return delegate.getScalingSettings();
+        }
+
+        @Override
+        public VideoCodecStatus initEncode(Settings settings, Callback callback) {
+            long startMs = SystemClock.elapsedRealtime();
+            VideoCodecStatus status = delegate.initEncode(settings, callback);
+            long initTimeMs = SystemClock.elapsedRealtime() - startMs;
+
+            synchronized (InstrumentedVideoEncoderFactory.this) {
+                record.implementationName = delegate.getImplementationName();
+                record.initTimeMs = initTimeMs;
+                record.width = settings.width;
+                record.height = settings.height;
+            }
+            if (status != VideoCodecStatus.OK && !fellBack) {
+                fellBack = true;
+                onFallback(record, "initEncode: " + status);
+            }
+            return status;
+        }
+
+        @Override
+        public boolean isHardwareEncoder() {
+            return delegate.isHardwareEncoder();
+        }
+
+        @Override
+        public VideoCodecStatus release() {
+            return delegate.release();
+        }
+
+        @Override
+        public VideoCodecStatus setRateAllocation(
+                BitrateAllocation allocation,
+                int framerate) {
+            return delegate.setRateAllocation(allocation, framerate);
+        }
+    }
+}
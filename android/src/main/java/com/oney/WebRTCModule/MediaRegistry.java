@@ -0,0 +1,175 @@
+package com.oney.WebRTCModule;
+
+import androidx.annotation.Nullable;
+
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.webrtc.MediaStream;
+import org.webrtc.MediaStreamTrack;
+
+/**
+ * Maps the IDs of all (local and remote) {@code MediaStreamTrack}s and the
+ * react tags of all {@code MediaStream}s to the objects and their owners, the
+ * {@code PeerConnection} ID for remote ones or {@link #LOCAL}, so that they
+ * are found in O(1) instead of by scanning every
+ * {@code PeerConnectionObserver}.
+ *
+ * Reads are lock-free and safe on any thread (e.g. the UI thread of
+ * {@code WebRTCView}); writes are serialized. Since a remote track may be
+ * received by more than one {@code PeerConnection} with the same ID (e.g. in a
+ * mesh), an ID maps to all of its registrations and lookups return the
+ * earliest one still registered.
+ */
+class MediaRegistry {
+    /**
+     * The owner of local {@code MediaStream}s and {@code MediaStreamTrack}s.
+     */
+    static final int LOCAL = -1;
+
+    private final Index<MediaStream> streams = new Index<>();
+
+    private final Index<MediaStreamTrack> tracks = new Index<>();
+
+    @Nullable
+    MediaStream getStream(String streamReactTag) {
+        return streams.get(streamReactTag);
+    }
+
+    @Nullable
+    MediaStreamTrack getTrack(String trackId) {
+        return tracks.get(trackId);
+    }
+
+    /**
+     * Gets the owner of a specific {@code MediaStreamTrack}.
+     *
+     * @return the ID of the {@code PeerConnection} which received the track,
+     * {@link #LOCAL} for a local track or {@code null} if the track is unknown
+     */
+    @Nullable
+    Integer getTrackOwner(String trackId) {
+        Entry<MediaStreamTrack> entry = tracks.getEntry(trackId);
+        return (entry == null) ? null : entry.ownerId;
+    }
+
+    void putStream(String streamReactTag, MediaStream stream, int ownerId) {
+        streams.put(streamReactTag, stream, ownerId);
+    }
+
+    void putTrack(MediaStreamTrack track, int ownerId) {
+        tracks.put(track.id(), track, ownerId);
+    }
+
+    void removeStream(String streamReactTag, int ownerId) {
+        streams.remove(streamReactTag, ownerId);
+    }
+
+    void removeTrack(String trackId, int ownerId) {
+        tracks.remove(trackId, ownerId);
+    }
+
+    /**
+     * Removes all registrations of a specific owner e.g. when a
+     * {@code PeerConnection} is closed.
+     */
+    void removeOwner(int ownerId) {
+        streams.removeOwner(ownerId);
+        tracks.removeOwner(ownerId);
+    }
+
+    private static class Entry<T> {
+        /**
+         * The next registration of the same key or {@code null}.
+         */
+        final Entry<T> next;
+        final T object;
+        final int ownerId;
+
+        Entry(T object, int ownerId, Entry<T> next) {
+            this.object = object;
+            this.ownerId = ownerId;
+            this.next = next;
+        }
+    }
+
+    /**
+     * Maps keys to immutable chains of registrations which are replaced as a
+     * whole on every write.
+     */
+    private static class Index<T> {
+        private final Map<String, Entry<T>> map = new ConcurrentHashMap<>();
+
+        @Nullable
+        T get(String key) {
+            Entry<T> entry = getEntry(key);
+            return (entry == null) ? null : entry.object;
+        }
+
+        @Nullable
+        Entry<T> getEntry(String key) {
+            return (key == null) ? null : map.get(key);
+        }
+
+        synchronized void put(String key, T object, int ownerId) {
+            Entry<T> head = without(map.get(key), ownerId);
+            map.put(key, append(head, new Entry<>(object, ownerId, null)));
+        }
+
+        synchronized void remove(String key, int ownerId) {
+            Entry<T> head = map.get(key);
+            if (head == null) {
+                return;
+            }
+
+            Entry<T> newHead = without(head, ownerId);
+            if (newHead == null) {
+                map.remove(key);
+            } else if (newHead != head) {
+                map.put(key, newHead);
+            }
+        }
+
+        synchronized void removeOwner(int ownerId) {
+            for (Iterator<Map.Entry<String, Entry<T>>> i
+                        = map.entrySet().iterator();
+                    i.hasNext();) {
+                Map.Entry<String, Entry<T>> e = i.next();
+                Entry<T> newHead = without(e.getValue(), ownerId);
+                if (newHead == null) {
+                    i.remove();
+                } else if (newHead != e.getValue()) {
+                    e.setValue(newHead);
+                }
+            }
+        }
+
+        /**
+         * Copies a chain of registrations with a specific one added last.
+         */
+        private static <T> Entry<T> append(Entry<T> head, Entry<T> last) {
+            return (head == null)
+                ? last
+                : new Entry<>(head.object, head.ownerId, append(head.next, last));
+        }
+
+        /**
+         * Copies a chain of registrations without the one of a specific owner.
+         * Returns the chain itself if it has no such registration.
+         */
+        private static <T> Entry<T> without(Entry<T> head, int ownerId) {
+            if (head == null) {
+                return null;
+            }
+            if (head.ownerId == ownerId) {
+                return head.next;
+            }
+
+            Entry<T> next = without(head.next, ownerId);
+            return (next == head.next)
+                ? head
+                : new Entry<>(head.object, head.ownerId, next);
+        }
+    }
+}
@@ -0,0 +1,180 @@
+package com.oney.WebRTCModule;
+
+import android.annotation.TargetApi;
+import android.content.Context;
+import android.hardware.camera2.CameraAccessException;
+import android.hardware.camera2.CameraManager;
+import android.os.Build;
+import android.util.Base64;
+import android.util.Log;
+import androidx.annotation.Nullable;
+
+import com.facebook.react.bridge.Callback;
+import com.facebook.react.bridge.ReadableMap;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import org.webrtc.SurfaceTextureHelper;
+
+/**
+ * The Camera2 counterpart of {@link MyCameraCapturer} with the same zoom,
+ * torch and picture API. Still pictures are captured by the running
+ * {@link MyCamera2Session} so the session is not restarted for them.
+ */
+@TargetApi(21)
+public class MyCamera2Capturer extends CameraCapturer {
+    static final String TAG = WebRTCModule.TAG;
+
+    /**
+     * Decodes, scales and writes the pictures to disk off the camera thread so
+     * that saving a picture does not stall the preview.
+     */
+    private static final ExecutorService pictureExecutor
+        = Executors.newSingleThreadExecutor(r -> {
+            Thread thread = new Thread(r, "MyCamera2Capturer");
+            thread.setDaemon(true);
+            return thread;
+        });
+
+    private final Context context;
+    private final CameraManager cameraManager;
+
+    public MyCamera2Capturer(Context context, String cameraName, CameraEventsHandler eventsHandler,
+                             MyCamera2Enumerator cameraEnumerator) {
+        super(cameraName, eventsHandler, cameraEnumerator);
+        this.context = context;
+        this.cameraManager = (CameraManager) context.getSystemService(Context.CAMERA_SERVICE);
+    }
+
+    @Override
+    protected void createCameraSession(CameraSession.CreateSessionCallback createSessionCallback,
+                                       CameraSession.Events events, Context applicationContext,
+                                       SurfaceTextureHelper surfaceTextureHelper, String cameraName,
+                                       int width, int height, int framerate,
+                                       @Nullable StandbyCamera standbyCamera) {
+        MyCamera2Session.create(createSessionCallback, events, applicationContext, cameraManager,
+                surfaceTextureHelper, cameraName, width, height, framerate,
+                (MyCamera2Session.Standby) standbyCamera);
+    }
+
+    /**
+     * Only cameras which the device lists as concurrently streamable (API 30+)
+     * are kept on standby: otherwise opening the standby camera may evict the
+     * streaming one.
+     */
+    @Override
+    protected boolean isStandbySupported(String cameraName, String standbyCameraName) {
+        if (Build.VERSION.SDK_INT < Build.VERSION_CODES.R) {
+            return false;
+        }
+        try {
+            for (Set<String> cameraIds : cameraManager.getConcurrentCameraIds()) {
+                if (cameraIds.contains(cameraName) && cameraIds.contains(standbyCameraName)) {
+                    return true;
+                }
+            }
+        } catch (CameraAccessException e) {
+            Log.w(TAG, "Failed to get the concurrent cameras", e);
+        }
+        return false;
+    }
+
+    @Override
+    protected void openStandbyCamera(String cameraName, StandbyCallback callback) {
+        MyCamera2Session.Standby.open(cameraManager, cameraName, callback);
+    }
+
+    private MyCamera2Session getSession() {
+        synchronized (stateLock) {
+            if (currentSession == null) {
+                throw new IllegalStateException("The camera is not running");
+            }
+            return (MyCamera2Session) currentSession;
+        }
+    }
+
+    @Override
+    public void switchFlash(boolean enable) {
+        getSession().switchFlash(enable);
+    }
+
+    @Override
+    public boolean isZoomSupported() {
+        return getSession().isZoomSupported();
+    }
+
+    /**
+     * Sets current zoom value.
+     *
+     * @param value zoom value. The valid range is 0 to {@link #getMaxZoom}.
+     **/
+    @Override
+    public void setZoom(int value) {
+        getSession().setZoom(value);
+    }
+
+    public int getZoom() {
+        return getSession().getZoom();
+    }
+
+    /**
+     * Gets the maximum zoom value, i.e. the maximum digital zoom ratio of the
+     * camera in 1/100 increments above 1x.
+     */
+    @Override
+    public int getMaxZoom() {
+        return getSession().getMaxZoom();
+    }
+
+    public List<Integer> getZoomRatios() {
+        return getSession().getZoomRatios();
+    }
+
+    @Override
+    public void takePicture(final ReadableMap options, final Callback successCallback, final Callback errorCallback, int zoomValue, boolean flashEnabled) {
+        final String streamId = options.getString("streamId");
+        final int captureTarget = options.getInt("captureTarget");
+        final double maxJpegQuality = options.getDouble("maxJpegQuality");
+        final int maxSize = options.getInt("maxSize");
+
+        MyCamera2Session session;
+        try {
+            session = getSession();
+        } catch (IllegalStateException e) {
+            errorCallback.invoke(e.getMessage());
+            return;
+        }
+
+        // The zoom and the torch of the session apply to the picture already.
+        session.takePicture(new MyCamera2Session.PictureCallback() {
+            @Override
+            public void onPictureTaken(byte[] jpeg) {
+                if (captureTarget == MyCameraCapturer.RCT_CAMERA_CAPTURE_TARGET_MEMORY) {
+                    successCallback.invoke(Base64.encodeToString(jpeg, Base64.DEFAULT));
+                    return;
+                }
+                pictureExecutor.execute(() -> {
+                    try {
+                        // The JPEG is rotated by the camera already.
+                        String path = MyCameraCapturer.savePicture(
+                                jpeg, captureTarget, maxJpegQuality, maxSize, /* orientation */ 0);
+                        successCallback.invoke(path);
+                    } catch (IOException e) {
+                        String message = "Error saving picture";
+                        Log.d(TAG, message + " for stream id " + streamId, e);
+                        errorCallback.invoke(message);
+                    }
+                });
+            }
+
+            @Override
+            public void onFailure(String error) {
+                Log.d(TAG, "Error taking picture for stream id " + streamId + ": " + error);
+                errorCallback.invoke(error);
+            }
+        });
+    }
+}
@@ -0,0 +1,56 @@
+package com.oney.WebRTCModule;
+
+import android.annotation.TargetApi;
+import android.content.Context;
+
+import java.util.List;
+import org.webrtc.Camera2Enumerator;
+import org.webrtc.CameraEnumerationAndroid.CaptureFormat;
+import org.webrtc.CameraEnumerator;
+import org.webrtc.CameraVideoCapturer;
+
+
+//This is the Enumerator for MyCamera2Capturer e MyCamera2Session for the Cam 2 API
+
+@TargetApi(21)
+public class MyCamera2Enumerator implements CameraEnumerator {
+    private final Context context;
+    private final Camera2Enumerator enumerator;
+
+    public MyCamera2Enumerator(Context context) {
+        this.context = context;
+        this.enumerator = new Camera2Enumerator(context);
+    }
+
+    /**
+     * Checks if API is supported and all cameras have better than legacy support.
+     */
+    public static boolean isSupported(Context context) {
+        return Camera2Enumerator.isSupported(context);
+    }
+
+    @Override
+    public String[] getDeviceNames() {
+        return enumerator.getDeviceNames();
+    }
+
+    @Override
+    public boolean isFrontFacing(String deviceName) {
+        return enumerator.isFrontFacing(deviceName);
+    }
+
+    @Override
+    public boolean isBackFacing(String deviceName) {
+        return enumerator.isBackFacing(deviceName);
+    }
+
+    @Override
+    public List<CaptureFormat> getSupportedFormats(String deviceName) {
+        return enumerator.getSupportedFormats(deviceName);
+    }
+
+    @Override
+    public MyCamera2Capturer createCapturer(String deviceName, CameraVideoCapturer.CameraEventsHandler eventsHandler) {
+        return new MyCamera2Capturer(context, deviceName, eventsHandler, this);
+    }
+}
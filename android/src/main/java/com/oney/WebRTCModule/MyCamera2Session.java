@@ -0,0 +1,730 @@
+/*
+ *  Copyright 2016 The WebRTC project authors. All Rights Reserved.
+ *
+ *  Use of this source code is governed by a BSD-style license
+ *  that can be found in the LICENSE file in the root of the source
+ *  tree. An additional intellectual property rights grant can be found
+ *  in the file PATENTS.  All contributing project authors may
+ *  be found in the AUTHORS file in the root of the source tree.
+ */
+package com.oney.WebRTCModule;
+
+import android.annotation.TargetApi;
+import android.content.Context;
+import android.graphics.ImageFormat;
+import android.graphics.Rect;
+import android.graphics.SurfaceTexture;
+import android.hardware.camera2.CameraAccessException;
+import android.hardware.camera2.CameraCaptureSession;
+import android.hardware.camera2.CameraCharacteristics;
+import android.hardware.camera2.CameraDevice;
+import android.hardware.camera2.CameraManager;
+import android.hardware.camera2.CameraMetadata;
+import android.hardware.camera2.CaptureFailure;
+import android.hardware.camera2.CaptureRequest;
+import android.hardware.camera2.params.StreamConfigurationMap;
+import android.media.Image;
+import android.media.ImageReader;
+import android.os.Handler;
+import android.util.Log;
+import android.util.Range;
+import android.view.Surface;
+import androidx.annotation.Nullable;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.webrtc.CameraEnumerationAndroid;
+import org.webrtc.CameraEnumerationAndroid.CaptureFormat;
+import org.webrtc.Size;
+import org.webrtc.SurfaceTextureHelper;
+import org.webrtc.TextureBufferImpl;
+import org.webrtc.VideoFrame;
+
+/**
+ * The Camera2 counterpart of {@link MyCameraSession}: frames are captured to
+ * the texture of the {@link SurfaceTextureHelper} instead of NV21 byte
+ * buffers. Zoom is applied through {@code SCALER_CROP_REGION} and the torch
+ * through {@code FLASH_MODE} on the repeating request, and still pictures are
+ * captured to an {@link ImageReader} which is part of the capture session so
+ * that taking a picture does not interrupt the preview.
+ */
+@TargetApi(21)
+class MyCamera2Session implements CameraSession {
+    private static final String TAG = "MyCamera2Session";
+
+    /**
+     * The number of JPEG images which may be acquired from
+     * {@link #imageReader} at the same time.
+     */
+    private static final int MAX_STILL_IMAGES = 2;
+
+    private static enum SessionState { RUNNING, STOPPED }
+
+    private final Handler cameraThreadHandler;
+    private final CreateSessionCallback callback;
+    private final Events events;
+    private final Context applicationContext;
+    private final CameraManager cameraManager;
+    private final SurfaceTextureHelper surfaceTextureHelper;
+    private final String cameraId;
+    private final int width;
+    private final int height;
+    private final int framerate;
+    // The device opened for this session ahead of it, if any, until taken over.
+    @Nullable private Standby standby;
+
+    // Initialized at start
+    // Read by switchFlash() on the thread which calls it.
+    private volatile CameraCharacteristics cameraCharacteristics;
+    private int cameraOrientation;
+    private boolean isCameraFrontFacing;
+    private int fpsUnitFactor;
+    private CaptureFormat captureFormat;
+    private Size pictureSize;
+    // Written on the camera thread as the camera opens and read on the threads
+    // which query and set the zoom.
+    private volatile Rect activeArraySize;
+    private volatile float maxDigitalZoom;
+
+    // Initialized when camera opens
+    private CameraDevice cameraDevice;
+    private Surface surface;
+    private ImageReader imageReader;
+
+    // Initialized when capture session is created
+    private CameraCaptureSession captureSession;
+    private CaptureRequest.Builder previewRequestBuilder;
+
+    // State
+    private SessionState state = SessionState.RUNNING;
+    private boolean firstFrameReported;
+    private int zoom; /* only accessed on the camera thread */
+    private boolean torchEnabled; /* only accessed on the camera thread */
+
+    // Used only for stats. Only used on the camera thread.
+    private final long constructionTimeNs; // Construction time of this class.
+
+    public static void create(CreateSessionCallback callback, Events events,
+                              Context applicationContext, CameraManager cameraManager,
+                              SurfaceTextureHelper surfaceTextureHelper, String cameraId, int width, int height,
+                              int framerate, @Nullable Standby standby) {
+        new MyCamera2Session(callback, events, applicationContext, cameraManager, surfaceTextureHelper,
+                cameraId, width, height, framerate, standby);
+    }
+
+    private MyCamera2Session(CreateSessionCallback callback, Events events, Context applicationContext,
+                             CameraManager cameraManager, SurfaceTextureHelper surfaceTextureHelper, String cameraId,
+                             int width, int height, int framerate, @Nullable Standby standby) {
+        Log.d(TAG, "Create new MyCamera2Session on camera " + cameraId);
+        constructionTimeNs = System.nanoTime();
+        this.cameraThreadHandler = new Handler();
+        this.callback = callback;
+        this.events = events;
+        this.applicationContext = applicationContext;
+        this.cameraManager = cameraManager;
+        this.surfaceTextureHelper = surfaceTextureHelper;
+        this.cameraId = cameraId;
+        this.width = width;
+        this.height = height;
+        this.framerate = framerate;
+        this.standby = standby;
+        start();
+    }
+
+    private void start() {
+        checkIsOnCameraThread();
+        Log.d(TAG, "start");
+        try {
+            cameraCharacteristics = cameraManager.getCameraCharacteristics(cameraId);
+        } catch (CameraAccessException | IllegalArgumentException e) {
+            reportError("getCameraCharacteristics(): " + e.getMessage());
+            return;
+        }
+        cameraOrientation = cameraCharacteristics.get(CameraCharacteristics.SENSOR_ORIENTATION);
+        isCameraFrontFacing = cameraCharacteristics.get(CameraCharacteristics.LENS_FACING)
+                == CameraCharacteristics.LENS_FACING_FRONT;
+        activeArraySize = cameraCharacteristics.get(CameraCharacteristics.SENSOR_INFO_ACTIVE_ARRAY_SIZE);
+        Float maxZoom = cameraCharacteristics.get(CameraCharacteristics.SCALER_AVAILABLE_MAX_DIGITAL_ZOOM);
+        maxDigitalZoom = (maxZoom == null) ? 1 : maxZoom;
+        findCaptureFormat();
+        if (captureFormat == null) {
+            // findCaptureFormat reports an error already.
+            return;
+        }
+        openCamera();
+    }
+
+    private void findCaptureFormat() {
+        checkIsOnCameraThread();
+        Range<Integer>[] fpsRanges =
+                cameraCharacteristics.get(CameraCharacteristics.CONTROL_AE_AVAILABLE_TARGET_FPS_RANGES);
+        StreamConfigurationMap streamMap =
+                cameraCharacteristics.get(CameraCharacteristics.SCALER_STREAM_CONFIGURATION_MAP);
+        if (fpsRanges == null || fpsRanges.length == 0 || streamMap == null) {
+            reportError("No supported capture formats.");
+            return;
+        }
+        // Some devices report the frame rates in units of 1/1000 fps.
+        fpsUnitFactor = (getMaxFps(fpsRanges) < 1000) ? 1000 : 1;
+        List<CaptureFormat.FramerateRange> framerateRanges = new ArrayList<>();
+        for (Range<Integer> range : fpsRanges) {
+            framerateRanges.add(new CaptureFormat.FramerateRange(
+                    range.getLower() * fpsUnitFactor, range.getUpper() * fpsUnitFactor));
+        }
+        List<Size> sizes = convertSizes(streamMap.getOutputSizes(SurfaceTexture.class));
+        List<Size> pictureSizes = convertSizes(streamMap.getOutputSizes(ImageFormat.JPEG));
+        Log.d(TAG, "Available preview sizes: " + sizes);
+        Log.d(TAG, "Available fps ranges: " + framerateRanges);
+        if (framerateRanges.isEmpty() || sizes.isEmpty()) {
+            reportError("No supported capture formats.");
+            return;
+        }
+        final CaptureFormat.FramerateRange bestFpsRange =
+                CameraEnumerationAndroid.getClosestSupportedFramerateRange(framerateRanges, framerate);
+        final Size bestSize = CameraEnumerationAndroid.getClosestSupportedSize(sizes, width, height);
+        captureFormat = new CaptureFormat(bestSize.width, bestSize.height, bestFpsRange);
+        pictureSize = pictureSizes.isEmpty()
+                ? bestSize
+                : CameraEnumerationAndroid.getClosestSupportedSize(pictureSizes, width, height);
+        Log.d(TAG, "Using capture format: " + captureFormat + ", picture size: " + pictureSize);
+    }
+
+    private static int getMaxFps(Range<Integer>[] fpsRanges) {
+        int maxFps = 0;
+        for (Range<Integer> range : fpsRanges) {
+            maxFps = Math.max(maxFps, range.getUpper());
+        }
+        return maxFps;
+    }
+
+    private static List<Size> convertSizes(android.util.Size[] cameraSizes) {
+        List<Size> sizes = new ArrayList<>();
+        if (cameraSizes != null) {
+            for (android.util.Size size : cameraSizes) {
+                sizes.add(new Size(size.getWidth(), size.getHeight()));
+            }
+        }
+        return sizes;
+    }
+
+    private void openCamera() {
+        checkIsOnCameraThread();
+        Log.d(TAG, "Opening camera " + cameraId);
+        events.onCameraOpening();
+        if (standby != null) {
+            CameraStateCallback stateCallback = new CameraStateCallback();
+            CameraDevice device = standby.takeOver(stateCallback);
+            standby = null;
+            if (device != null) {
+                Log.d(TAG, "Taking over the standby camera " + cameraId);
+                stateCallback.onOpened(device);
+                return;
+            }
+        }
+        try {
+            cameraManager.openCamera(cameraId, new CameraStateCallback(), cameraThreadHandler);
+        } catch (CameraAccessException | IllegalArgumentException | SecurityException e) {
+            reportError("Failed to open camera: " + e);
+        }
+    }
+
+    @Override
+    public void stop() {
+        Log.d(TAG, "Stop MyCamera2Session on camera " + cameraId);
+        checkIsOnCameraThread();
+        if (state != SessionState.STOPPED) {
+            state = SessionState.STOPPED;
+            stopInternal();
+        }
+    }
+
+    private void stopInternal() {
+        Log.d(TAG, "Stop internal");
+        checkIsOnCameraThread();
+        surfaceTextureHelper.stopListening();
+        if (captureSession != null) {
+            captureSession.close();
+            captureSession = null;
+        }
+        if (surface != null) {
+            surface.release();
+            surface = null;
+        }
+        if (imageReader != null) {
+            imageReader.close();
+            imageReader = null;
+        }
+        if (cameraDevice != null) {
+            cameraDevice.close();
+            cameraDevice = null;
+        }
+        Log.d(TAG, "Stop done");
+    }
+
+    private void reportError(String error) {
+        checkIsOnCameraThread();
+        Log.e(TAG, "Error: " + error);
+        final boolean startFailure = (captureSession == null) && (state != SessionState.STOPPED);
+        state = SessionState.STOPPED;
+        stopInternal();
+        if (startFailure) {
+            callback.onFailure(FailureType.ERROR, error);
+        } else {
+            events.onCameraError(this, error);
+        }
+    }
+
+    private int getFrameOrientation() {
+        int rotation = DeviceOrientation.get(applicationContext);
+        if (!isCameraFrontFacing) {
+            rotation = 360 - rotation;
+        }
+        return (cameraOrientation + rotation) % 360;
+    }
+
+    private void checkIsOnCameraThread() {
+        if (Thread.currentThread() != cameraThreadHandler.getLooper().getThread()) {
+            throw new IllegalStateException("Wrong thread");
+        }
+    }
+
+    private class CameraStateCallback extends CameraDevice.StateCallback {
+        private String getErrorDescription(int errorCode) {
+            switch (errorCode) {
+                case CameraDevice.StateCallback.ERROR_CAMERA_DEVICE:
+                    return "Camera device has encountered a fatal error.";
+                case CameraDevice.StateCallback.ERROR_CAMERA_DISABLED:
+                    return "Camera device could not be opened due to a device policy.";
+                case CameraDevice.StateCallback.ERROR_CAMERA_IN_USE:
+                    return "Camera device is in use already.";
+                case CameraDevice.StateCallback.ERROR_CAMERA_SERVICE:
+                    return "Camera service has encountered a fatal error.";
+                case CameraDevice.StateCallback.ERROR_MAX_CAMERAS_IN_USE:
+                    return "Camera device could not be opened because"
+                            + " there are too many other open camera devices.";
+                default:
+                    return "Unknown camera error: " + errorCode;
+            }
+        }
+
+        @Override
+        public void onDisconnected(CameraDevice camera) {
+            checkIsOnCameraThread();
+            final boolean startFailure = (captureSession == null) && (state != SessionState.STOPPED);
+            state = SessionState.STOPPED;
+            stopInternal();
+            if (startFailure) {
+                callback.onFailure(FailureType.DISCONNECTED, "Camera disconnected / evicted.");
+            } else {
+                events.onCameraDisconnected(MyCamera2Session.this);
+            }
+        }
+
+        @Override
+        public void onError(CameraDevice camera, int errorCode) {
+            checkIsOnCameraThread();
+            reportError(getErrorDescription(errorCode));
+        }
+
+        @Override
+        public void onOpened(CameraDevice camera) {
+            checkIsOnCameraThread();
+            Log.d(TAG, "Camera opened.");
+            cameraDevice = camera;
+            surfaceTextureHelper.setTextureSize(captureFormat.width, captureFormat.height);
+            surface = new Surface(surfaceTextureHelper.getSurfaceTexture());
+            imageReader = ImageReader.newInstance(
+                    pictureSize.width, pictureSize.height, ImageFormat.JPEG, MAX_STILL_IMAGES);
+            try {
+                camera.createCaptureSession(
+                        Arrays.asList(surface, imageReader.getSurface()),
+                        new CaptureSessionCallback(),
+                        cameraThreadHandler);
+            } catch (CameraAccessException e) {
+                reportError("Failed to create capture session. " + e);
+            }
+        }
+
+        @Override
+        public void onClosed(CameraDevice camera) {
+            checkIsOnCameraThread();
+            Log.d(TAG, "Camera device closed.");
+            events.onCameraClosed(MyCamera2Session.this);
+        }
+    }
+
+    private class CaptureSessionCallback extends CameraCaptureSession.StateCallback {
+        @Override
+        public void onConfigureFailed(CameraCaptureSession session) {
+            checkIsOnCameraThread();
+            session.close();
+            reportError("Failed to configure capture session.");
+        }
+
+        @Override
+        public void onConfigured(CameraCaptureSession session) {
+            checkIsOnCameraThread();
+            Log.d(TAG, "Camera capture session configured.");
+            captureSession = session;
+            try {
+                // TEMPLATE_RECORD favors a stable frame rate over picture
+                // quality, as a call wants.
+                previewRequestBuilder = cameraDevice.createCaptureRequest(CameraDevice.TEMPLATE_RECORD);
+                previewRequestBuilder.set(CaptureRequest.CONTROL_AE_TARGET_FPS_RANGE,
+                        new Range<Integer>(captureFormat.framerate.min / fpsUnitFactor,
+                                captureFormat.framerate.max / fpsUnitFactor));
+                previewRequestBuilder.set(CaptureRequest.CONTROL_AE_MODE, CameraMetadata.CONTROL_AE_MODE_ON);
+                previewRequestBuilder.set(CaptureRequest.CONTROL_AE_LOCK, false);
+                chooseStabilizationMode(previewRequestBuilder);
+                chooseFocusMode(previewRequestBuilder);
+                previewRequestBuilder.addTarget(surface);
+                session.setRepeatingRequest(
+                        previewRequestBuilder.build(), new CameraCaptureCallback(), cameraThreadHandler);
+            } catch (CameraAccessException e) {
+                reportError("Failed to start capture request. " + e);
+                return;
+            }
+
+            surfaceTextureHelper.startListening((VideoFrame frame) -> {
+                checkIsOnCameraThread();
+                if (state != SessionState.RUNNING) {
+                    Log.d(TAG, "Texture frame captured but camera is no longer running.");
+                    return;
+                }
+                if (!firstFrameReported) {
+                    firstFrameReported = true;
+                    final int startTimeMs =
+                            (int) TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - constructionTimeNs);
+                    Log.d(TAG, "First frame after " + startTimeMs + " ms");
+                }
+                // Undo the mirror that the OS "helps" us with.
+                // http://developer.android.com/reference/android/hardware/Camera.html#setDisplayOrientation(int)
+                // Also, undo camera orientation, we report it as rotation instead.
+                final VideoFrame modifiedFrame = new VideoFrame(
+                        CameraSession.createTextureBufferWithModifiedTransformMatrix(
+                                (TextureBufferImpl) frame.getBuffer(),
+                                /* mirror= */ isCameraFrontFacing,
+                                /* rotation= */ -cameraOrientation),
+                        /* rotation= */ getFrameOrientation(), frame.getTimestampNs());
+                events.onFrameCaptured(MyCamera2Session.this, modifiedFrame);
+                modifiedFrame.release();
+            });
+            Log.d(TAG, "Camera device successfully started.");
+            callback.onDone(MyCamera2Session.this);
+        }
+
+        // Prefers optical stabilization over software stabilization if available. Only enables one of
+        // the stabilization modes at a time because having both enabled can cause strange results.
+        private void chooseStabilizationMode(CaptureRequest.Builder captureRequestBuilder) {
+            final int[] availableOpticalStabilization = cameraCharacteristics.get(
+                    CameraCharacteristics.LENS_INFO_AVAILABLE_OPTICAL_STABILIZATION);
+            if (availableOpticalStabilization != null) {
+                for (int mode : availableOpticalStabilization) {
+                    if (mode == CameraMetadata.LENS_OPTICAL_STABILIZATION_MODE_ON) {
+                        captureRequestBuilder.set(CaptureRequest.LENS_OPTICAL_STABILIZATION_MODE,
+                                CameraMetadata.LENS_OPTICAL_STABILIZATION_MODE_ON);
+                        captureRequestBuilder.set(CaptureRequest.CONTROL_VIDEO_STABILIZATION_MODE,
+                                CameraMetadata.CONTROL_VIDEO_STABILIZATION_MODE_OFF);
+                        Log.d(TAG, "Using optical stabilization.");
+                        return;
+                    }
+                }
+            }
+            // If no optical mode is available, try software.
+            final int[] availableVideoStabilization = cameraCharacteristics.get(
+                    CameraCharacteristics.CONTROL_AVAILABLE_VIDEO_STABILIZATION_MODES);
+            if (availableVideoStabilization != null) {
+                for (int mode : availableVideoStabilization) {
+                    if (mode == CameraMetadata.CONTROL_VIDEO_STABILIZATION_MODE_ON) {
+                        captureRequestBuilder.set(CaptureRequest.CONTROL_VIDEO_STABILIZATION_MODE,
+                                CameraMetadata.CONTROL_VIDEO_STABILIZATION_MODE_ON);
+                        captureRequestBuilder.set(CaptureRequest.LENS_OPTICAL_STABILIZATION_MODE,
+                                CameraMetadata.LENS_OPTICAL_STABILIZATION_MODE_OFF);
+                        Log.d(TAG, "Using video stabilization.");
+                        return;
+                    }
+                }
+            }
+            Log.d(TAG, "Stabilization not available.");
+        }
+
+        private void chooseFocusMode(CaptureRequest.Builder captureRequestBuilder) {
+            final int[] availableFocusModes =
+                    cameraCharacteristics.get(CameraCharacteristics.CONTROL_AF_AVAILABLE_MODES);
+            if (availableFocusModes != null) {
+                for (int mode : availableFocusModes) {
+                    if (mode == CameraMetadata.CONTROL_AF_MODE_CONTINUOUS_VIDEO) {
+                        captureRequestBuilder.set(
+                                CaptureRequest.CONTROL_AF_MODE, CameraMetadata.CONTROL_AF_MODE_CONTINUOUS_VIDEO);
+                        Log.d(TAG, "Using continuous video auto-focus.");
+                        return;
+                    }
+                }
+            }
+            Log.d(TAG, "Auto-focus is not available.");
+        }
+    }
+
+    private static class CameraCaptureCallback extends CameraCaptureSession.CaptureCallback {
+        @Override
+        public void onCaptureFailed(
+                CameraCaptureSession session, CaptureRequest request, CaptureFailure failure) {
+            Log.d(TAG, "Capture failed: " + failure);
+        }
+    }
+
+    /**
+     * Updates the repeating request after a change of the zoom or the torch.
+     * Invoked on the camera thread.
+     */
+    private void updateRepeatingRequest() {
+        if (state != SessionState.RUNNING || captureSession == null) {
+            return;
+        }
+        try {
+            captureSession.setRepeatingRequest(
+                    previewRequestBuilder.build(), new CameraCaptureCallback(), cameraThreadHandler);
+        } catch (CameraAccessException | IllegalStateException e) {
+            Log.w(TAG, "Failed to update the capture request", e);
+        }
+    }
+
+    /**
+     * Gets the crop region of the sensor for a specific zoom value i.e. the
+     * centered part of the active array reduced by {@code 1 + value / 100}.
+     */
+    private Rect getCropRegion(int value) {
+        final float ratio = 1 + value / 100f;
+        final int cropWidth = (int) (activeArraySize.width() / ratio);
+        final int cropHeight = (int) (activeArraySize.height() / ratio);
+        final int left = activeArraySize.left + (activeArraySize.width() - cropWidth) / 2;
+        final int top = activeArraySize.top + (activeArraySize.height() - cropHeight) / 2;
+        return new Rect(left, top, left + cropWidth, top + cropHeight);
+    }
+
+
+
+    //MINE
+    void switchFlash(boolean isActive) {
+        final Boolean flashAvailable =
+                cameraCharacteristics.get(CameraCharacteristics.FLASH_INFO_AVAILABLE);
+        if (!Boolean.TRUE.equals(flashAvailable)) {
+            Log.e(TAG, "The camera does not have a FlashLight");
+            return;
+        }
+        cameraThreadHandler.post(() -> {
+            if (previewRequestBuilder == null) {
+                return;
+            }
+            torchEnabled = isActive;
+            previewRequestBuilder.set(CaptureRequest.FLASH_MODE,
+                    isActive ? CameraMetadata.FLASH_MODE_TORCH : CameraMetadata.FLASH_MODE_OFF);
+            updateRepeatingRequest();
+        });
+    }
+
+    boolean isZoomSupported() {
+        return activeArraySize != null && maxDigitalZoom > 1;
+    }
+
+    /**
+     * Sets the zoom as a value between 0 and {@link #getMaxZoom()}, i.e. the
+     * zoom ratio in 1/100 increments above 1x.
+     */
+    void setZoom(int value) {
+        if (!isZoomSupported()) {
+            return;
+        }
+        final int clampedValue = Math.max(0, Math.min(value, getMaxZoom()));
+        cameraThreadHandler.post(() -> {
+            if (previewRequestBuilder == null) {
+                return;
+            }
+            zoom = clampedValue;
+            previewRequestBuilder.set(CaptureRequest.SCALER_CROP_REGION, getCropRegion(clampedValue));
+            updateRepeatingRequest();
+        });
+    }
+
+    int getZoom() {
+        return zoom;
+    }
+
+    int getMaxZoom() {
+        return (int) ((maxDigitalZoom - 1) * 100);
+    }
+
+    List<Integer> getZoomRatios() {
+        final int maxZoom = getMaxZoom();
+        List<Integer> ratios = new ArrayList<>(maxZoom + 1);
+        for (int i = 0; i <= maxZoom; i++) {
+            ratios.add(100 + i);
+        }
+        return ratios;
+    }
+
+    /**
+     * Captures a still JPEG picture alongside the preview, which keeps
+     * running. The picture is oriented through {@code JPEG_ORIENTATION} and
+     * zoomed and lit like the preview.
+     */
+    void takePicture(PictureCallback pictureCallback) {
+        cameraThreadHandler.post(() -> {
+            if (state != SessionState.RUNNING || captureSession == null) {
+                pictureCallback.onFailure("The camera is not running");
+                return;
+            }
+            final ImageReader reader = imageReader;
+            reader.setOnImageAvailableListener(r -> {
+                byte[] jpeg;
+                try (Image image = r.acquireLatestImage()) {
+                    if (image == null) {
+                        return;
+                    }
+                    ByteBuffer buffer = image.getPlanes()[0].getBuffer();
+                    jpeg = new byte[buffer.remaining()];
+                    buffer.get(jpeg);
+                }
+                r.setOnImageAvailableListener(null, null);
+                pictureCallback.onPictureTaken(jpeg);
+            }, cameraThreadHandler);
+
+            try {
+                CaptureRequest.Builder builder =
+                        cameraDevice.createCaptureRequest(CameraDevice.TEMPLATE_STILL_CAPTURE);
+                builder.addTarget(reader.getSurface());
+                // Keep feeding the preview while the still is captured.
+                builder.addTarget(surface);
+                builder.set(CaptureRequest.JPEG_ORIENTATION, getFrameOrientation());
+                builder.set(CaptureRequest.CONTROL_AE_MODE, CameraMetadata.CONTROL_AE_MODE_ON);
+                if (zoom > 0) {
+                    builder.set(CaptureRequest.SCALER_CROP_REGION, getCropRegion(zoom));
+                }
+                if (torchEnabled) {
+                    builder.set(CaptureRequest.FLASH_MODE, CameraMetadata.FLASH_MODE_TORCH);
+                }
+                captureSession.capture(builder.build(), new CameraCaptureSession.CaptureCallback() {
+                    @Override
+                    public void onCaptureFailed(
+                            CameraCaptureSession session, CaptureRequest request, CaptureFailure failure) {
+                        reader.setOnImageAvailableListener(null, null);
+                        pictureCallback.onFailure("Still capture failed: " + failure.getReason());
+                    }
+                }, cameraThreadHandler);
+            } catch (CameraAccessException | IllegalStateException e) {
+                reader.setOnImageAvailableListener(null, null);
+                pictureCallback.onFailure("Still capture failed: " + e.getMessage());
+            }
+        });
+    }
+
+    /**
+     * Receives the result of {@link #takePicture} on the camera thread.
+     */
+    interface PictureCallback {
+        void onPictureTaken(byte[] jpeg);
+
+        void onFailure(String error);
+    }
+
+    /**
+     * A camera device opened ahead of a switch to it, without a capture
+     * session, so that the session switched to skips opening it. The state of
+     * the device is reported to the session once it takes the device over.
+     */
+    static class Standby extends CameraDevice.StateCallback implements CameraCapturer.StandbyCamera {
+        private final String cameraId;
+        private final CameraCapturer.StandbyCallback callback;
+
+        // Only accessed on the camera thread.
+        private boolean closed;
+        private CameraDevice device;
+        private CameraDevice.StateCallback owner;
+
+        /**
+         * Opens a specific camera as a standby. Invoked on the camera thread.
+         */
+        static void open(CameraManager cameraManager, String cameraId,
+                         CameraCapturer.StandbyCallback callback) {
+            try {
+                cameraManager.openCamera(cameraId, new Standby(cameraId, callback), new Handler());
+            } catch (CameraAccessException | IllegalArgumentException | SecurityException e) {
+                callback.onFailure("Failed to open camera: " + e);
+            }
+        }
+
+        private Standby(String cameraId, CameraCapturer.StandbyCallback callback) {
+            this.cameraId = cameraId;
+            this.callback = callback;
+        }
+
+        @Override
+        public String getCameraName() {
+            return cameraId;
+        }
+
+        @Override
+        public void close() {
+            closed = true;
+            if (owner == null && device != null) {
+                device.close();
+                device = null;
+            }
+        }
+
+        /**
+         * Hands the device over to a session.
+         *
+         * @return the device or {@code null} if it was lost or closed
+         */
+        @Nullable
+        CameraDevice takeOver(CameraDevice.StateCallback owner) {
+            if (closed || device == null) {
+                return null;
+            }
+            this.owner = owner;
+            return device;
+        }
+
+        @Override
+        public void onOpened(CameraDevice camera) {
+            if (closed) {
+                camera.close();
+                return;
+            }
+            device = camera;
+            callback.onOpened(this);
+        }
+
+        @Override
+        public void onDisconnected(CameraDevice camera) {
+            if (owner != null) {
+                owner.onDisconnected(camera);
+                return;
+            }
+            camera.close();
+            device = null;
+            callback.onFailure("Camera disconnected / evicted.");
+        }
+
+        @Override
+        public void onError(CameraDevice camera, int errorCode) {
+            if (owner != null) {
+                owner.onError(camera, errorCode);
+                return;
+            }
+            camera.close();
+            device = null;
+            callback.onFailure("Camera error: " + errorCode);
+        }
+
+        @Override
+        public void onClosed(CameraDevice camera) {
+            if (owner != null) {
+                owner.onClosed(camera);
+            }
+        }
+    }
+}
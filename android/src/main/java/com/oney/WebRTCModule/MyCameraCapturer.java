@@ -16,6 +16,8 @@ import java.util.List;
 
 import com.facebook.react.bridge.Callback;
 import com.facebook.react.bridge.ReadableMap;
+import com.facebook.react.bridge.WritableMap;
+import androidx.annotation.Nullable;
 
 
 
@@ -74,8 +76,11 @@ public class MyCameraCapturer extends CameraCapturer {
     protected void createCameraSession(CameraSession.CreateSessionCallback createSessionCallback,
                                        CameraSession.Events events, Context applicationContext,
                                        SurfaceTextureHelper surfaceTextureHelper, String cameraName,
-                                       int width, int height, int framerate) {
-        
+                                       int width, int height, int framerate,
+                                       @Nullable StandbyCamera standbyCamera) {
+        // Camera1 has no standby cameras: whether opening a second camera
+        // evicts the first cannot be told, so isStandbySupported is false.
+
         CameraSession.CreateSessionCallback myCallback = new CameraSession.CreateSessionCallback() {
             @Override
             public void onDone(CameraSession cameraSession) {
@@ -207,6 +212,15 @@ public class MyCameraCapturer extends CameraCapturer {
         }
     }
 
+    @Override
+    @Nullable
+    public WritableMap getCaptureStats() {
+        synchronized (stateLock) {
+            return currentSession == null
+                ? null : ((MyCameraSession) currentSession).getCaptureStats();
+        }
+    }
+
     public class CameraException extends Exception{
 
         CameraException(Exception e){
@@ -285,7 +299,7 @@ public class MyCameraCapturer extends CameraCapturer {
         
     
         
-    private synchronized String savePicture(byte[] jpeg, int captureTarget, double maxJpegQuality, int maxSize,
+    static synchronized String savePicture(byte[] jpeg, int captureTarget, double maxJpegQuality, int maxSize,
                                             int orientation) throws IOException {
 
         // TODO: check if rotation is needed
@@ -308,7 +322,7 @@ public class MyCameraCapturer extends CameraCapturer {
         return Uri.fromFile(file).toString();
     }
         
-    private String writePictureToFile(byte[] jpeg, File file, int maxSize, double jpegQuality, int orientation) throws IOException {
+    private static String writePictureToFile(byte[] jpeg, File file, int maxSize, double jpegQuality, int orientation) throws IOException {
 
         FileOutputStream output = new FileOutputStream(file);
         output.write(jpeg);
@@ -351,7 +365,7 @@ public class MyCameraCapturer extends CameraCapturer {
         return file.getAbsolutePath();
     }
 
-    private File getOutputMediaFile(String fileName) {
+    private static File getOutputMediaFile(String fileName) {
         // Get environment directory type id from requested media type.
         String environmentDirectoryType;
         environmentDirectoryType = Environment.DIRECTORY_PICTURES;
@@ -362,7 +376,7 @@ public class MyCameraCapturer extends CameraCapturer {
         );
     }
 
-    private File getOutputFile(String fileName, File storageDir) {
+    private static File getOutputFile(String fileName, File storageDir) {
         // Create the storage directory if it does not exist
         if (!storageDir.exists()) {
             if (!storageDir.mkdirs()) {
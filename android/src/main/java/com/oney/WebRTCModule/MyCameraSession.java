@@ -15,12 +15,13 @@ import android.content.pm.PackageManager;
 import android.os.Handler;
 import android.os.SystemClock;
 import android.util.Log;
+import androidx.annotation.Nullable;
+import com.facebook.react.bridge.WritableMap;
 import java.io.IOException;
-import java.nio.ByteBuffer;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.concurrent.TimeUnit;
 import org.webrtc.CameraEnumerationAndroid.CaptureFormat;
-import org.webrtc.NV21Buffer;
 import org.webrtc.SurfaceTextureHelper;
 import org.webrtc.CameraEnumerationAndroid;
 import org.webrtc.VideoFrame;
@@ -30,7 +31,6 @@ import org.webrtc.Size;
 @SuppressWarnings("deprecation")
 class MyCameraSession implements CameraSession {
     private static final String TAG = "MyCameraSession";
-    private static final int NUMBER_OF_CAPTURE_BUFFERS = 3;
 
     private static enum SessionState { RUNNING, STOPPED }
     private final Handler cameraThreadHandler;
@@ -42,6 +42,8 @@ class MyCameraSession implements CameraSession {
     protected final android.hardware.Camera camera;
     private final android.hardware.Camera.CameraInfo info;
     private final CaptureFormat captureFormat;
+    // The callback buffers of the camera unless capturing to a texture.
+    @Nullable private final NV21BufferPool bufferPool;
     // Used only for stats. Only used on the camera thread.
     private final long constructionTimeNs; // Construction time of this class.
     private SessionState state;
@@ -79,21 +81,16 @@ class MyCameraSession implements CameraSession {
         final CaptureFormat captureFormat;
         try {
             final android.hardware.Camera.Parameters parameters = camera.getParameters();
-            captureFormat = findClosestCaptureFormat(parameters, width, height, framerate);
-            final Size pictureSize = findClosestPictureSize(parameters, width, height);
+            // The formats enumerated or persisted already spare parsing them from the parameters.
+            final CameraFormatCache.Formats formats = Camera1Enumerator.getKnownFormats(cameraId);
+            captureFormat = findClosestCaptureFormat(formats, parameters, width, height, framerate);
+            final Size pictureSize = findClosestPictureSize(formats, parameters, width, height);
             updateCameraParameters(camera, parameters, captureFormat, pictureSize, captureToTexture);
         } catch (RuntimeException e) {
             camera.release();
             callback.onFailure(FailureType.ERROR, e.getMessage());
             return;
         }
-        if (!captureToTexture) {
-            final int frameSize = captureFormat.frameSize();
-            for (int i = 0; i < NUMBER_OF_CAPTURE_BUFFERS; ++i) {
-                final ByteBuffer buffer = ByteBuffer.allocateDirect(frameSize);
-                camera.addCallbackBuffer(buffer.array());
-            }
-        }
         // Calculate orientation manually and send it as CVO insted.
         camera.setDisplayOrientation(0 /* degrees */);
         callback.onDone(new MyCameraSession(events, captureToTexture, applicationContext,
@@ -117,23 +114,37 @@ class MyCameraSession implements CameraSession {
         }
         camera.setParameters(parameters);
     }
-    private static CaptureFormat findClosestCaptureFormat(
+    private static CaptureFormat findClosestCaptureFormat(CameraFormatCache.Formats formats,
             android.hardware.Camera.Parameters parameters, int width, int height, int framerate) {
         // Find closest supported format for |width| x |height| @ |framerate|.
         final List<CaptureFormat.FramerateRange> supportedFramerates =
-                Camera1Enumerator.convertFramerates(parameters.getSupportedPreviewFpsRange());
+                (formats != null && !formats.framerateRanges.isEmpty())
+                        ? formats.framerateRanges
+                        : Camera1Enumerator.convertFramerates(parameters.getSupportedPreviewFpsRange());
         Log.d(TAG, "Available fps ranges: " + supportedFramerates);
         final CaptureFormat.FramerateRange fpsRange =
                 CameraEnumerationAndroid.getClosestSupportedFramerateRange(supportedFramerates, framerate);
-        final Size previewSize = CameraEnumerationAndroid.getClosestSupportedSize(
-                Camera1Enumerator.convertSizes(parameters.getSupportedPreviewSizes()), width, height);
+        final List<Size> supportedSizes;
+        if (formats != null) {
+            supportedSizes = new ArrayList<Size>(formats.captureFormats.size());
+            for (CaptureFormat format : formats.captureFormats) {
+                supportedSizes.add(new Size(format.width, format.height));
+            }
+        } else {
+            supportedSizes = Camera1Enumerator.convertSizes(parameters.getSupportedPreviewSizes());
+        }
+        final Size previewSize =
+                CameraEnumerationAndroid.getClosestSupportedSize(supportedSizes, width, height);
         //CameraEnumerationAndroid.reportCameraResolution(camera1ResolutionHistogram, previewSize);
         return new CaptureFormat(previewSize.width, previewSize.height, fpsRange);
     }
-    private static Size findClosestPictureSize(
+    private static Size findClosestPictureSize(CameraFormatCache.Formats formats,
             android.hardware.Camera.Parameters parameters, int width, int height) {
         return CameraEnumerationAndroid.getClosestSupportedSize(
-                Camera1Enumerator.convertSizes(parameters.getSupportedPictureSizes()), width, height);
+                (formats != null && !formats.pictureSizes.isEmpty())
+                        ? formats.pictureSizes
+                        : Camera1Enumerator.convertSizes(parameters.getSupportedPictureSizes()),
+                width, height);
     }
     private MyCameraSession(Events events, boolean captureToTexture, Context applicationContext,
                            SurfaceTextureHelper surfaceTextureHelper, int cameraId, android.hardware.Camera camera,
@@ -150,6 +161,14 @@ class MyCameraSession implements CameraSession {
         this.info = info;
         this.captureFormat = captureFormat;
         this.constructionTimeNs = constructionTimeNs;
+        if (captureToTexture) {
+            this.bufferPool = null;
+        } else {
+            this.bufferPool = new NV21BufferPool(camera, cameraThreadHandler,
+                    captureFormat.width, captureFormat.height, captureFormat.frameSize(),
+                    captureFormat.framerate.max);
+            this.bufferPool.start();
+        }
         surfaceTextureHelper.setTextureSize(captureFormat.width, captureFormat.height);
         startCapturing();
     }
@@ -206,6 +225,9 @@ class MyCameraSession implements CameraSession {
             return;
         }
         state = SessionState.STOPPED;
+        if (bufferPool != null) {
+            bufferPool.stop();
+        }
         surfaceTextureHelper.stopListening();
         // Note: stopPreview or other driver code might deadlock. Deadlock in
         // android.hardware.Camera._stopPreview(Native Method) has been observed on
@@ -260,12 +282,11 @@ class MyCameraSession implements CameraSession {
                     //camera1StartTimeMsHistogram.addSample(startTimeMs);
                     firstFrameReported = true;
                 }
-                VideoFrame.Buffer frameBuffer = new NV21Buffer(
-                        data, captureFormat.width, captureFormat.height, () -> cameraThreadHandler.post(() -> {
-                    if (state == SessionState.RUNNING) {
-                        camera.addCallbackBuffer(data);
-                    }
-                }));
+                final VideoFrame.Buffer frameBuffer = bufferPool.acquire(data, captureTimeNs);
+                if (frameBuffer == null) {
+                    Log.e(TAG, "Bytebuffer frame captured in a buffer not from the pool.");
+                    return;
+                }
                 final VideoFrame frame = new VideoFrame(frameBuffer, getFrameOrientation(), captureTimeNs);
                 events.onFrameCaptured(MyCameraSession.this, frame);
                 frame.release();
@@ -273,7 +294,7 @@ class MyCameraSession implements CameraSession {
         });
     }
     private int getFrameOrientation() {
-        int rotation = CameraSession.getDeviceOrientation(applicationContext);
+        int rotation = DeviceOrientation.get(applicationContext);
         if (info.facing == android.hardware.Camera.CameraInfo.CAMERA_FACING_BACK) {
             rotation = 360 - rotation;
         }
@@ -290,6 +311,15 @@ class MyCameraSession implements CameraSession {
 
 
     //MINE
+    /**
+     * Gets the stats of the capture buffers or {@code null} if the frames are
+     * captured to a texture.
+     */
+    @Nullable
+    WritableMap getCaptureStats() {
+        return bufferPool == null ? null : bufferPool.getStats();
+    }
+
     void switchFlash(boolean isActive) {
         if(!this.applicationContext.getPackageManager().hasSystemFeature(PackageManager.FEATURE_CAMERA_FLASH)){
             Log.e(TAG, "The device does not have a FlashLight");
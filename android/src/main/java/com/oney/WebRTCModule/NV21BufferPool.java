@@ -0,0 +1,305 @@
+package com.oney.WebRTCModule;
+
+import android.os.Handler;
+import android.util.Log;
+
+import com.facebook.react.bridge.Arguments;
+import com.facebook.react.bridge.WritableMap;
+
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.webrtc.NV21Buffer;
+import org.webrtc.VideoFrame;
+
+/**
+ * The callback buffers of a legacy {@code android.hardware.Camera} which
+ * captures NV21 frames, each with a reusable {@code VideoFrame.Buffer}
+ * wrapper, so that delivering a frame does not allocate a buffer, a release
+ * callback and a {@code Runnable}.
+ *
+ * The camera can only fill the buffers which have been returned to it, and it
+ * silently drops frames while it has none. The pool therefore grows (up to
+ * {@link #MAX_BUFFERS}) whenever a frame leaves the camera without a buffer to
+ * fill, and counts such starvations and the frames they cost. It shrinks
+ * again, by retiring buffers as they return, when fewer buffers than it holds
+ * have been in flight at the same time for a while.
+ *
+ * Frames are acquired on the camera thread; the wrappers may be released on
+ * any thread and return to the camera on the camera thread.
+ */
+class NV21BufferPool {
+    /**
+     * The {@link Log} tag with which {@code NV21BufferPool} is to log.
+     */
+    private static final String TAG = WebRTCModule.TAG;
+
+    /**
+     * The number of buffers the pool starts with, as the camera sessions
+     * always used.
+     */
+    static final int INITIAL_BUFFERS = 3;
+
+    /**
+     * The maximum number of buffers which the pool grows to. Each holds a
+     * full frame.
+     */
+    static final int MAX_BUFFERS = 8;
+
+    /**
+     * The number of frames over which the peak of the buffers in flight is
+     * observed before the pool may shrink.
+     */
+    private static final int SHRINK_WINDOW_FRAMES = 300;
+
+    /**
+     * The spare buffers kept beyond the peak of the buffers in flight.
+     */
+    private static final int SPARE_BUFFERS = 1;
+
+    private final android.hardware.Camera camera;
+
+    private final Handler cameraThreadHandler;
+
+    /**
+     * The expected interval between frames at the maximum framerate of the
+     * capture format, from which the frames lost to starvation are estimated.
+     */
+    private final long frameIntervalNs;
+
+    private final int frameSize;
+
+    private final int height;
+
+    private final int width;
+
+    /**
+     * Maps the arrays handed to the camera to their wrappers. Only modified on
+     * the camera thread and guarded by this instance.
+     */
+    private final Map<byte[], PooledBuffer> buffers = new IdentityHashMap<>();
+
+    // The following are only written on the camera thread and guarded by this
+    // instance for getStats().
+    private long framesCaptured;
+    private long framesDroppedEstimate;
+    private int grows;
+    private int inFlight;
+    private long lastFrameTimeNs = -1;
+    private int peakInFlight;
+    private int retiring;
+    private int shrinks;
+    private boolean starved;
+    private long starvations;
+    private boolean stopped;
+    private int windowFrames;
+    private int windowPeakInFlight;
+
+    NV21BufferPool(
+            android.hardware.Camera camera,
+            Handler cameraThreadHandler,
+            int width,
+            int height,
+            int frameSize,
+            int maxFramerate) {
+        this.camera = camera;
+        this.cameraThreadHandler = cameraThreadHandler;
+        this.width = width;
+        this.height = height;
+        this.frameSize = frameSize;
+        this.frameIntervalNs
+            = 1_000_000_000L * 1000 / Math.max(maxFramerate, 1000);
+    }
+
+    /**
+     * Hands the initial buffers to the camera. Invoked on the camera thread
+     * before the preview starts.
+     */
+    void start() {
+        for (int i = 0; i < INITIAL_BUFFERS; i++) {
+            addBuffer();
+        }
+    }
+
+    /**
+     * Stops returning buffers to the camera, which is about to be released.
+     * Invoked on the camera thread.
+     */
+    synchronized void stop() {
+        stopped = true;
+    }
+
+    private void addBuffer() {
+        PooledBuffer buffer = new PooledBuffer(new byte[frameSize]);
+
+        synchronized (this) {
+            buffers.put(buffer.data, buffer);
+        }
+        camera.addCallbackBuffer(buffer.data);
+    }
+
+    /**
+     * Wraps a specific frame delivered by the camera. Invoked on the camera
+     * thread.
+     *
+     * @return the wrapper, the reference of which the caller owns, or
+     * {@code null} if {@code data} is not one of the buffers of this pool
+     */
+    VideoFrame.Buffer acquire(byte[] data, long captureTimeNs) {
+        PooledBuffer buffer;
+        boolean grow = false;
+
+        synchronized (this) {
+            buffer = buffers.get(data);
+            if (buffer == null) {
+                return null;
+            }
+            buffer.refCount.set(1);
+
+            framesCaptured++;
+            if (starved && lastFrameTimeNs >= 0) {
+                // The camera dropped the frames it had no buffer for.
+                long gapNs = captureTimeNs - lastFrameTimeNs;
+                long lost = (gapNs + frameIntervalNs / 2) / frameIntervalNs - 1;
+                framesDroppedEstimate += Math.max(lost, 0);
+            }
+            lastFrameTimeNs = captureTimeNs;
+
+            inFlight++;
+            peakInFlight = Math.max(peakInFlight, inFlight);
+            windowPeakInFlight = Math.max(windowPeakInFlight, inFlight);
+            // The camera is left without a buffer to fill.
+            starved = inFlight >= buffers.size() - retiring;
+            if (starved) {
+                starvations++;
+                if (buffers.size() - retiring < MAX_BUFFERS) {
+                    if (retiring > 0) {
+                        retiring--;
+                    } else {
+                        grows++;
+                        grow = true;
+                    }
+                }
+            }
+
+            if (++windowFrames >= SHRINK_WINDOW_FRAMES) {
+                int target = Math.max(INITIAL_BUFFERS, windowPeakInFlight + SPARE_BUFFERS);
+                if (buffers.size() - retiring > target) {
+                    retiring++;
+                    shrinks++;
+                }
+                windowFrames = 0;
+                windowPeakInFlight = inFlight;
+            }
+        }
+        if (grow) {
+            addBuffer();
+            Log.d(TAG, "NV21BufferPool grew by a buffer after a starvation");
+        }
+        return buffer;
+    }
+
+    /**
+     * Returns a buffer released by all its users to the camera or retires it.
+     * Invoked on the camera thread.
+     */
+    private void recycle(PooledBuffer buffer) {
+        int retiredTo = -1;
+        synchronized (this) {
+            inFlight--;
+            if (stopped) {
+                return;
+            }
+            if (retiring > 0) {
+                retiring--;
+                buffers.remove(buffer.data);
+                retiredTo = buffers.size();
+            }
+        }
+        if (retiredTo == -1) {
+            camera.addCallbackBuffer(buffer.data);
+        } else {
+            Log.d(TAG, "NV21BufferPool shrank to " + retiredTo + " buffers");
+        }
+    }
+
+    /**
+     * Describes the pool and the frames lost to the lack of buffers for JS.
+     */
+    synchronized WritableMap getStats() {
+        WritableMap map = Arguments.createMap();
+
+        map.putInt("buffers", buffers.size() - retiring);
+        map.putInt("buffersInFlight", inFlight);
+        map.putInt("peakBuffersInFlight", peakInFlight);
+        map.putDouble("framesCaptured", framesCaptured);
+        map.putDouble("starvations", starvations);
+        map.putDouble("framesDroppedEstimate", framesDroppedEstimate);
+        map.putInt("grows", grows);
+        map.putInt("shrinks", shrinks);
+        return map;
+    }
+
+    /**
+     * A reusable, reference-counted wrapper of a camera buffer. Unlike
+     * {@code NV21Buffer}, its reference count is reset every time the camera
+     * fills the buffer again.
+     */
+    private class PooledBuffer implements VideoFrame.Buffer {
+        final byte[] data;
+
+        final AtomicInteger refCount = new AtomicInteger();
+
+        /**
+         * Posted to the camera thread on the last release. Allocated once.
+         */
+        private final Runnable recycler = () -> recycle(this);
+
+        PooledBuffer(byte[] data) {
+            this.data = data;
+        }
+
+        @Override
+        public int getWidth() {
+            return width;
+        }
+
+        @Override
+        public int getHeight() {
+            return height;
+        }
+
+        @Override
+        public VideoFrame.I420Buffer toI420() {
+            // The conversion allocates the I420 buffer anyway; the
+            // temporary NV21Buffer only lends its native converter.
+            return new NV21Buffer(data, width, height, null).toI420();
+        }
+
+        @Override
+        public VideoFrame.Buffer cropAndScale(
+                int cropX,
+                int cropY,
+                int cropWidth,
+                int cropHeight,
+                int scaleWidth,
+                int scaleHeight) {
+            // Copies into a new I420 buffer which does not refer to data.
+            return new NV21Buffer(data, width, height, null)
+                .cropAndScale(cropX, cropY, cropWidth, cropHeight, scaleWidth, scaleHeight);
+        }
+
+        @Override
+        public void retain() {
+            refCount.incrementAndGet();
+        }
+
+        @Override
+        public void release() {
+            if (refCount.decrementAndGet() == 0) {
+                cameraThreadHandler.post(recycler);
+            }
+        }
+    }
+}
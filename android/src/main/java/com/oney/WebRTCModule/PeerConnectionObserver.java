@@ -4,11 +4,17 @@ import java.io.UnsupportedEncodingException;
 import java.lang.ref.SoftReference;
 import java.nio.ByteBuffer;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
 
 import androidx.annotation.Nullable;
 import android.util.Base64;
@@ -17,6 +23,7 @@ import android.util.SparseArray;
 
 import com.facebook.react.bridge.Arguments;
 import com.facebook.react.bridge.Callback;
+import com.facebook.react.bridge.Promise;
 import com.facebook.react.bridge.ReadableMap;
 import com.facebook.react.bridge.WritableArray;
 import com.facebook.react.bridge.WritableMap;
@@ -27,7 +34,11 @@ import org.webrtc.IceCandidate;
 import org.webrtc.MediaStream;
 import org.webrtc.MediaStreamTrack;
 import org.webrtc.PeerConnection;
+import org.webrtc.RTCStats;
+import org.webrtc.RtpParameters;
 import org.webrtc.RtpReceiver;
+import org.webrtc.RtpSender;
+import org.webrtc.RtpTransceiver;
 import org.webrtc.StatsObserver;
 import org.webrtc.StatsReport;
 import org.webrtc.VideoTrack;
@@ -42,6 +53,70 @@ class PeerConnectionObserver implements PeerConnection.Observer {
     final List<MediaStream> localStreams;
     final Map<String, MediaStream> remoteStreams;
     final Map<String, MediaStreamTrack> remoteTracks;
+
+    /**
+     * The reverse of {@link #remoteStreams}: the react tags of the remote
+     * <tt>MediaStream</tt>s by identity. Maintained alongside
+     * {@link #remoteStreams}.
+     */
+    private final Map<MediaStream, String> remoteStreamReactTags
+        = new IdentityHashMap<>();
+
+    /**
+     * The remote <tt>MediaStream</tt>s which have been announced to JS by
+     * {@link #onAddStream}. libwebrtc may announce a <tt>MediaStream</tt>
+     * through {@link #onAddTrack} first and through {@link #onAddStream}
+     * afterwards.
+     */
+    private final Set<MediaStream> announcedStreams
+        = Collections.newSetFromMap(new IdentityHashMap<>());
+
+    /**
+     * The remote tracks added by {@link #onAddTrack} by the IDs of their
+     * <tt>RtpReceiver</tt>s. Guarded by {@link #remoteLock}.
+     */
+    private final Map<String, MediaStreamTrack> receiverTracks = new HashMap<>();
+
+    /**
+     * Whether the associated <tt>PeerConnection</tt> uses the Unified Plan
+     * SDP semantics and thus has transceivers.
+     */
+    private volatile boolean unifiedPlan;
+
+    /**
+     * Whether {@link #detach()} has been invoked. The events which the
+     * associated <tt>PeerConnection</tt> fires afterwards are ignored.
+     * Guarded by {@link #remoteLock}.
+     */
+    private boolean closed;
+
+    /**
+     * Serializes the handling of the remote media and data channels on the
+     * signaling thread with {@link #detach()} on the executor so that nothing
+     * is registered for a <tt>PeerConnection</tt> after it was detached.
+     */
+    private final Object remoteLock = new Object();
+
+    /**
+     * The number of lookups served by {@link #remoteStreamReactTags} and how
+     * many of them found a react tag.
+     */
+    private final AtomicLong streamLookups = new AtomicLong();
+    private final AtomicLong streamLookupHits = new AtomicLong();
+
+    /**
+     * The <tt>RtpSender</tt>s created by {@link #addTrack} and
+     * {@link #addTransceiver} by their IDs. The associated
+     * <tt>PeerConnection</tt> owns and disposes of them. Only accessed on the
+     * executor of {@link ThreadUtils}.
+     */
+    private final Map<String, RtpSender> senders = new HashMap<>();
+
+    /**
+     * The transformation applied to the SDPs created by the associated
+     * <tt>PeerConnection</tt> or <tt>null</tt> if they are to be left as is.
+     */
+    private volatile SdpTransformer sdpTransformer;
     private final VideoTrackAdapter videoTrackAdapters;
     private final WebRTCModule webRTCModule;
 
@@ -100,47 +175,338 @@ class PeerConnectionObserver implements PeerConnection.Observer {
         return localStreams.remove(localStream);
     }
 
+    /**
+     * Adds a specific local <tt>MediaStreamTrack</tt> to the associated
+     * <tt>PeerConnection</tt>.
+     *
+     * @param streamIds the IDs of the <tt>MediaStream</tt>s the remote peer is
+     * to associate the track with
+     * @return a description of the created <tt>RtpSender</tt> or <tt>null</tt>
+     * if the track could not be added
+     */
+    @Nullable
+    WritableMap addTrack(MediaStreamTrack track, List<String> streamIds) {
+        if (peerConnection == null) {
+            return null;
+        }
+
+        RtpSender sender = peerConnection.addTrack(track, streamIds);
+        if (sender == null) {
+            return null;
+        }
+        senders.put(sender.id(), sender);
+        return senderInfo(sender);
+    }
+
+    /**
+     * Adds a transceiver to the associated <tt>PeerConnection</tt>. Requires
+     * the Unified Plan SDP semantics.
+     *
+     * @param track the local track to send or <tt>null</tt> to add a
+     * transceiver of a specific <tt>kind</tt> without a track
+     * @return a description of the created transceiver or <tt>null</tt> if it
+     * could not be added
+     */
+    @Nullable
+    WritableMap addTransceiver(
+            @Nullable MediaStreamTrack track,
+            MediaStreamTrack.MediaType kind,
+            RtpTransceiver.RtpTransceiverInit init) {
+        if (peerConnection == null) {
+            return null;
+        }
+
+        RtpTransceiver transceiver;
+        try {
+            transceiver
+                = (track == null)
+                    ? peerConnection.addTransceiver(kind, init)
+                    : peerConnection.addTransceiver(track, init);
+        } catch (IllegalStateException e) {
+            // Plan B or a closed PeerConnection.
+            Log.e(TAG, "addTransceiver() failed", e);
+            return null;
+        }
+
+        RtpSender sender = transceiver.getSender();
+        RtpReceiver receiver = transceiver.getReceiver();
+        WritableMap map = Arguments.createMap();
+
+        senders.put(sender.id(), sender);
+        map.putString("mid", transceiver.getMid());
+        map.putString("direction", directionString(transceiver.getDirection()));
+        map.putMap("sender", senderInfo(sender));
+
+        WritableMap receiverInfo = Arguments.createMap();
+        receiverInfo.putString("id", receiver.id());
+        MediaStreamTrack receiverTrack = receiver.track();
+        if (receiverTrack != null) {
+            receiverInfo.putString("trackId", receiverTrack.id());
+        }
+        map.putMap("receiver", receiverInfo);
+
+        return map;
+    }
+
+    /**
+     * Stops sending with a specific <tt>RtpSender</tt> created by
+     * {@link #addTrack} or {@link #addTransceiver}.
+     */
+    boolean removeTrack(String senderId) {
+        RtpSender sender = senders.get(senderId);
+
+        return peerConnection != null
+            && sender != null
+            && peerConnection.removeTrack(sender);
+    }
+
+    /**
+     * Replaces the track sent by a specific <tt>RtpSender</tt> without a
+     * renegotiation.
+     *
+     * @param track the new track or <tt>null</tt> to stop sending
+     * @return <tt>false</tt> if there is no such <tt>RtpSender</tt> or the
+     * track could not be replaced (e.g. it is of a different kind)
+     */
+    boolean replaceTrack(String senderId, @Nullable MediaStreamTrack track) {
+        RtpSender sender = senders.get(senderId);
+
+        // The track is owned by GetUserMediaImpl, not by the sender.
+        return peerConnection != null
+            && sender != null
+            && sender.setTrack(track, /* takeOwnership */ false);
+    }
+
+    /**
+     * Gets an <tt>RtpSender</tt> created by {@link #addTrack} or
+     * {@link #addTransceiver}.
+     */
+    @Nullable
+    RtpSender getSender(String senderId) {
+        return (peerConnection == null) ? null : senders.get(senderId);
+    }
+
+    /**
+     * Gets the <tt>RtpSender</tt>s created by {@link #addTrack} or
+     * {@link #addTransceiver}.
+     */
+    Collection<RtpSender> getSenders() {
+        return (peerConnection == null)
+            ? Collections.<RtpSender>emptyList()
+            : senders.values();
+    }
+
+    /**
+     * Resolves a specific <tt>Promise</tt> with the <tt>outbound-rtp</tt>
+     * statistics of each layer sent by a specific <tt>RtpSender</tt> e.g. the
+     * simulcast layers, in the order of its encodings.
+     *
+     * @return <tt>false</tt> if there is no such <tt>RtpSender</tt>
+     */
+    boolean getSenderStats(String senderId, Promise promise) {
+        RtpSender sender = getSender(senderId);
+        if (sender == null) {
+            return false;
+        }
+
+        MediaStreamTrack track = sender.track();
+        String trackId = (track == null) ? null : track.id();
+        List<String> rids = new ArrayList<>();
+        Set<Long> ssrcs = new HashSet<>();
+        for (RtpParameters.Encoding encoding : sender.getParameters().encodings) {
+            rids.add(encoding.rid);
+            if (encoding.ssrc != null) {
+                ssrcs.add(encoding.ssrc);
+            }
+        }
+
+        peerConnection.getStats(report -> {
+            Map<String, RTCStats> statsMap = report.getStatsMap();
+
+            // The outbound-rtp stats refer to the track through their
+            // media-source stats.
+            Set<String> mediaSourceIds = new HashSet<>();
+            for (RTCStats stats : statsMap.values()) {
+                if ("media-source".equals(stats.getType())
+                        && trackId != null
+                        && trackId.equals(stats.getMembers().get("trackIdentifier"))) {
+                    mediaSourceIds.add(stats.getId());
+                }
+            }
+
+            List<RTCStats> layers = new ArrayList<>();
+            for (RTCStats stats : statsMap.values()) {
+                if (!"outbound-rtp".equals(stats.getType())) {
+                    continue;
+                }
+                Map<String, Object> members = stats.getMembers();
+                Object ssrc = members.get("ssrc");
+                if (mediaSourceIds.contains(members.get("mediaSourceId"))
+                        || (ssrc instanceof Number
+                            && ssrcs.contains(((Number) ssrc).longValue()))) {
+                    layers.add(stats);
+                }
+            }
+            Collections.sort(layers, (a, b) ->
+                rids.indexOf(a.getMembers().get("rid"))
+                    - rids.indexOf(b.getMembers().get("rid")));
+
+            WritableArray array = Arguments.createArray();
+            for (RTCStats stats : layers) {
+                WritableMap layer = Arguments.createMap();
+                layer.putString("id", stats.getId());
+                layer.putDouble("timestamp", stats.getTimestampUs() / 1000);
+                for (Map.Entry<String, Object> member : stats.getMembers().entrySet()) {
+                    Object value = member.getValue();
+                    if (value instanceof Number) {
+                        layer.putDouble(member.getKey(), ((Number) value).doubleValue());
+                    } else if (value instanceof String) {
+                        layer.putString(member.getKey(), (String) value);
+                    } else if (value instanceof Boolean) {
+                        layer.putBoolean(member.getKey(), (Boolean) value);
+                    }
+                }
+                array.pushMap(layer);
+            }
+            promise.resolve(array);
+        });
+        return true;
+    }
+
+    private static WritableMap senderInfo(RtpSender sender) {
+        WritableMap map = Arguments.createMap();
+        MediaStreamTrack track = sender.track();
+
+        map.putString("id", sender.id());
+        if (track != null) {
+            map.putString("trackId", track.id());
+            map.putString("kind", track.kind());
+        }
+        return map;
+    }
+
+    @Nullable
+    private static String directionString(
+            @Nullable RtpTransceiver.RtpTransceiverDirection direction) {
+        if (direction == null) {
+            return null;
+        }
+        switch (direction) {
+            case SEND_RECV:
+                return "sendrecv";
+            case SEND_ONLY:
+                return "sendonly";
+            case RECV_ONLY:
+                return "recvonly";
+            case INACTIVE:
+                return "inactive";
+        }
+        return null;
+    }
+
     PeerConnection getPeerConnection() {
         return peerConnection;
     }
 
-    void setPeerConnection(PeerConnection peerConnection) {
+    void setPeerConnection(PeerConnection peerConnection, boolean unifiedPlan) {
         this.peerConnection = peerConnection;
+        this.unifiedPlan = unifiedPlan;
     }
 
-    void close() {
-        Log.d(TAG, "PeerConnection.close() for " + id);
+    void setSdpTransformer(SdpTransformer sdpTransformer) {
+        this.sdpTransformer = sdpTransformer;
+    }
 
-        // Close the PeerConnection first to stop any events.
-        peerConnection.close();
+    /**
+     * Applies the configured SDP transformation, if any, to a specific SDP
+     * created by the associated <tt>PeerConnection</tt>.
+     */
+    String transformSdp(String sdp) {
+        SdpTransformer sdpTransformer = this.sdpTransformer;
+
+        if (sdpTransformer == null) {
+            return sdp;
+        }
+        try {
+            return sdpTransformer.transform(sdp);
+        } catch (RuntimeException e) {
+            // Better an untransformed SDP than a failed negotiation.
+            Log.e(TAG, "Failed to transform SDP for " + id, e);
+            return sdp;
+        }
+    }
+
+    /**
+     * Detaches this instance from the associated <tt>PeerConnection</tt> and
+     * releases everything it registered for it. Invoked on the executor of
+     * {@link ThreadUtils}; the returned <tt>PeerConnection</tt> is closed and
+     * disposed of separately by {@link #close(PeerConnection)} so that the
+     * executor is not held up by the native teardown.
+     *
+     * @return the <tt>PeerConnection</tt> which was associated with this
+     * instance
+     */
+    PeerConnection detach() {
+        Log.d(TAG, "PeerConnection.detach() for " + id);
 
         // PeerConnection.dispose() calls MediaStream.dispose() on all local
         // MediaStreams added to it and the app may crash if a local MediaStream
         // is added to multiple PeerConnections. In order to reduce the risks of
         // an app crash, remove all local MediaStreams from the associated
-        // PeerConnection so that it doesn't attempt to dispose of them.
+        // PeerConnection so that it doesn't attempt to dispose of them. Done
+        // without remoteLock because it waits for the signaling thread.
         for (MediaStream localStream : new ArrayList<>(localStreams)) {
             removeStream(localStream);
         }
 
-        // Remove video track adapters
-        for (MediaStream stream : remoteStreams.values()) {
-            for (VideoTrack videoTrack : stream.videoTracks) {
-                videoTrackAdapters.removeAdapter(videoTrack);
+        PeerConnection peerConnection;
+        List<VideoTrack> videoTracks = new ArrayList<>();
+
+        synchronized (remoteLock) {
+            // Ignore the events which the PeerConnection may still fire until
+            // it is closed.
+            closed = true;
+
+            peerConnection = this.peerConnection;
+            this.peerConnection = null;
+
+            for (MediaStreamTrack track : remoteTracks.values()) {
+                if (track instanceof VideoTrack) {
+                    videoTracks.add((VideoTrack) track);
+                }
             }
+
+            remoteStreams.clear();
+            remoteStreamReactTags.clear();
+            announcedStreams.clear();
+            receiverTracks.clear();
+            remoteTracks.clear();
+            webRTCModule.mediaRegistry.removeOwner(id);
+
+            // Unlike on iOS, we cannot unregister the DataChannel.Observer
+            // instance on Android. At least do whatever else we do on iOS.
+            dataChannels.clear();
         }
 
-        // At this point there should be no local MediaStreams in the associated
-        // PeerConnection. Call dispose() to free all remaining resources held
-        // by the PeerConnection instance (RtpReceivers, RtpSenders, etc.)
-        peerConnection.dispose();
+        // Remove video track adapters. No adapter is added anymore.
+        for (VideoTrack track : videoTracks) {
+            videoTrackAdapters.removeAdapter(track);
+        }
 
-        remoteStreams.clear();
-        remoteTracks.clear();
+        return peerConnection;
+    }
+
+    /**
+     * Closes and disposes of a specific <tt>PeerConnection</tt> returned by
+     * {@link #detach()}. May be invoked on any thread.
+     */
+    static void close(PeerConnection peerConnection) {
+        peerConnection.close();
 
-        // Unlike on iOS, we cannot unregister the DataChannel.Observer
-        // instance on Android. At least do whatever else we do on iOS.
-        dataChannels.clear();
+        // There are no local MediaStreams in the PeerConnection anymore. Call
+        // dispose() to free all remaining resources held by the PeerConnection
+        // instance (RtpReceivers, RtpSenders, etc.)
+        peerConnection.dispose();
     }
 
     void createDataChannel(String label, ReadableMap config) {
@@ -208,20 +574,67 @@ class PeerConnectionObserver implements PeerConnection.Observer {
         }
     }
 
-    @SuppressWarnings("deprecation") // TODO(saghul): getStats is deprecated.
+    /**
+     * Gets a snapshot of the frame statistics of a specific remote video
+     * track of this <tt>PeerConnection</tt>.
+     *
+     * @return the statistics or <tt>null</tt> if the track is not a remote
+     * video track of this <tt>PeerConnection</tt>
+     */
+    WritableMap getFrameStats(String trackId) {
+        return videoTrackAdapters.getFrameStats(trackId);
+    }
+
+    /**
+     * Overrides the mute delays of a specific remote video track of this
+     * <tt>PeerConnection</tt>.
+     *
+     * @return <tt>false</tt> if the track is not a remote video track of this
+     * <tt>PeerConnection</tt>
+     */
+    boolean setMuteDelays(
+            String trackId,
+            long initialMuteDelayMs,
+            long muteDelayMs) {
+        return videoTrackAdapters.setMuteDelays(
+            trackId, initialMuteDelayMs, muteDelayMs);
+    }
+
     void getStats(String trackId, final Callback cb) {
+        if (!collectStats(trackId, json -> cb.invoke(true, json))) {
+            Log.e(TAG, "peerConnectionGetStats() MediaStreamTrack not found for id: " + trackId);
+            cb.invoke(false, "Track not found");
+        }
+    }
+
+    /**
+     * Requests the stats of the associated <tt>PeerConnection</tt>, optionally
+     * limited to a specific <tt>MediaStreamTrack</tt>, and delivers their JSON
+     * representation to a specific <tt>StatsJSONCallback</tt>.
+     *
+     * @param trackId the ID of the <tt>MediaStreamTrack</tt> to limit the
+     * stats to or <tt>null</tt>/empty for the stats of the whole
+     * <tt>PeerConnection</tt>
+     * @param cb the <tt>StatsJSONCallback</tt> to deliver the stats to. Invoked
+     * with <tt>null</tt> if the <tt>PeerConnection</tt> refused the request.
+     * @return <tt>true</tt> if the request was issued; <tt>false</tt> if
+     * <tt>trackId</tt> does not identify a track known to this instance
+     */
+    @SuppressWarnings("deprecation") // TODO(saghul): getStats is deprecated.
+    boolean collectStats(String trackId, final StatsJSONCallback cb) {
         MediaStreamTrack track = null;
         if (trackId == null
                 || trackId.isEmpty()
                 || (track = webRTCModule.getLocalTrack(trackId)) != null
                 || (track = remoteTracks.get(trackId)) != null) {
-            peerConnection.getStats(
-                reports -> cb.invoke(true, statsToJSON(reports)),
-                    track);
-        } else {
-            Log.e(TAG, "peerConnectionGetStats() MediaStreamTrack not found for id: " + trackId);
-            cb.invoke(false, "Track not found");
+            if (!peerConnection.getStats(
+                    reports -> cb.onStats(statsToJSON(reports)),
+                    track)) {
+                cb.onStats(null);
+            }
+            return true;
         }
+        return false;
     }
 
     /**
@@ -333,126 +746,193 @@ class PeerConnectionObserver implements PeerConnection.Observer {
     }
 
     private String getReactTagForStream(MediaStream mediaStream) {
-        for (Iterator<Map.Entry<String, MediaStream>> i
-                    = remoteStreams.entrySet().iterator();
-                i.hasNext();) {
-            Map.Entry<String, MediaStream> e = i.next();
-            if (e.getValue().equals(mediaStream)) {
-                return e.getKey();
-            }
+        String streamReactTag = remoteStreamReactTags.get(mediaStream);
+
+        streamLookups.incrementAndGet();
+        if (streamReactTag != null) {
+            streamLookupHits.incrementAndGet();
         }
-        return null;
+        return streamReactTag;
+    }
+
+    /**
+     * Describes the remote <tt>MediaStream</tt>s of this
+     * <tt>PeerConnection</tt> and the lookups of their react tags.
+     */
+    WritableMap getStreamIndexStats() {
+        long lookups = streamLookups.get();
+        long hits = streamLookupHits.get();
+        WritableMap map = Arguments.createMap();
+
+        map.putInt("remoteStreams", remoteStreamReactTags.size());
+        map.putDouble("lookups", lookups);
+        map.putDouble("hits", hits);
+        map.putDouble("misses", lookups - hits);
+        return map;
     }
 
     @Override
     public void onAddStream(MediaStream mediaStream) {
-        String streamReactTag = null;
-        String streamId = mediaStream.getId();
-        // The native WebRTC implementation has a special concept of a default
-        // MediaStream instance with the label default that the implementation
-        // reuses.
-        if ("default".equals(streamId)) {
-            for (Map.Entry<String, MediaStream> e : remoteStreams.entrySet()) {
-                if (e.getValue().equals(mediaStream)) {
-                    streamReactTag = e.getKey();
-                    break;
-                }
+        synchronized (remoteLock) {
+            if (closed) {
+                return;
             }
+
+            // Announce every MediaStream once, whether or not onAddTrack has
+            // registered it already.
+            if (!announcedStreams.add(mediaStream)) {
+                return;
+            }
+
+            WritableMap params = remoteStreamInfo(mediaStream, registerRemoteStream(mediaStream));
+            params.putInt("id", id);
+
+            webRTCModule.sendEvent("peerConnectionAddedStream", params);
         }
+    }
+
+    /**
+     * Registers a specific remote <tt>MediaStream</tt> and its tracks unless
+     * they are registered already.
+     *
+     * @return the react tag of the <tt>MediaStream</tt>
+     */
+    private String registerRemoteStream(MediaStream mediaStream) {
+        String streamReactTag = getReactTagForStream(mediaStream);
 
         if (streamReactTag == null) {
             streamReactTag = UUID.randomUUID().toString();
             remoteStreams.put(streamReactTag, mediaStream);
+            remoteStreamReactTags.put(mediaStream, streamReactTag);
+            webRTCModule.mediaRegistry.putStream(streamReactTag, mediaStream, id);
         }
 
-        WritableMap params = Arguments.createMap();
-        params.putInt("id", id);
-        params.putString("streamId", streamId);
-        params.putString("streamReactTag", streamReactTag);
-
-        WritableArray tracks = Arguments.createArray();
+        for (VideoTrack track : mediaStream.videoTracks) {
+            registerRemoteTrack(streamReactTag, track);
+        }
+        for (AudioTrack track : mediaStream.audioTracks) {
+            registerRemoteTrack(streamReactTag, track);
+        }
+        return streamReactTag;
+    }
 
-        for (int i = 0; i < mediaStream.videoTracks.size(); i++) {
-            VideoTrack track = mediaStream.videoTracks.get(i);
-            String trackId = track.id();
+    /**
+     * Registers a specific remote track unless it is registered already.
+     */
+    private void registerRemoteTrack(String streamReactTag, MediaStreamTrack track) {
+        String trackId = track.id();
 
+        if (!remoteTracks.containsKey(trackId)) {
             remoteTracks.put(trackId, track);
+            webRTCModule.mediaRegistry.putTrack(track, id);
+            if (track instanceof VideoTrack) {
+                videoTrackAdapters.addAdapter(streamReactTag, (VideoTrack) track);
+            }
+        }
+    }
 
-            WritableMap trackInfo = Arguments.createMap();
-            trackInfo.putString("id", trackId);
-            trackInfo.putString("label", "Video");
-            trackInfo.putString("kind", track.kind());
-            trackInfo.putBoolean("enabled", track.enabled());
-            trackInfo.putString("readyState", track.state().toString());
-            trackInfo.putBoolean("remote", true);
-            tracks.pushMap(trackInfo);
+    /**
+     * Unregisters a specific remote track.
+     */
+    private void unregisterRemoteTrack(MediaStreamTrack track) {
+        String trackId = track.id();
 
-            videoTrackAdapters.addAdapter(streamReactTag, track);
+        if (remoteTracks.remove(trackId) != null) {
+            if (track instanceof VideoTrack) {
+                videoTrackAdapters.removeAdapter((VideoTrack) track);
+            }
+            webRTCModule.mediaRegistry.removeTrack(trackId, id);
         }
-        for (int i = 0; i < mediaStream.audioTracks.size(); i++) {
-            AudioTrack track = mediaStream.audioTracks.get(i);
-            String trackId = track.id();
+    }
 
-            remoteTracks.put(trackId, track);
+    private static WritableMap remoteStreamInfo(MediaStream mediaStream, String streamReactTag) {
+        WritableMap params = Arguments.createMap();
+        params.putString("streamId", mediaStream.getId());
+        params.putString("streamReactTag", streamReactTag);
 
-            WritableMap trackInfo = Arguments.createMap();
-            trackInfo.putString("id", trackId);
-            trackInfo.putString("label", "Audio");
-            trackInfo.putString("kind", track.kind());
-            trackInfo.putBoolean("enabled", track.enabled());
-            trackInfo.putString("readyState", track.state().toString());
-            trackInfo.putBoolean("remote", true);
-            tracks.pushMap(trackInfo);
+        WritableArray tracks = Arguments.createArray();
+        for (VideoTrack track : mediaStream.videoTracks) {
+            tracks.pushMap(remoteTrackInfo(track));
+        }
+        for (AudioTrack track : mediaStream.audioTracks) {
+            tracks.pushMap(remoteTrackInfo(track));
         }
         params.putArray("tracks", tracks);
+        return params;
+    }
 
-        webRTCModule.sendEvent("peerConnectionAddedStream", params);
+    private static WritableMap remoteTrackInfo(MediaStreamTrack track) {
+        WritableMap trackInfo = Arguments.createMap();
+
+        trackInfo.putString("id", track.id());
+        trackInfo.putString(
+            "label",
+            MediaStreamTrack.VIDEO_TRACK_KIND.equals(track.kind()) ? "Video" : "Audio");
+        trackInfo.putString("kind", track.kind());
+        trackInfo.putBoolean("enabled", track.enabled());
+        trackInfo.putString("readyState", track.state().toString());
+        trackInfo.putBoolean("remote", true);
+        return trackInfo;
     }
 
     @Override
     public void onRemoveStream(MediaStream mediaStream) {
-        String streamReactTag = getReactTagForStream(mediaStream);
-        if (streamReactTag == null) {
-            Log.w(TAG,
-                "onRemoveStream - no remote stream for id: "
-                    + mediaStream.getId());
-            return;
-        }
+        synchronized (remoteLock) {
+            if (closed) {
+                return;
+            }
 
-        for (VideoTrack track : mediaStream.videoTracks) {
-            this.videoTrackAdapters.removeAdapter(track);
-            this.remoteTracks.remove(track.id());
-        }
-        for (AudioTrack track : mediaStream.audioTracks) {
-            this.remoteTracks.remove(track.id());
-        }
+            String streamReactTag = getReactTagForStream(mediaStream);
+            if (streamReactTag == null) {
+                Log.w(TAG,
+                    "onRemoveStream - no remote stream for id: "
+                        + mediaStream.getId());
+                return;
+            }
 
-        this.remoteStreams.remove(streamReactTag);
+            for (VideoTrack track : mediaStream.videoTracks) {
+                unregisterRemoteTrack(track);
+            }
+            for (AudioTrack track : mediaStream.audioTracks) {
+                unregisterRemoteTrack(track);
+            }
 
-        WritableMap params = Arguments.createMap();
-        params.putInt("id", id);
-        params.putString("streamId", streamReactTag);
-        webRTCModule.sendEvent("peerConnectionRemovedStream", params);
+            this.remoteStreams.remove(streamReactTag);
+            this.remoteStreamReactTags.remove(mediaStream);
+            this.announcedStreams.remove(mediaStream);
+            webRTCModule.mediaRegistry.removeStream(streamReactTag, id);
+
+            WritableMap params = Arguments.createMap();
+            params.putInt("id", id);
+            params.putString("streamId", streamReactTag);
+            webRTCModule.sendEvent("peerConnectionRemovedStream", params);
+        }
     }
 
     @Override
     public void onDataChannel(DataChannel dataChannel) {
-        final int dataChannelId = dataChannel.id();
-        if (-1 == dataChannelId) {
-          return;
-        }
+        synchronized (remoteLock) {
+            if (closed) {
+                return;
+            }
 
-        WritableMap dataChannelParams = Arguments.createMap();
-        dataChannelParams.putInt("id", dataChannelId);
-        dataChannelParams.putString("label", dataChannel.label());
-        WritableMap params = Arguments.createMap();
-        params.putInt("id", id);
-        params.putMap("dataChannel", dataChannelParams);
+            final int dataChannelId = dataChannel.id();
+            if (-1 == dataChannelId) {
+              return;
+            }
 
-        dataChannels.put(dataChannelId, dataChannel);
-        registerDataChannelObserver(dataChannelId, dataChannel);
+            WritableMap dataChannelParams = Arguments.createMap();
+            dataChannelParams.putInt("id", dataChannelId);
+            dataChannelParams.putString("label", dataChannel.label());
+            WritableMap params = Arguments.createMap();
+            params.putInt("id", id);
+            params.putMap("dataChannel", dataChannelParams);
 
-        webRTCModule.sendEvent("peerConnectionDidOpenDataChannel", params);
+            dataChannels.put(dataChannelId, dataChannel);
+            registerDataChannelObserver(dataChannelId, dataChannel);
+
+            webRTCModule.sendEvent("peerConnectionDidOpenDataChannel", params);
+        }
     }
 
     private void registerDataChannelObserver(int dcId, DataChannel dataChannel) {
@@ -480,7 +960,99 @@ class PeerConnectionObserver implements PeerConnection.Observer {
 
     @Override
     public void onAddTrack(final RtpReceiver receiver, final MediaStream[] mediaStreams) {
-        Log.d(TAG, "onAddTrack");
+        synchronized (remoteLock) {
+            if (closed) {
+                return;
+            }
+
+            MediaStreamTrack track = receiver.track();
+            if (track == null) {
+                return;
+            }
+
+            WritableArray streamReactTags = Arguments.createArray();
+            // The MediaStreams which JS learns about through this track. They
+            // are announced by onAddStream if libwebrtc invokes it.
+            WritableArray streams = Arguments.createArray();
+            String firstStreamReactTag = null;
+
+            for (MediaStream mediaStream : mediaStreams) {
+                String streamReactTag = getReactTagForStream(mediaStream);
+                if (streamReactTag == null) {
+                    streamReactTag = registerRemoteStream(mediaStream);
+                    streams.pushMap(remoteStreamInfo(mediaStream, streamReactTag));
+                }
+                if (firstStreamReactTag == null) {
+                    firstStreamReactTag = streamReactTag;
+                }
+                streamReactTags.pushString(streamReactTag);
+            }
+
+            // The track is already known if it was in a MediaStream announced by
+            // onAddStream.
+            registerRemoteTrack(firstStreamReactTag, track);
+            receiverTracks.put(receiver.id(), track);
+
+            WritableMap params = Arguments.createMap();
+            params.putInt("id", id);
+            params.putString("receiverId", receiver.id());
+            params.putArray("streamReactTags", streamReactTags);
+            params.putArray("streams", streams);
+            params.putMap("track", remoteTrackInfo(track));
+            webRTCModule.sendEvent("peerConnectionAddedTrack", params);
+        }
+    }
+
+    /**
+     * Removes the remote tracks added by {@link #onAddTrack} whose
+     * <tt>RtpReceiver</tt>s are gone (Plan B) or whose transceivers were
+     * stopped or no longer receive (Unified Plan). libwebrtc does not report
+     * either to this observer. Invoked on the signaling thread once a remote
+     * description has been set.
+     */
+    void removeEndedRemoteTracks() {
+        synchronized (remoteLock) {
+            PeerConnection peerConnection = this.peerConnection;
+            if (closed || peerConnection == null || receiverTracks.isEmpty()) {
+                return;
+            }
+
+            Set<String> receiving = new HashSet<>();
+            if (unifiedPlan) {
+                for (RtpTransceiver transceiver : peerConnection.getTransceivers()) {
+                    RtpTransceiver.RtpTransceiverDirection direction
+                        = transceiver.getCurrentDirection();
+                    if (!transceiver.isStopped()
+                            && (direction == RtpTransceiver.RtpTransceiverDirection.SEND_RECV
+                                || direction == RtpTransceiver.RtpTransceiverDirection.RECV_ONLY)) {
+                        receiving.add(transceiver.getReceiver().id());
+                    }
+                }
+            } else {
+                for (RtpReceiver receiver : peerConnection.getReceivers()) {
+                    receiving.add(receiver.id());
+                }
+            }
+
+            for (Iterator<Map.Entry<String, MediaStreamTrack>> i = receiverTracks.entrySet().iterator();
+                    i.hasNext();) {
+                Map.Entry<String, MediaStreamTrack> entry = i.next();
+                if (receiving.contains(entry.getKey())) {
+                    continue;
+                }
+                i.remove();
+
+                MediaStreamTrack track = entry.getValue();
+                String trackId = track.id();
+                unregisterRemoteTrack(track);
+
+                WritableMap params = Arguments.createMap();
+                params.putInt("id", id);
+                params.putString("receiverId", entry.getKey());
+                params.putString("trackId", trackId);
+                webRTCModule.sendEvent("peerConnectionRemovedTrack", params);
+            }
+        }
     }
 
     @Nullable
@@ -554,4 +1126,12 @@ class PeerConnectionObserver implements PeerConnection.Observer {
         }
         return null;
     }
+
+    /**
+     * Receives the JSON representation of the stats requested through
+     * {@link #collectStats(String, StatsJSONCallback)}.
+     */
+    interface StatsJSONCallback {
+        void onStats(@Nullable String json);
+    }
 }
@@ -0,0 +1,304 @@
+package com.oney.WebRTCModule;
+
+import android.util.Log;
+
+import com.facebook.react.bridge.Arguments;
+import com.facebook.react.bridge.WritableMap;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+import org.webrtc.CandidatePairChangeEvent;
+import org.webrtc.DataChannel;
+import org.webrtc.IceCandidate;
+import org.webrtc.MediaStream;
+import org.webrtc.PeerConnection;
+import org.webrtc.PeerConnectionFactory;
+import org.webrtc.RtpReceiver;
+import org.webrtc.RtpTransceiver;
+
+/**
+ * Keeps idle {@code PeerConnection}s created ahead of time so that ICE
+ * gathering (into the candidate pool) and the generation of the DTLS
+ * certificate are done by the time a call starts. Idle
+ * {@code PeerConnection}s are keyed by the JS configuration they were created
+ * with and adopted by {@code peerConnectionInit} only for an equal
+ * configuration. Until then, their events are dropped.
+ *
+ * Only accessed on the executor of {@link ThreadUtils}.
+ */
+class PeerConnectionPool {
+    /**
+     * The {@link Log} tag with which {@code PeerConnectionPool} is to log.
+     */
+    private static final String TAG = WebRTCModule.TAG;
+
+    /**
+     * The time after which an idle {@code PeerConnection} is disposed of
+     * rather than adopted because its candidates (e.g. TURN allocations) may
+     * have expired.
+     */
+    private static final long MAX_IDLE_MS = 5 * 60 * 1000;
+
+    private final Map<Map<String, Object>, List<Entry>> entries = new HashMap<>();
+
+    private long hits;
+
+    private long misses;
+
+    /**
+     * Creates idle {@code PeerConnection}s for a specific configuration until
+     * the pool holds a specific number of them.
+     *
+     * @param key the JS configuration
+     * @param configuration the parsed {@code key}
+     * @return the number of idle {@code PeerConnection}s for {@code key}
+     */
+    int prewarm(
+            PeerConnectionFactory factory,
+            Map<String, Object> key,
+            PeerConnection.RTCConfiguration configuration,
+            int count) {
+        List<Entry> list = entries.get(key);
+
+        if (list == null) {
+            list = new ArrayList<>(count);
+            entries.put(key, list);
+        }
+        removeExpired(list);
+
+        while (list.size() < count) {
+            ForwardingObserver observer = new ForwardingObserver();
+            PeerConnection peerConnection
+                = factory.createPeerConnection(configuration, observer);
+            if (peerConnection == null) {
+                Log.e(TAG, "PeerConnectionPool failed to create a PeerConnection");
+                break;
+            }
+            list.add(new Entry(peerConnection, observer));
+        }
+        Log.d(TAG, "PeerConnectionPool holds " + list.size()
+            + " PeerConnection(s) for " + key);
+
+        return list.size();
+    }
+
+    /**
+     * Removes an idle {@code PeerConnection} created with a specific
+     * configuration from the pool and forwards its events to a specific
+     * observer from now on.
+     *
+     * @return the {@code PeerConnection} or {@code null} if the pool has none
+     * for the configuration
+     */
+    PeerConnection take(Map<String, Object> key, PeerConnection.Observer observer) {
+        List<Entry> list = entries.get(key);
+
+        if (list != null) {
+            removeExpired(list);
+            if (list.isEmpty()) {
+                entries.remove(key);
+            } else {
+                Entry entry = list.remove(0);
+                entry.observer.delegate = observer;
+                hits++;
+                Log.d(TAG, "PeerConnectionPool hit (" + hits + " hits, "
+                    + misses + " misses)");
+                return entry.peerConnection;
+            }
+        }
+
+        if (!entries.isEmpty()) {
+            // Only a request which the pool was meant to serve is a miss.
+            misses++;
+            Log.d(TAG, "PeerConnectionPool miss (" + hits + " hits, "
+                + misses + " misses)");
+        }
+        return null;
+    }
+
+    /**
+     * Disposes of all idle {@code PeerConnection}s.
+     */
+    void clear() {
+        for (List<Entry> list : entries.values()) {
+            for (Entry entry : list) {
+                entry.dispose();
+            }
+        }
+        entries.clear();
+    }
+
+    WritableMap getStats() {
+        WritableMap map = Arguments.createMap();
+        int size = 0;
+
+        for (List<Entry> list : entries.values()) {
+            size += list.size();
+        }
+        map.putInt("idle", size);
+        map.putDouble("hits", hits);
+        map.putDouble("misses", misses);
+        return map;
+    }
+
+    private static void removeExpired(List<Entry> list) {
+        long now = System.currentTimeMillis();
+
+        for (Iterator<Entry> i = list.iterator(); i.hasNext();) {
+            Entry entry = i.next();
+            if (now - entry.creationTimeMs > MAX_IDLE_MS) {
+                i.remove();
+                entry.dispose();
+            }
+        }
+    }
+
+    private static class Entry {
+        final long creationTimeMs = System.currentTimeMillis();
+        final ForwardingObserver observer;
+        final PeerConnection peerConnection;
+
+        Entry(PeerConnection peerConnection, ForwardingObserver observer) {
+            this.peerConnection = peerConnection;
+            this.observer = observer;
+        }
+
+        void dispose() {
+            peerConnection.close();
+            peerConnection.dispose();
+        }
+    }
+
+    /**
+     * Forwards the events of an idle {@code PeerConnection} to the
+     * {@code PeerConnectionObserver} which adopted it, if any.
+     */
+    private static class ForwardingObserver implements PeerConnection.Observer {
+        volatile PeerConnection.Observer delegate;
+
+        @Override
+        public void onSignalingChange(PeerConnection.SignalingState state) {
+            PeerConnection.Observer d = delegate;
+            if (d != null) {
+                d.onSignalingChange(state);
+            }
+        }
+
+        @Override
+        public void onIceConnectionChange(PeerConnection.IceConnectionState state) {
+            PeerConnection.Observer d = delegate;
+            if (d != null) {
+                d.onIceConnectionChange(state);
+            }
+        }
+
+        @Override
+        public void onStandardizedIceConnectionChange(
+                PeerConnection.IceConnectionState state) {
+            PeerConnection.Observer d = delegate;
+            if (d != null) {
+                d.onStandardizedIceConnectionChange(state);
+            }
+        }
+
+        @Override
+        public void onConnectionChange(PeerConnection.PeerConnectionState state) {
+            PeerConnection.Observer d = delegate;
+            if (d != null) {
+                d.onConnectionChange(state);
+            }
+        }
+
+        @Override
+        public void onIceConnectionReceivingChange(boolean receiving) {
+            PeerConnection.Observer d = delegate;
+            if (d != null) {
+                d.onIceConnectionReceivingChange(receiving);
+            }
+        }
+
+        @Override
+        public void onIceGatheringChange(PeerConnection.IceGatheringState state) {
+            PeerConnection.Observer d = delegate;
+            if (d != null) {
+                d.onIceGatheringChange(state);
+            }
+        }
+
+        @Override
+        public void onIceCandidate(IceCandidate candidate) {
+            PeerConnection.Observer d = delegate;
+            if (d != null) {
+                d.onIceCandidate(candidate);
+            }
+        }
+
+        @Override
+        public void onIceCandidatesRemoved(IceCandidate[] candidates) {
+            PeerConnection.Observer d = delegate;
+            if (d != null) {
+                d.onIceCandidatesRemoved(candidates);
+            }
+        }
+
+        @Override
+        public void onSelectedCandidatePairChanged(CandidatePairChangeEvent event) {
+            PeerConnection.Observer d = delegate;
+            if (d != null) {
+                d.onSelectedCandidatePairChanged(event);
+            }
+        }
+
+        @Override
+        public void onAddStream(MediaStream stream) {
+            PeerConnection.Observer d = delegate;
+            if (d != null) {
+                d.onAddStream(stream);
+            }
+        }
+
+        @Override
+        public void onRemoveStream(MediaStream stream) {
+            PeerConnection.Observer d = delegate;
+            if (d != null) {
+                d.onRemoveStream(stream);
+            }
+        }
+
+        @Override
+        public void onDataChannel(DataChannel dataChannel) {
+            PeerConnection.Observer d = delegate;
+            if (d != null) {
+                d.onDataChannel(dataChannel);
+            }
+        }
+
+        @Override
+        public void onRenegotiationNeeded() {
+            PeerConnection.Observer d = delegate;
+            if (d != null) {
+                d.onRenegotiationNeeded();
+            }
+        }
+
+        @Override
+        public void onAddTrack(RtpReceiver receiver, MediaStream[] streams) {
+            PeerConnection.Observer d = delegate;
+            if (d != null) {
+                d.onAddTrack(receiver, streams);
+            }
+        }
+
+        @Override
+        public void onTrack(RtpTransceiver transceiver) {
+            PeerConnection.Observer d = delegate;
+            if (d != null) {
+                d.onTrack(transceiver);
+            }
+        }
+    }
+}
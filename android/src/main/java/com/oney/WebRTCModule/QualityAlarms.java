@@ -0,0 +1,202 @@
+package com.oney.WebRTCModule;
+
+import android.util.Log;
+import android.util.SparseArray;
+
+import com.facebook.react.bridge.Arguments;
+import com.facebook.react.bridge.ReadableArray;
+import com.facebook.react.bridge.ReadableMap;
+import com.facebook.react.bridge.WritableMap;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.webrtc.RTCStatsReport;
+
+/**
+ * Evaluates threshold rules (e.g. packet loss above 5% for 3 seconds) against
+ * the {@link StatsMetrics} of every {@code PeerConnection} on the thread of
+ * {@link StatsSampler} and notifies JS only when a rule changes state. A rule
+ * is raised after its metric has been beyond its threshold for its duration
+ * and cleared (with hysteresis) after the metric has been back beyond its
+ * clear threshold for the same duration.
+ */
+class QualityAlarms implements StatsSampler.Listener {
+    /**
+     * The {@link Log} tag with which {@code QualityAlarms} is to log.
+     */
+    private static final String TAG = WebRTCModule.TAG;
+
+    private final long intervalMs;
+
+    /**
+     * The last report of every {@code PeerConnection} for which rates are
+     * derived.
+     */
+    private SparseArray<RTCStatsReport> previousReports = new SparseArray<>();
+
+    private final List<Rule> rules;
+
+    private final WebRTCModule webRTCModule;
+
+    /**
+     * Initializes a new {@code QualityAlarms} instance.
+     *
+     * @param rules the rules as JS objects with {@code id}, {@code metric}
+     * (one of {@link StatsMetrics#NAMES}), {@code operator} ({@code "above"}
+     * or {@code "below"}), {@code threshold} and optionally
+     * {@code clearThreshold}, {@code durationMs} and {@code peerConnectionId}
+     * @throws IllegalArgumentException if any rule is invalid
+     */
+    QualityAlarms(
+            WebRTCModule webRTCModule,
+            ReadableArray rules,
+            long intervalMs) {
+        this.webRTCModule = webRTCModule;
+        this.intervalMs = intervalMs;
+        this.rules = new ArrayList<>(rules.size());
+        for (int i = 0; i < rules.size(); i++) {
+            this.rules.add(new Rule(rules.getMap(i)));
+        }
+    }
+
+    long getIntervalMs() {
+        return intervalMs;
+    }
+
+    @Override
+    public void onStatsSampled(long timestampMs, SparseArray<RTCStatsReport> reports) {
+        for (int i = 0, size = reports.size(); i < size; i++) {
+            int id = reports.keyAt(i);
+            RTCStatsReport report = reports.valueAt(i);
+            StatsMetrics metrics
+                = StatsMetrics.compute(previousReports.get(id), report);
+
+            for (Rule rule : rules) {
+                rule.evaluate(id, timestampMs, metrics);
+            }
+        }
+
+        // Forget the PeerConnections which have been closed.
+        for (Rule rule : rules) {
+            for (int i = rule.states.size() - 1; i >= 0; i--) {
+                if (reports.indexOfKey(rule.states.keyAt(i)) < 0) {
+                    rule.states.removeAt(i);
+                }
+            }
+        }
+        previousReports = reports;
+    }
+
+    private void emit(Rule rule, int id, State state, double value) {
+        Log.d(TAG, "QualityAlarms rule " + rule.id + " "
+            + (state.active ? "raised" : "cleared")
+            + " for PeerConnection " + id + ": " + rule.metric + "=" + value);
+
+        WritableMap params = Arguments.createMap();
+        params.putInt("id", id);
+        params.putString("ruleId", rule.id);
+        params.putString("metric", rule.metric);
+        params.putBoolean("active", state.active);
+        params.putDouble("value", value);
+        params.putDouble("threshold", state.active ? rule.threshold : rule.clearThreshold);
+        webRTCModule.sendEvent("peerConnectionQualityAlarm", params);
+    }
+
+    private class Rule {
+        final boolean above;
+        final double clearThreshold;
+        final long durationMs;
+        final String id;
+        final String metric;
+        final int peerConnectionId;
+        final SparseArray<State> states = new SparseArray<>();
+        final double threshold;
+
+        Rule(ReadableMap map) {
+            if (!map.hasKey("id") || !map.hasKey("metric")
+                    || !map.hasKey("threshold")) {
+                throw new IllegalArgumentException(
+                    "A rule requires id, metric and threshold");
+            }
+            id = map.getString("id");
+            metric = map.getString("metric");
+            if (!StatsMetrics.isName(metric)) {
+                throw new IllegalArgumentException("Unknown metric: " + metric);
+            }
+
+            String operator
+                = map.hasKey("operator") ? map.getString("operator") : "above";
+            if ("above".equals(operator)) {
+                above = true;
+            } else if ("below".equals(operator)) {
+                above = false;
+            } else {
+                throw new IllegalArgumentException("Unknown operator: " + operator);
+            }
+
+            threshold = map.getDouble("threshold");
+            clearThreshold
+                = map.hasKey("clearThreshold")
+                    ? map.getDouble("clearThreshold")
+                    : threshold;
+            if (above ? clearThreshold > threshold : clearThreshold < threshold) {
+                throw new IllegalArgumentException(
+                    "The clearThreshold of " + id + " is beyond its threshold");
+            }
+            durationMs
+                = map.hasKey("durationMs") ? (long) map.getDouble("durationMs") : 0;
+            peerConnectionId
+                = map.hasKey("peerConnectionId") ? map.getInt("peerConnectionId") : -1;
+        }
+
+        void evaluate(int id, long timestampMs, StatsMetrics metrics) {
+            if (peerConnectionId != -1 && peerConnectionId != id) {
+                return;
+            }
+
+            double value = metrics.get(metric);
+            if (Double.isNaN(value)) {
+                // An unknown value neither raises nor clears the rule.
+                return;
+            }
+
+            State state = states.get(id);
+            if (state == null) {
+                state = new State();
+                states.put(id, state);
+            }
+
+            boolean transition
+                = state.active
+                    ? (above ? value < clearThreshold : value > clearThreshold)
+                    : (above ? value > threshold : value < threshold);
+
+            if (!transition) {
+                state.sinceMs = -1;
+                return;
+            }
+            if (state.sinceMs == -1) {
+                state.sinceMs = timestampMs;
+            }
+            if (timestampMs - state.sinceMs >= durationMs) {
+                state.active = !state.active;
+                state.sinceMs = -1;
+                emit(this, id, state, value);
+            }
+        }
+    }
+
+    /**
+     * The state of a rule for a specific {@code PeerConnection}.
+     */
+    private static class State {
+        boolean active;
+
+        /**
+         * The time since which the metric has been beyond the threshold which
+         * changes {@link #active} or -1.
+         */
+        long sinceMs = -1;
+    }
+}
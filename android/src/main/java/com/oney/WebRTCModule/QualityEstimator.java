@@ -0,0 +1,262 @@
+package com.oney.WebRTCModule;
+
+import android.util.SparseArray;
+
+import com.facebook.react.bridge.Arguments;
+import com.facebook.react.bridge.WritableMap;
+
+import org.webrtc.RTCStatsReport;
+
+/**
+ * Estimates the call quality of every {@code PeerConnection} as a MOS-like
+ * score between 1 (bad) and 4.5 (excellent) from the {@link StatsMetrics}
+ * derived on the thread of {@link StatsSampler}. The audio score follows a
+ * simplified ITU-T G.107 E-model (delay from round-trip time and jitter,
+ * impairment from loss and concealment); the video score is reduced by loss,
+ * a low framerate and freezes. The overall score is the lower of the two.
+ *
+ * Scores are smoothed over samples, published for a cheap synchronous read
+ * through {@link #get(int)} and emitted to JS only when they change.
+ */
+class QualityEstimator implements StatsSampler.Listener {
+    static final double MAX_SCORE = 4.5;
+
+    static final double MIN_SCORE = 1;
+
+    /**
+     * The weight of the latest sample in the smoothed scores.
+     */
+    private static final double SMOOTHING = 0.3;
+
+    /**
+     * The granularity at which changes of scores are emitted to JS.
+     */
+    private static final double STEP = 0.1;
+
+    /**
+     * The latest estimates mapped by {@code PeerConnection} ID. Replaced as a
+     * whole on every sample so that it can be read from any thread.
+     */
+    private volatile SparseArray<Estimate> estimates = new SparseArray<>();
+
+    private final long intervalMs;
+
+    private SparseArray<RTCStatsReport> previousReports = new SparseArray<>();
+
+    private final WebRTCModule webRTCModule;
+
+    QualityEstimator(WebRTCModule webRTCModule, long intervalMs) {
+        this.webRTCModule = webRTCModule;
+        this.intervalMs = intervalMs;
+    }
+
+    long getIntervalMs() {
+        return intervalMs;
+    }
+
+    /**
+     * Gets the latest estimate of the quality of a specific
+     * {@code PeerConnection}. May be invoked on any thread.
+     *
+     * @return the estimate or {@code null} if there is none yet
+     */
+    Estimate get(int id) {
+        return estimates.get(id);
+    }
+
+    @Override
+    public void onStatsSampled(long timestampMs, SparseArray<RTCStatsReport> reports) {
+        SparseArray<Estimate> previousEstimates = estimates;
+        SparseArray<Estimate> newEstimates = new SparseArray<>(reports.size());
+
+        for (int i = 0, size = reports.size(); i < size; i++) {
+            int id = reports.keyAt(i);
+            StatsMetrics metrics
+                = StatsMetrics.compute(
+                    previousReports.get(id),
+                    reports.valueAt(i));
+            Estimate previous = previousEstimates.get(id);
+            Estimate estimate = new Estimate(timestampMs, metrics, previous);
+
+            newEstimates.put(id, estimate);
+            if (previous == null
+                    ? !Double.isNaN(estimate.score)
+                    : estimate.differsFrom(previous)) {
+                emit(id, estimate);
+            } else if (previous != null) {
+                // Keep reporting changes relative to what JS has last seen.
+                estimate.emittedScore = previous.emittedScore;
+            }
+        }
+
+        estimates = newEstimates;
+        previousReports = reports;
+    }
+
+    private void emit(int id, Estimate estimate) {
+        estimate.emittedScore = estimate.score;
+
+        WritableMap params = estimate.toMap(false);
+        params.putInt("id", id);
+        webRTCModule.sendEvent("peerConnectionQualityChanged", params);
+    }
+
+    /**
+     * Computes the audio score of specific metrics.
+     *
+     * @return the score or {@code NaN} if there is no inbound audio
+     */
+    static double computeAudioScore(StatsMetrics metrics) {
+        double loss
+            = Math.max(
+                orZero(metrics.audioPacketLossPercent),
+                orZero(metrics.concealedPercent));
+
+        if (Double.isNaN(metrics.audioPacketLossPercent)
+                && Double.isNaN(metrics.concealedPercent)) {
+            return Double.NaN;
+        }
+
+        // The effective latency: one-way delay, the jitter buffer (assumed
+        // to be twice the jitter) and the codec.
+        double latency
+            = orZero(metrics.roundTripTimeMs) / 2
+                + orZero(metrics.jitterMs) * 2
+                + 10;
+        double r = (latency < 160) ? 93.2 - latency / 40 : 93.2 - (latency - 120) / 10;
+
+        r -= loss * 2.5;
+
+        return rToMos(r);
+    }
+
+    /**
+     * Computes the video score of specific metrics.
+     *
+     * @return the score or {@code NaN} if there is no inbound video
+     */
+    static double computeVideoScore(StatsMetrics metrics) {
+        if (Double.isNaN(metrics.videoPacketLossPercent)
+                && Double.isNaN(metrics.framesPerSecond)) {
+            return Double.NaN;
+        }
+
+        double score = MAX_SCORE;
+
+        score -= Math.min(1.5, orZero(metrics.videoPacketLossPercent) * 0.15);
+        if (metrics.framesPerSecond < 24) {
+            score -= (24 - metrics.framesPerSecond) / 24 * 1.5;
+        }
+        score -= Math.min(2, orZero(metrics.freezeDurationPercent) * 0.05);
+
+        double rtt = orZero(metrics.roundTripTimeMs);
+        if (rtt > 300) {
+            score -= Math.min(1, (rtt - 300) / 500);
+        }
+
+        return clamp(score);
+    }
+
+    private static double rToMos(double r) {
+        if (r <= 0) {
+            return MIN_SCORE;
+        }
+        if (r >= 100) {
+            return MAX_SCORE;
+        }
+        return clamp(1 + 0.035 * r + 7e-6 * r * (r - 60) * (100 - r));
+    }
+
+    private static double clamp(double score) {
+        return Math.max(MIN_SCORE, Math.min(MAX_SCORE, score));
+    }
+
+    private static double orZero(double value) {
+        return Double.isNaN(value) ? 0 : value;
+    }
+
+    private static double smooth(double previous, double current) {
+        if (Double.isNaN(previous)) {
+            return current;
+        }
+        if (Double.isNaN(current)) {
+            return previous;
+        }
+        return previous + SMOOTHING * (current - previous);
+    }
+
+    private static void putScore(WritableMap map, String key, double score) {
+        if (Double.isNaN(score)) {
+            map.putNull(key);
+        } else {
+            map.putDouble(key, Math.round(score / STEP) * STEP);
+        }
+    }
+
+    /**
+     * The quality of a {@code PeerConnection} at a specific time.
+     */
+    static class Estimate {
+        final double audioScore;
+
+        /**
+         * The score last emitted to JS.
+         */
+        double emittedScore;
+
+        /**
+         * The metrics the scores were computed from, for debugging.
+         */
+        final StatsMetrics metrics;
+
+        final double score;
+
+        final long timestampMs;
+
+        final double videoScore;
+
+        Estimate(long timestampMs, StatsMetrics metrics, Estimate previous) {
+            this.timestampMs = timestampMs;
+            this.metrics = metrics;
+
+            double audio = computeAudioScore(metrics);
+            double video = computeVideoScore(metrics);
+
+            if (previous != null) {
+                audio = smooth(previous.audioScore, audio);
+                video = smooth(previous.videoScore, video);
+            }
+            audioScore = audio;
+            videoScore = video;
+
+            if (Double.isNaN(audio)) {
+                score = video;
+            } else if (Double.isNaN(video)) {
+                score = audio;
+            } else {
+                score = Math.min(audio, video);
+            }
+            emittedScore = Double.NaN;
+        }
+
+        boolean differsFrom(Estimate previous) {
+            if (Double.isNaN(score) || Double.isNaN(previous.emittedScore)) {
+                return Double.isNaN(score) != Double.isNaN(previous.emittedScore);
+            }
+            return Math.round(score / STEP) != Math.round(previous.emittedScore / STEP);
+        }
+
+        WritableMap toMap(boolean includeInputs) {
+            WritableMap map = Arguments.createMap();
+
+            putScore(map, "score", score);
+            putScore(map, "audioScore", audioScore);
+            putScore(map, "videoScore", videoScore);
+            map.putDouble("timestamp", timestampMs);
+            if (includeInputs) {
+                map.putMap("inputs", metrics.toMap());
+            }
+            return map;
+        }
+    }
+}
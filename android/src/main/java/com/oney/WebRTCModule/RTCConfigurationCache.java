@@ -0,0 +1,143 @@
+package com.oney.WebRTCModule;
+
+import android.util.Log;
+
+import androidx.annotation.Nullable;
+
+import com.facebook.react.bridge.Arguments;
+import com.facebook.react.bridge.ReadableMap;
+import com.facebook.react.bridge.WritableMap;
+
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.webrtc.PeerConnection;
+
+/**
+ * Caches parsed {@code RTCConfiguration}s by the content of their JS
+ * configuration maps (least recently used ones are evicted) and holds named
+ * configuration profiles, so that creating many {@code PeerConnection}s with
+ * the same configuration (e.g. in a mesh) parses it and builds its
+ * {@code IceServer}s once.
+ *
+ * A cached {@code RTCConfiguration} is shared by all users and must not be
+ * modified.
+ */
+class RTCConfigurationCache {
+    /**
+     * The {@link Log} tag with which {@code RTCConfigurationCache} is to log.
+     */
+    private static final String TAG = WebRTCModule.TAG;
+
+    private static final int MAX_ENTRIES = 16;
+
+    private final LinkedHashMap<Map<String, Object>, Entry> entries
+        = new LinkedHashMap<Map<String, Object>, Entry>(
+                MAX_ENTRIES, 0.75f, /* accessOrder */ true) {
+            @Override
+            protected boolean removeEldestEntry(
+                    Map.Entry<Map<String, Object>, Entry> eldest) {
+                return size() > MAX_ENTRIES;
+            }
+        };
+
+    private long hits;
+
+    private long misses;
+
+    private final Parser parser;
+
+    private final Map<String, Entry> profiles = new HashMap<>();
+
+    RTCConfigurationCache(Parser parser) {
+        this.parser = parser;
+    }
+
+    /**
+     * Gets the parsed form of a specific JS configuration, parsing it only if
+     * an equal one is not cached.
+     */
+    synchronized Entry get(@Nullable ReadableMap configuration) {
+        Map<String, Object> key
+            = (configuration == null)
+                ? new HashMap<>()
+                : configuration.toHashMap();
+        Entry entry = entries.get(key);
+
+        if (entry == null) {
+            misses++;
+            entry = new Entry(key, parser.parse(configuration));
+            entries.put(key, entry);
+        } else {
+            hits++;
+        }
+        return entry;
+    }
+
+    /**
+     * Gets a named configuration profile.
+     *
+     * @return the profile or {@code null} if none is registered by the name
+     */
+    synchronized Entry getProfile(String name) {
+        return profiles.get(name);
+    }
+
+    /**
+     * Registers (or replaces) a named configuration profile.
+     */
+    synchronized void putProfile(String name, @Nullable ReadableMap configuration) {
+        // Profiles are not subject to eviction so they do not stay in entries.
+        Map<String, Object> key
+            = (configuration == null)
+                ? new HashMap<>()
+                : configuration.toHashMap();
+        Entry entry = entries.get(key);
+
+        if (entry == null) {
+            entry = new Entry(key, parser.parse(configuration));
+        }
+        profiles.put(name, entry);
+        Log.d(TAG, "RTCConfiguration profile registered: " + name);
+    }
+
+    synchronized boolean removeProfile(String name) {
+        return profiles.remove(name) != null;
+    }
+
+    synchronized WritableMap getStats() {
+        WritableMap map = Arguments.createMap();
+
+        map.putInt("size", entries.size());
+        map.putInt("profiles", profiles.size());
+        map.putDouble("hits", hits);
+        map.putDouble("misses", misses);
+        return map;
+    }
+
+    /**
+     * A JS configuration and its parsed form.
+     */
+    static class Entry {
+        final PeerConnection.RTCConfiguration configuration;
+
+        /**
+         * The JS configuration as a {@code Map} which identifies it by
+         * content.
+         */
+        final Map<String, Object> key;
+
+        Entry(Map<String, Object> key, PeerConnection.RTCConfiguration configuration) {
+            this.key = key;
+            this.configuration = configuration;
+        }
+    }
+
+    /**
+     * Parses a JS configuration into an {@code RTCConfiguration}.
+     */
+    interface Parser {
+        PeerConnection.RTCConfiguration parse(@Nullable ReadableMap configuration);
+    }
+}
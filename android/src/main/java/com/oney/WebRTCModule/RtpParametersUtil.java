@@ -0,0 +1,198 @@
+package com.oney.WebRTCModule;
+
+import androidx.annotation.Nullable;
+
+import com.facebook.react.bridge.Arguments;
+import com.facebook.react.bridge.ReadableArray;
+import com.facebook.react.bridge.ReadableMap;
+import com.facebook.react.bridge.WritableArray;
+import com.facebook.react.bridge.WritableMap;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.webrtc.RtpParameters;
+
+/**
+ * Converts the {@code RtpParameters} of an {@code RtpSender} to and from their
+ * JS form as in {@code RTCRtpSendParameters}: {@code degradationPreference}
+ * and {@code encodings} with {@code rid}, {@code active}, {@code maxBitrate},
+ * {@code minBitrate}, {@code maxFramerate} and {@code scaleResolutionDownBy}.
+ */
+final class RtpParametersUtil {
+    private RtpParametersUtil() {
+    }
+
+    /**
+     * Updates specific {@code RtpParameters} (as returned by
+     * {@code RtpSender.getParameters()}) with the values present in a specific
+     * JS form. Values which are absent are left as they are and {@code null}
+     * values remove the respective limits.
+     *
+     * @throws IllegalArgumentException if {@code map} is not valid for
+     * {@code parameters}
+     */
+    static void apply(RtpParameters parameters, ReadableMap map) {
+        if (map.hasKey("degradationPreference")
+                && !map.isNull("degradationPreference")) {
+            parameters.degradationPreference
+                = parseDegradationPreference(map.getString("degradationPreference"));
+        }
+
+        if (map.hasKey("encodings") && !map.isNull("encodings")) {
+            ReadableArray encodings = map.getArray("encodings");
+            if (encodings.size() != parameters.encodings.size()) {
+                throw new IllegalArgumentException(
+                    "The number of encodings cannot be changed: expected "
+                        + parameters.encodings.size() + " but got "
+                        + encodings.size());
+            }
+            for (int i = 0; i < encodings.size(); i++) {
+                apply(parameters.encodings.get(i), encodings.getMap(i));
+            }
+        }
+    }
+
+    private static void apply(RtpParameters.Encoding encoding, ReadableMap map) {
+        if (map.hasKey("active")) {
+            encoding.active = map.getBoolean("active");
+        }
+        if (map.hasKey("maxBitrate")) {
+            encoding.maxBitrateBps = getPositiveInteger(map, "maxBitrate");
+        }
+        if (map.hasKey("minBitrate")) {
+            encoding.minBitrateBps = getPositiveInteger(map, "minBitrate");
+        }
+        if (map.hasKey("maxFramerate")) {
+            encoding.maxFramerate = getPositiveInteger(map, "maxFramerate");
+        }
+        if (map.hasKey("scaleResolutionDownBy")) {
+            if (map.isNull("scaleResolutionDownBy")) {
+                encoding.scaleResolutionDownBy = null;
+            } else {
+                double v = map.getDouble("scaleResolutionDownBy");
+                if (v < 1) {
+                    throw new IllegalArgumentException(
+                        "scaleResolutionDownBy must be at least 1: " + v);
+                }
+                encoding.scaleResolutionDownBy = v;
+            }
+        }
+    }
+
+    /**
+     * Parses the JS form of the {@code sendEncodings} of a transceiver e.g.
+     * the layers to simulcast, each with its {@code rid}.
+     *
+     * @throws IllegalArgumentException if {@code array} is not valid
+     */
+    static List<RtpParameters.Encoding> parseEncodings(ReadableArray array) {
+        List<RtpParameters.Encoding> encodings = new ArrayList<>(array.size());
+        Set<String> rids = new HashSet<>();
+
+        for (int i = 0; i < array.size(); i++) {
+            ReadableMap map = array.getMap(i);
+            String rid
+                = (map.hasKey("rid") && !map.isNull("rid"))
+                    ? map.getString("rid")
+                    : null;
+
+            if (array.size() > 1 && (rid == null || !rids.add(rid))) {
+                throw new IllegalArgumentException(
+                    "Each of multiple encodings needs a unique rid");
+            }
+
+            RtpParameters.Encoding encoding
+                = new RtpParameters.Encoding(rid, /* active */ true, null);
+            apply(encoding, map);
+            encodings.add(encoding);
+        }
+        return encodings;
+    }
+
+    @Nullable
+    private static Integer getPositiveInteger(ReadableMap map, String key) {
+        if (map.isNull(key)) {
+            return null;
+        }
+
+        double v = map.getDouble(key);
+        if (v <= 0) {
+            throw new IllegalArgumentException(key + " must be positive: " + v);
+        }
+        return (int) Math.min(v, Integer.MAX_VALUE);
+    }
+
+    private static RtpParameters.DegradationPreference parseDegradationPreference(
+            String s) {
+        switch (s) {
+            case "balanced":
+                return RtpParameters.DegradationPreference.BALANCED;
+            case "disabled":
+                return RtpParameters.DegradationPreference.DISABLED;
+            case "maintain-framerate":
+                return RtpParameters.DegradationPreference.MAINTAIN_FRAMERATE;
+            case "maintain-resolution":
+                return RtpParameters.DegradationPreference.MAINTAIN_RESOLUTION;
+            default:
+                throw new IllegalArgumentException(
+                    "Invalid degradationPreference: " + s);
+        }
+    }
+
+    @Nullable
+    private static String degradationPreferenceString(
+            @Nullable RtpParameters.DegradationPreference degradationPreference) {
+        if (degradationPreference == null) {
+            return null;
+        }
+        switch (degradationPreference) {
+            case BALANCED:
+                return "balanced";
+            case DISABLED:
+                return "disabled";
+            case MAINTAIN_FRAMERATE:
+                return "maintain-framerate";
+            case MAINTAIN_RESOLUTION:
+                return "maintain-resolution";
+        }
+        return null;
+    }
+
+    static WritableMap toMap(RtpParameters parameters) {
+        WritableMap map = Arguments.createMap();
+        WritableArray encodings = Arguments.createArray();
+
+        map.putString(
+            "degradationPreference",
+            degradationPreferenceString(parameters.degradationPreference));
+        for (RtpParameters.Encoding encoding : parameters.encodings) {
+            WritableMap e = Arguments.createMap();
+            if (encoding.rid != null) {
+                e.putString("rid", encoding.rid);
+            }
+            e.putBoolean("active", encoding.active);
+            if (encoding.maxBitrateBps != null) {
+                e.putInt("maxBitrate", encoding.maxBitrateBps);
+            }
+            if (encoding.minBitrateBps != null) {
+                e.putInt("minBitrate", encoding.minBitrateBps);
+            }
+            if (encoding.maxFramerate != null) {
+                e.putInt("maxFramerate", encoding.maxFramerate);
+            }
+            if (encoding.scaleResolutionDownBy != null) {
+                e.putDouble("scaleResolutionDownBy", encoding.scaleResolutionDownBy);
+            }
+            if (encoding.ssrc != null) {
+                e.putDouble("ssrc", encoding.ssrc);
+            }
+            encodings.pushMap(e);
+        }
+        map.putArray("encodings", encodings);
+
+        return map;
+    }
+}
@@ -0,0 +1,372 @@
+package com.oney.WebRTCModule;
+
+import com.facebook.react.bridge.ReadableArray;
+import com.facebook.react.bridge.ReadableMap;
+import com.facebook.react.bridge.ReadableMapKeySetIterator;
+import com.facebook.react.bridge.ReadableType;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Declaratively transforms the SDP created by a {@code PeerConnection} before
+ * it crosses the bridge: removes unwanted codecs (together with their RTX
+ * payload types), reorders codecs by preference, caps the bandwidth of media
+ * sections with b=AS and b=TIAS and sets Opus fmtp parameters. Configured
+ * from JS with an object such as:
+ *
+ * <pre>
+ * {
+ *   codecOrder: { video: [ 'H264', 'VP8' ] },
+ *   removeCodecs: { video: [ 'VP9' ] },
+ *   bandwidth: { audio: 64, video: 1500 }, // kbps
+ *   opus: { useinbandfec: 1, usedtx: 1, maxaveragebitrate: 32000 }
+ * }
+ * </pre>
+ *
+ * Instances are immutable and thread-safe.
+ */
+class SdpTransformer {
+    private static final String CRLF = "\r\n";
+
+    /**
+     * The bandwidth caps in kbps by media type.
+     */
+    private final Map<String, Integer> bandwidth;
+
+    /**
+     * The preferred codec names (upper case) by media type, most preferred
+     * first.
+     */
+    private final Map<String, List<String>> codecOrder;
+
+    private final Map<String, String> opusParameters;
+
+    /**
+     * The codec names (upper case) to remove by media type.
+     */
+    private final Map<String, Set<String>> removeCodecs;
+
+    SdpTransformer(ReadableMap options) {
+        codecOrder = new HashMap<>();
+        removeCodecs = new HashMap<>();
+        bandwidth = new HashMap<>();
+        opusParameters = new LinkedHashMap<>();
+
+        if (options.hasKey("codecOrder")) {
+            ReadableMap map = options.getMap("codecOrder");
+            ReadableMapKeySetIterator i = map.keySetIterator();
+            while (i.hasNextKey()) {
+                String media = i.nextKey();
+                codecOrder.put(media, toUpperCaseList(map.getArray(media)));
+            }
+        }
+        if (options.hasKey("removeCodecs")) {
+            ReadableMap map = options.getMap("removeCodecs");
+            ReadableMapKeySetIterator i = map.keySetIterator();
+            while (i.hasNextKey()) {
+                String media = i.nextKey();
+                removeCodecs.put(
+                    media,
+                    new HashSet<>(toUpperCaseList(map.getArray(media))));
+            }
+        }
+        if (options.hasKey("bandwidth")) {
+            ReadableMap map = options.getMap("bandwidth");
+            ReadableMapKeySetIterator i = map.keySetIterator();
+            while (i.hasNextKey()) {
+                String media = i.nextKey();
+                if (!map.isNull(media)) {
+                    bandwidth.put(media, (int) map.getDouble(media));
+                }
+            }
+        }
+        if (options.hasKey("opus")) {
+            ReadableMap map = options.getMap("opus");
+            ReadableMapKeySetIterator i = map.keySetIterator();
+            while (i.hasNextKey()) {
+                String key = i.nextKey();
+                opusParameters.put(key, getFmtpValue(map, key));
+            }
+        }
+    }
+
+    /**
+     * Gets the value of a specific fmtp parameter. Unlike
+     * {@link ReactBridgeUtil#getMapStrValue}, integral numbers are formatted
+     * without a fraction as fmtp requires.
+     */
+    private static String getFmtpValue(ReadableMap map, String key) {
+        if (map.getType(key) == ReadableType.Number) {
+            double value = map.getDouble(key);
+            if (value == Math.rint(value)) {
+                return String.valueOf((long) value);
+            }
+        } else if (map.getType(key) == ReadableType.Boolean) {
+            return map.getBoolean(key) ? "1" : "0";
+        }
+        return ReactBridgeUtil.getMapStrValue(map, key);
+    }
+
+    private static List<String> toUpperCaseList(ReadableArray array) {
+        List<String> list = new ArrayList<>(array.size());
+        for (int i = 0; i < array.size(); i++) {
+            list.add(array.getString(i).toUpperCase(Locale.US));
+        }
+        return list;
+    }
+
+    /**
+     * Transforms a specific SDP.
+     */
+    String transform(String sdp) {
+        String[] lines = sdp.split(CRLF);
+        StringBuilder out = new StringBuilder(sdp.length() + 128);
+        int start = 0;
+
+        // The session section is copied as is.
+        while (start < lines.length && !lines[start].startsWith("m=")) {
+            appendLine(out, lines[start++]);
+        }
+        while (start < lines.length) {
+            int end = start + 1;
+            while (end < lines.length && !lines[end].startsWith("m=")) {
+                end++;
+            }
+            transformMediaSection(lines, start, end, out);
+            start = end;
+        }
+
+        return out.toString();
+    }
+
+    private static void appendLine(StringBuilder out, String line) {
+        if (!line.isEmpty()) {
+            out.append(line).append(CRLF);
+        }
+    }
+
+    /**
+     * Transforms the media section {@code lines[start..end)} (which starts
+     * with its m= line) into {@code out}.
+     */
+    private void transformMediaSection(
+            String[] lines,
+            int start,
+            int end,
+            StringBuilder out) {
+        // m=<media> <port> <proto> <fmt> ...
+        String[] mLine = lines[start].split(" ");
+        String media = mLine[0].substring(2);
+
+        if (mLine.length < 4) {
+            for (int i = start; i < end; i++) {
+                appendLine(out, lines[i]);
+            }
+            return;
+        }
+
+        // Map the payload types to their codec names and RTX payload types to
+        // the ones they are associated with.
+        Map<String, String> codecs = new HashMap<>();
+        Map<String, String> apts = new HashMap<>();
+        for (int i = start + 1; i < end; i++) {
+            String line = lines[i];
+            if (line.startsWith("a=rtpmap:")) {
+                int space = line.indexOf(' ');
+                int slash = line.indexOf('/', space);
+                if (space > 0) {
+                    codecs.put(
+                        line.substring("a=rtpmap:".length(), space),
+                        line.substring(space + 1, slash > 0 ? slash : line.length())
+                            .toUpperCase(Locale.US));
+                }
+            } else if (line.startsWith("a=fmtp:")) {
+                int space = line.indexOf(' ');
+                int apt = line.indexOf("apt=");
+                if (space > 0 && apt > 0) {
+                    int sep = line.indexOf(';', apt);
+                    apts.put(
+                        line.substring("a=fmtp:".length(), space),
+                        line.substring(apt + 4, sep > 0 ? sep : line.length()));
+                }
+            }
+        }
+
+        // Remove the unwanted codecs and their RTX payload types.
+        Set<String> removed = new HashSet<>();
+        Set<String> remove = removeCodecs.get(media);
+        if (remove != null) {
+            for (Map.Entry<String, String> e : codecs.entrySet()) {
+                if (remove.contains(e.getValue())) {
+                    removed.add(e.getKey());
+                }
+            }
+            for (Map.Entry<String, String> e : apts.entrySet()) {
+                if (removed.contains(e.getValue())) {
+                    removed.add(e.getKey());
+                }
+            }
+        }
+
+        List<String> payloadTypes = new ArrayList<>(mLine.length - 3);
+        for (int i = 3; i < mLine.length; i++) {
+            if (!removed.contains(mLine[i])) {
+                payloadTypes.add(mLine[i]);
+            }
+        }
+        if (payloadTypes.isEmpty()) {
+            // Removing every codec would make the SDP invalid.
+            for (int i = start; i < end; i++) {
+                appendLine(out, lines[i]);
+            }
+            return;
+        }
+
+        // Move the preferred codecs to the front, keeping the relative order
+        // of the rest.
+        List<String> order = codecOrder.get(media);
+        if (order != null) {
+            List<String> sorted = new ArrayList<>(payloadTypes.size());
+            for (String codec : order) {
+                for (String pt : payloadTypes) {
+                    if (codec.equals(codecs.get(pt)) && !sorted.contains(pt)) {
+                        sorted.add(pt);
+                    }
+                }
+            }
+            for (String pt : payloadTypes) {
+                if (!sorted.contains(pt)) {
+                    sorted.add(pt);
+                }
+            }
+            payloadTypes = sorted;
+        }
+
+        out.append(mLine[0]).append(' ').append(mLine[1]).append(' ').append(mLine[2]);
+        for (String pt : payloadTypes) {
+            out.append(' ').append(pt);
+        }
+        out.append(CRLF);
+
+        Integer kbps = bandwidth.get(media);
+        boolean bandwidthWritten = (kbps == null);
+        boolean opus = "audio".equals(media) && !opusParameters.isEmpty();
+
+        for (int i = start + 1; i < end; i++) {
+            String line = lines[i];
+
+            if (!removed.isEmpty() && isForPayloadTypes(line, removed)) {
+                continue;
+            }
+            if (kbps != null
+                    && (line.startsWith("b=AS:") || line.startsWith("b=TIAS:"))) {
+                continue;
+            }
+            if (opus && line.startsWith("a=fmtp:")) {
+                String pt = getPayloadType(line, "a=fmtp:");
+                if ("OPUS".equals(codecs.get(pt))) {
+                    line = mergeFmtp(line, opusParameters);
+                }
+            }
+            // b= lines go after i= and c= lines, i.e. before the first a= line.
+            if (!bandwidthWritten && line.startsWith("a=")) {
+                appendBandwidth(out, kbps);
+                bandwidthWritten = true;
+            }
+            appendLine(out, line);
+
+            if (opus && line.startsWith("a=rtpmap:")) {
+                String pt = getPayloadType(line, "a=rtpmap:");
+                if ("OPUS".equals(codecs.get(pt)) && !hasFmtp(lines, start, end, pt)) {
+                    appendLine(out, mergeFmtp("a=fmtp:" + pt + " ", opusParameters));
+                }
+            }
+        }
+        if (!bandwidthWritten) {
+            appendBandwidth(out, kbps);
+        }
+    }
+
+    private static void appendBandwidth(StringBuilder out, int kbps) {
+        out.append("b=AS:").append(kbps).append(CRLF);
+        out.append("b=TIAS:").append(kbps * 1000L).append(CRLF);
+    }
+
+    private static String getPayloadType(String line, String prefix) {
+        int space = line.indexOf(' ');
+        return line.substring(prefix.length(), space > 0 ? space : line.length());
+    }
+
+    private static boolean hasFmtp(String[] lines, int start, int end, String pt) {
+        String prefix = "a=fmtp:" + pt + " ";
+        for (int i = start; i < end; i++) {
+            if (lines[i].startsWith(prefix)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Determines whether a specific line is an a=rtpmap, a=fmtp or a=rtcp-fb
+     * line of any of specific payload types.
+     */
+    private static boolean isForPayloadTypes(String line, Set<String> payloadTypes) {
+        String prefix;
+
+        if (line.startsWith("a=rtpmap:")) {
+            prefix = "a=rtpmap:";
+        } else if (line.startsWith("a=fmtp:")) {
+            prefix = "a=fmtp:";
+        } else if (line.startsWith("a=rtcp-fb:")) {
+            prefix = "a=rtcp-fb:";
+        } else {
+            return false;
+        }
+        return payloadTypes.contains(getPayloadType(line, prefix));
+    }
+
+    /**
+     * Merges specific parameters into an a=fmtp line, replacing the values of
+     * the parameters it already has.
+     */
+    private static String mergeFmtp(String line, Map<String, String> parameters) {
+        int space = line.indexOf(' ');
+        Map<String, String> merged = new LinkedHashMap<>();
+
+        for (String parameter : line.substring(space + 1).split(";")) {
+            parameter = parameter.trim();
+            if (parameter.isEmpty()) {
+                continue;
+            }
+            int eq = parameter.indexOf('=');
+            if (eq > 0) {
+                merged.put(parameter.substring(0, eq), parameter.substring(eq + 1));
+            } else {
+                merged.put(parameter, null);
+            }
+        }
+        merged.putAll(parameters);
+
+        StringBuilder s = new StringBuilder(line.substring(0, space + 1));
+        boolean first = true;
+        for (Map.Entry<String, String> e : merged.entrySet()) {
+            if (!first) {
+                s.append(';');
+            }
+            first = false;
+            s.append(e.getKey());
+            if (e.getValue() != null) {
+                s.append('=').append(e.getValue());
+            }
+        }
+        return s.toString();
+    }
+}
@@ -0,0 +1,321 @@
+package com.oney.WebRTCModule;
+
+import androidx.annotation.Nullable;
+
+import com.facebook.react.bridge.Arguments;
+import com.facebook.react.bridge.WritableMap;
+
+import java.util.Map;
+
+import org.webrtc.RTCStats;
+import org.webrtc.RTCStatsReport;
+
+/**
+ * The quality metrics of a {@code PeerConnection} derived from two consecutive
+ * {@code RTCStatsReport}s of it. Cumulative counters (packets, frames,
+ * samples) are turned into rates over the interval between the reports.
+ * Metrics which cannot be determined are {@code NaN}.
+ */
+class StatsMetrics {
+    static final String PACKET_LOSS = "packetLoss";
+    static final String AUDIO_PACKET_LOSS = "audioPacketLoss";
+    static final String VIDEO_PACKET_LOSS = "videoPacketLoss";
+    static final String ROUND_TRIP_TIME = "roundTripTime";
+    static final String JITTER = "jitter";
+    static final String FRAMES_PER_SECOND = "framesPerSecond";
+    static final String CONCEALMENT = "concealment";
+    static final String FREEZE_DURATION = "freezeDuration";
+
+    /**
+     * The names of all metrics, as accepted by {@link #get(String)}.
+     */
+    static final String[] NAMES = {
+        PACKET_LOSS,
+        AUDIO_PACKET_LOSS,
+        VIDEO_PACKET_LOSS,
+        ROUND_TRIP_TIME,
+        JITTER,
+        FRAMES_PER_SECOND,
+        CONCEALMENT,
+        FREEZE_DURATION
+    };
+
+    /**
+     * The percentage of the inbound audio and video packets lost.
+     */
+    double packetLossPercent = Double.NaN;
+
+    double audioPacketLossPercent = Double.NaN;
+
+    double videoPacketLossPercent = Double.NaN;
+
+    /**
+     * The round-trip time of the selected candidate pair in milliseconds.
+     */
+    double roundTripTimeMs = Double.NaN;
+
+    /**
+     * The highest jitter of the inbound RTP streams in milliseconds.
+     */
+    double jitterMs = Double.NaN;
+
+    /**
+     * The lowest framerate of the inbound video streams.
+     */
+    double framesPerSecond = Double.NaN;
+
+    /**
+     * The percentage of the received audio samples which were concealed.
+     */
+    double concealedPercent = Double.NaN;
+
+    /**
+     * The percentage of the interval during which inbound video was frozen.
+     */
+    double freezeDurationPercent = Double.NaN;
+
+    /**
+     * Derives the metrics of a {@code PeerConnection} from a specific
+     * {@code RTCStatsReport} of it and the one preceding it.
+     *
+     * @param previous the preceding report or {@code null} if there is none,
+     * in which case only the metrics which are not rates are available
+     * @param current the latest report
+     */
+    static StatsMetrics compute(
+            @Nullable RTCStatsReport previous,
+            RTCStatsReport current) {
+        StatsMetrics metrics = new StatsMetrics();
+        Map<String, RTCStats> previousStats
+            = (previous == null) ? null : previous.getStatsMap();
+        long audioLost = 0, audioReceived = 0;
+        long videoLost = 0, videoReceived = 0;
+        long concealed = 0, samples = 0;
+        double frozenSeconds = 0, videoSeconds = 0;
+        double remoteRoundTripTime = Double.NaN;
+
+        for (RTCStats stats : current.getStatsMap().values()) {
+            Map<String, Object> members = stats.getMembers();
+
+            switch (stats.getType()) {
+            case "candidate-pair":
+                if (Boolean.TRUE.equals(members.get("nominated"))
+                        && "succeeded".equals(members.get("state"))) {
+                    double rtt = getDouble(members, "currentRoundTripTime");
+                    if (!Double.isNaN(rtt)) {
+                        metrics.roundTripTimeMs = rtt * 1000;
+                    }
+                }
+                break;
+
+            case "remote-inbound-rtp":
+                double rtt = getDouble(members, "roundTripTime");
+                if (!Double.isNaN(rtt)) {
+                    remoteRoundTripTime = Double.isNaN(remoteRoundTripTime)
+                        ? rtt : Math.max(remoteRoundTripTime, rtt);
+                }
+                break;
+
+            case "inbound-rtp":
+                boolean video = isVideo(members);
+                double jitter = getDouble(members, "jitter");
+                if (!Double.isNaN(jitter)
+                        && !(jitter * 1000 <= metrics.jitterMs)) {
+                    metrics.jitterMs = jitter * 1000;
+                }
+
+                RTCStats prev = getPrevious(previousStats, stats);
+                if (prev == null) {
+                    if (video) {
+                        double fps = getDouble(members, "framesPerSecond");
+                        if (!Double.isNaN(fps)
+                                && !(fps >= metrics.framesPerSecond)) {
+                            metrics.framesPerSecond = fps;
+                        }
+                    }
+                    break;
+                }
+
+                Map<String, Object> prevMembers = prev.getMembers();
+                long lost = getDelta(prevMembers, members, "packetsLost");
+                long received
+                    = getDelta(prevMembers, members, "packetsReceived");
+                if (video) {
+                    videoLost += lost;
+                    videoReceived += received;
+
+                    double seconds
+                        = (stats.getTimestampUs() - prev.getTimestampUs()) / 1e6;
+                    if (seconds > 0) {
+                        double fps
+                            = getDelta(prevMembers, members, "framesDecoded")
+                                / seconds;
+                        if (!(fps >= metrics.framesPerSecond)) {
+                            metrics.framesPerSecond = fps;
+                        }
+                        if (members.containsKey("totalFreezesDuration")) {
+                            frozenSeconds
+                                += getDouble(members, "totalFreezesDuration")
+                                    - getDouble(prevMembers, "totalFreezesDuration");
+                            videoSeconds += seconds;
+                        }
+                    }
+                } else {
+                    audioLost += lost;
+                    audioReceived += received;
+                    if (members.containsKey("concealedSamples")) {
+                        concealed += getDelta(
+                            prevMembers, members, "concealedSamples");
+                        samples += getDelta(
+                            prevMembers, members, "totalSamplesReceived");
+                    }
+                }
+                break;
+
+            case "track":
+                // Older versions of libwebrtc report concealment and freezes
+                // on the track rather than the inbound-rtp stats.
+                if (!Boolean.TRUE.equals(members.get("remoteSource"))) {
+                    break;
+                }
+                RTCStats prevTrack = getPrevious(previousStats, stats);
+                if (prevTrack == null) {
+                    break;
+                }
+                Map<String, Object> prevTrackMembers = prevTrack.getMembers();
+                if (isVideo(members)) {
+                    if (members.containsKey("totalFreezesDuration")) {
+                        frozenSeconds
+                            += getDouble(members, "totalFreezesDuration")
+                                - getDouble(prevTrackMembers, "totalFreezesDuration");
+                        videoSeconds
+                            += (stats.getTimestampUs() - prevTrack.getTimestampUs()) / 1e6;
+                    }
+                } else if (members.containsKey("concealedSamples")) {
+                    concealed += getDelta(
+                        prevTrackMembers, members, "concealedSamples");
+                    samples += getDelta(
+                        prevTrackMembers, members, "totalSamplesReceived");
+                }
+                break;
+            }
+        }
+
+        if (Double.isNaN(metrics.roundTripTimeMs)
+                && !Double.isNaN(remoteRoundTripTime)) {
+            metrics.roundTripTimeMs = remoteRoundTripTime * 1000;
+        }
+        metrics.audioPacketLossPercent = getPercent(audioLost, audioLost + audioReceived);
+        metrics.videoPacketLossPercent = getPercent(videoLost, videoLost + videoReceived);
+        metrics.packetLossPercent
+            = getPercent(
+                audioLost + videoLost,
+                audioLost + audioReceived + videoLost + videoReceived);
+        metrics.concealedPercent = getPercent(concealed, samples);
+        if (videoSeconds > 0) {
+            metrics.freezeDurationPercent
+                = Math.min(100, Math.max(0, frozenSeconds / videoSeconds * 100));
+        }
+
+        return metrics;
+    }
+
+    /**
+     * Gets the value of a metric by its name (one of {@link #NAMES}).
+     *
+     * @return the value of the metric or {@code NaN} if it is unknown or not
+     * available
+     */
+    double get(String name) {
+        switch (name) {
+        case PACKET_LOSS:
+            return packetLossPercent;
+        case AUDIO_PACKET_LOSS:
+            return audioPacketLossPercent;
+        case VIDEO_PACKET_LOSS:
+            return videoPacketLossPercent;
+        case ROUND_TRIP_TIME:
+            return roundTripTimeMs;
+        case JITTER:
+            return jitterMs;
+        case FRAMES_PER_SECOND:
+            return framesPerSecond;
+        case CONCEALMENT:
+            return concealedPercent;
+        case FREEZE_DURATION:
+            return freezeDurationPercent;
+        default:
+            return Double.NaN;
+        }
+    }
+
+    static boolean isName(String name) {
+        for (String n : NAMES) {
+            if (n.equals(name)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Describes the known metrics in a {@code WritableMap} for JS.
+     */
+    WritableMap toMap() {
+        WritableMap map = Arguments.createMap();
+
+        for (String name : NAMES) {
+            double value = get(name);
+            if (!Double.isNaN(value)) {
+                map.putDouble(name, value);
+            }
+        }
+        return map;
+    }
+
+    private static RTCStats getPrevious(
+            @Nullable Map<String, RTCStats> previousStats,
+            RTCStats stats) {
+        if (previousStats == null) {
+            return null;
+        }
+        RTCStats prev = previousStats.get(stats.getId());
+        return (prev != null && prev.getTimestampUs() < stats.getTimestampUs())
+            ? prev : null;
+    }
+
+    private static boolean isVideo(Map<String, Object> members) {
+        Object kind = members.get("kind");
+        if (kind == null) {
+            kind = members.get("mediaType");
+        }
+        return "video".equals(kind);
+    }
+
+    private static double getDouble(Map<String, Object> members, String name) {
+        Object value = members.get(name);
+        return (value instanceof Number)
+            ? ((Number) value).doubleValue()
+            : Double.NaN;
+    }
+
+    private static long getLong(Map<String, Object> members, String name) {
+        Object value = members.get(name);
+        return (value instanceof Number) ? ((Number) value).longValue() : 0;
+    }
+
+    /**
+     * Gets the increase of a cumulative counter. Counters which went backwards
+     * (e.g. because an RTP stream was reset) count as not having increased.
+     */
+    private static long getDelta(
+            Map<String, Object> previous,
+            Map<String, Object> current,
+            String name) {
+        return Math.max(0, getLong(current, name) - getLong(previous, name));
+    }
+
+    private static double getPercent(long part, long whole) {
+        return (whole > 0) ? (part * 100.0 / whole) : Double.NaN;
+    }
+}
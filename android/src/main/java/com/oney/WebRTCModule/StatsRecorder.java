@@ -0,0 +1,442 @@
+package com.oney.WebRTCModule;
+
+import android.content.Context;
+import android.util.Log;
+import android.util.SparseArray;
+
+import com.facebook.react.bridge.Arguments;
+import com.facebook.react.bridge.ReadableMap;
+import com.facebook.react.bridge.WritableArray;
+import com.facebook.react.bridge.WritableMap;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.lang.reflect.Array;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
+import java.text.SimpleDateFormat;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.zip.GZIPOutputStream;
+
+import org.webrtc.RTCStats;
+import org.webrtc.RTCStatsReport;
+
+/**
+ * Records the stats of all {@code PeerConnection}s as newline-delimited JSON
+ * (one line per {@code PeerConnection} and sample) into rotating files in the
+ * app-private storage for offline analysis. Stats are taken from a
+ * {@link StatsSampler} and written on its thread through a buffered
+ * {@code FileChannel} so that neither the JS thread nor the React Native
+ * bridge is involved. Completed files are compressed and the oldest ones
+ * deleted on a thread of their own so that sampling is not held up.
+ */
+class StatsRecorder implements StatsSampler.Listener {
+    /**
+     * The {@link Log} tag with which {@code StatsRecorder} is to log.
+     */
+    private static final String TAG = WebRTCModule.TAG;
+
+    /**
+     * The name of the directory (in the app-private files directory) in which
+     * the recordings are stored.
+     */
+    private static final String DIRECTORY_NAME = "webrtc-stats";
+
+    private static final String FILE_EXTENSION = ".ndjson";
+
+    private static final String GZIP_FILE_EXTENSION = ".ndjson.gz";
+
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    /**
+     * The thread on which the completed files are compressed and the old
+     * ones deleted, in the order in which they were completed.
+     */
+    private static final ExecutorService fileExecutor
+        = Executors.newSingleThreadExecutor(r -> {
+            Thread thread = new Thread(r, "StatsRecorder");
+            thread.setDaemon(true);
+            return thread;
+        });
+
+    private final File directory;
+
+    private final boolean gzip;
+
+    private final long intervalMs;
+
+    private final long maxFileAgeMs;
+
+    private final long maxFileBytes;
+
+    private final int maxFiles;
+
+    /**
+     * The buffer through which lines are written into {@link #channel}.
+     */
+    private final ByteBuffer buffer = ByteBuffer.allocateDirect(64 * 1024);
+
+    private final CharsetEncoder encoder = UTF_8.newEncoder();
+
+    /**
+     * The {@code StringBuilder} reused to build every line.
+     */
+    private final StringBuilder line = new StringBuilder();
+
+    private FileChannel channel;
+
+    private File file;
+
+    private long fileCreationTimeMs;
+
+    /**
+     * Initializes a new {@code StatsRecorder} instance.
+     *
+     * @param context the {@code Context} which provides the app-private
+     * storage
+     * @param options the options of the recording: {@code intervalMs},
+     * {@code maxFileBytes}, {@code maxFileAgeMs}, {@code maxFiles} and
+     * {@code gzip}
+     */
+    StatsRecorder(Context context, ReadableMap options) {
+        directory = getDirectory(context);
+        intervalMs = getLong(options, "intervalMs", 1000);
+        maxFileBytes = getLong(options, "maxFileBytes", 1024 * 1024);
+        maxFileAgeMs = getLong(options, "maxFileAgeMs", 10 * 60 * 1000);
+        maxFiles = (int) getLong(options, "maxFiles", 10);
+        gzip = options != null
+            && options.hasKey("gzip")
+            && options.getBoolean("gzip");
+    }
+
+    long getIntervalMs() {
+        return intervalMs;
+    }
+
+    static File getDirectory(Context context) {
+        return new File(context.getFilesDir(), DIRECTORY_NAME);
+    }
+
+    /**
+     * Runs a specific task on the thread which compresses and deletes the
+     * recordings, after the work queued there by the files completed so far.
+     */
+    static void execute(Runnable task) {
+        fileExecutor.execute(task);
+    }
+
+    /**
+     * Describes the recordings present in the app-private storage, oldest
+     * first. Invoked through {@link #execute(Runnable)}.
+     */
+    static WritableArray getFiles(Context context) {
+        WritableArray array = Arguments.createArray();
+
+        for (File f : listFiles(getDirectory(context))) {
+            WritableMap info = Arguments.createMap();
+            info.putString("path", f.getAbsolutePath());
+            info.putDouble("size", f.length());
+            info.putDouble("lastModified", f.lastModified());
+            array.pushMap(info);
+        }
+
+        return array;
+    }
+
+    /**
+     * Deletes all recordings from the app-private storage. Must not be
+     * invoked while recording. Invoked through {@link #execute(Runnable)}.
+     */
+    static void deleteFiles(Context context) {
+        for (File f : listFiles(getDirectory(context))) {
+            if (!f.delete()) {
+                Log.w(TAG, "StatsRecorder failed to delete " + f);
+            }
+        }
+    }
+
+    private static File[] listFiles(File directory) {
+        File[] files = directory.listFiles((dir, name) ->
+            name.endsWith(FILE_EXTENSION) || name.endsWith(GZIP_FILE_EXTENSION));
+
+        if (files == null) {
+            return new File[0];
+        }
+        // The names start with the creation time so they sort chronologically.
+        Arrays.sort(files);
+        return files;
+    }
+
+    private static long getLong(ReadableMap options, String key, long defaultValue) {
+        if (options != null && options.hasKey(key) && !options.isNull(key)) {
+            long value = (long) options.getDouble(key);
+            if (value > 0) {
+                return value;
+            }
+        }
+        return defaultValue;
+    }
+
+    @Override
+    public void onStatsSampled(long timestampMs, SparseArray<RTCStatsReport> reports) {
+        try {
+            if (channel != null
+                    && (channel.size() + buffer.position() >= maxFileBytes
+                        || timestampMs - fileCreationTimeMs >= maxFileAgeMs)) {
+                rotate();
+            }
+            if (channel == null) {
+                open(timestampMs);
+            }
+            for (int i = 0, size = reports.size(); i < size; i++) {
+                line.setLength(0);
+                line.append("{\"timestamp\":").append(timestampMs)
+                    .append(",\"peerConnectionId\":").append(reports.keyAt(i))
+                    .append(",\"stats\":");
+                appendReport(line, reports.valueAt(i));
+                line.append("}\n");
+                write(line);
+            }
+            flush();
+        } catch (IOException e) {
+            Log.e(TAG, "StatsRecorder failed to write " + file, e);
+            closeQuietly();
+        }
+    }
+
+    /**
+     * Writes any buffered stats and closes the current file. Invoked on the
+     * sampler thread after this recorder has been removed from it.
+     */
+    void close() {
+        try {
+            rotate();
+        } catch (IOException e) {
+            Log.e(TAG, "StatsRecorder failed to close " + file, e);
+            closeQuietly();
+        }
+    }
+
+    private void open(long timestampMs) throws IOException {
+        if (!directory.isDirectory() && !directory.mkdirs()) {
+            throw new IOException("Failed to create " + directory);
+        }
+
+        // Named after the creation time in milliseconds, moved forward past
+        // the names taken already (e.g. by a recording stopped and started
+        // again within the same millisecond) so that no recording is appended
+        // to or, once compressed, overwritten.
+        SimpleDateFormat format
+            = new SimpleDateFormat("yyyyMMdd-HHmmss-SSS", Locale.US);
+        for (long nameTimeMs = timestampMs; ; nameTimeMs++) {
+            String name = "stats-" + format.format(new Date(nameTimeMs));
+            file = new File(directory, name + FILE_EXTENSION);
+            if (!file.exists()
+                    && !new File(directory, name + GZIP_FILE_EXTENSION).exists()) {
+                break;
+            }
+        }
+        channel = new RandomAccessFile(file, "rw").getChannel();
+        channel.position(channel.size());
+        fileCreationTimeMs = timestampMs;
+        Log.d(TAG, "StatsRecorder recording into " + file);
+    }
+
+    private void rotate() throws IOException {
+        if (channel == null) {
+            return;
+        }
+
+        flush();
+        channel.close();
+        channel = null;
+
+        File completed = file;
+        file = null;
+        fileExecutor.execute(() -> {
+            if (gzip) {
+                compress(completed);
+            }
+            deleteOldFiles();
+        });
+    }
+
+    private void closeQuietly() {
+        buffer.clear();
+        if (channel != null) {
+            try {
+                channel.close();
+            } catch (IOException ignored) {
+            }
+            channel = null;
+        }
+    }
+
+    private void write(CharSequence s) throws IOException {
+        CharBuffer in = CharBuffer.wrap(s);
+
+        encoder.reset();
+        while (true) {
+            CoderResult result = encoder.encode(in, buffer, true);
+            if (result.isOverflow()) {
+                flush();
+            } else if (result.isUnderflow()) {
+                break;
+            } else {
+                result.throwException();
+            }
+        }
+        encoder.flush(buffer);
+    }
+
+    private void flush() throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        buffer.clear();
+    }
+
+    private void compress(File source) {
+        File target = new File(
+            directory,
+            source.getName().replace(FILE_EXTENSION, GZIP_FILE_EXTENSION));
+
+        try (InputStream in = new FileInputStream(source);
+             OutputStream out = new GZIPOutputStream(new FileOutputStream(target))) {
+            byte[] bytes = new byte[16 * 1024];
+            int count;
+            while ((count = in.read(bytes)) != -1) {
+                out.write(bytes, 0, count);
+            }
+        } catch (IOException e) {
+            Log.e(TAG, "StatsRecorder failed to compress " + source, e);
+            target.delete();
+            return;
+        }
+        source.delete();
+    }
+
+    private void deleteOldFiles() {
+        File[] files = listFiles(directory);
+        for (int i = 0; i < files.length - maxFiles; i++) {
+            files[i].delete();
+        }
+    }
+
+    /**
+     * Appends the JSON representation of a specific {@code RTCStatsReport}
+     * (an object of stats objects mapped by their IDs) to a specific
+     * {@code StringBuilder}.
+     */
+    static void appendReport(StringBuilder s, RTCStatsReport report) {
+        boolean first = true;
+
+        s.append('{');
+        for (RTCStats stats : report.getStatsMap().values()) {
+            if (!first) {
+                s.append(',');
+            }
+            first = false;
+            appendString(s, stats.getId());
+            s.append(":{\"type\":");
+            appendString(s, stats.getType());
+            s.append(",\"timestamp\":").append((long) (stats.getTimestampUs() / 1000));
+            for (Map.Entry<String, Object> member : stats.getMembers().entrySet()) {
+                s.append(',');
+                appendString(s, member.getKey());
+                s.append(':');
+                appendValue(s, member.getValue());
+            }
+            s.append('}');
+        }
+        s.append('}');
+    }
+
+    private static void appendValue(StringBuilder s, Object value) {
+        if (value == null) {
+            s.append("null");
+        } else if (value instanceof String) {
+            appendString(s, (String) value);
+        } else if (value instanceof Double || value instanceof Float) {
+            double d = ((Number) value).doubleValue();
+            if (Double.isNaN(d) || Double.isInfinite(d)) {
+                s.append("null");
+            } else {
+                s.append(d);
+            }
+        } else if (value instanceof Number || value instanceof Boolean) {
+            // Integer, Long and BigInteger.
+            s.append(value);
+        } else if (value.getClass().isArray()) {
+            s.append('[');
+            for (int i = 0, length = Array.getLength(value); i < length; i++) {
+                if (i != 0) {
+                    s.append(',');
+                }
+                appendValue(s, Array.get(value, i));
+            }
+            s.append(']');
+        } else if (value instanceof Map) {
+            boolean first = true;
+            s.append('{');
+            for (Map.Entry<?, ?> e : ((Map<?, ?>) value).entrySet()) {
+                if (!first) {
+                    s.append(',');
+                }
+                first = false;
+                appendString(s, String.valueOf(e.getKey()));
+                s.append(':');
+                appendValue(s, e.getValue());
+            }
+            s.append('}');
+        } else {
+            appendString(s, value.toString());
+        }
+    }
+
+    private static void appendString(StringBuilder s, String value) {
+        s.append('"');
+        for (int i = 0, length = value.length(); i < length; i++) {
+            char c = value.charAt(i);
+            switch (c) {
+            case '"':
+                s.append("\\\"");
+                break;
+            case '\\':
+                s.append("\\\\");
+                break;
+            case '\n':
+                s.append("\\n");
+                break;
+            case '\r':
+                s.append("\\r");
+                break;
+            case '\t':
+                s.append("\\t");
+                break;
+            default:
+                if (c < 0x20) {
+                    s.append(String.format(Locale.US, "\\u%04x", (int) c));
+                } else {
+                    s.append(c);
+                }
+            }
+        }
+        s.append('"');
+    }
+}
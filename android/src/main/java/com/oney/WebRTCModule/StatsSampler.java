@@ -0,0 +1,206 @@
+package com.oney.WebRTCModule;
+
+import android.util.Log;
+import android.util.SparseArray;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.webrtc.PeerConnection;
+import org.webrtc.RTCStatsReport;
+
+/**
+ * Periodically collects the (standard) stats of all {@code PeerConnection}s
+ * and hands them to the registered {@link Listener}s on a dedicated background
+ * thread, so that native consumers of stats do not involve the JS thread or
+ * the React Native bridge at all.
+ *
+ * The sampler only runs while at least one listener is registered. Its period
+ * is the shortest of the intervals requested by the listeners; every listener
+ * is notified no more often than its own interval.
+ */
+class StatsSampler {
+    /**
+     * The {@link Log} tag with which {@code StatsSampler} is to log.
+     */
+    private static final String TAG = WebRTCModule.TAG;
+
+    /**
+     * The thread on which stats are delivered to {@link Listener}s.
+     */
+    private final ScheduledExecutorService executor
+        = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "StatsSampler");
+            thread.setDaemon(true);
+            return thread;
+        });
+
+    private final List<Registration> registrations
+        = new CopyOnWriteArrayList<>();
+
+    private final WebRTCModule webRTCModule;
+
+    /**
+     * The currently scheduled sampling task, if any. Only accessed with the
+     * monitor of this instance held.
+     */
+    private ScheduledFuture<?> samplingTask;
+
+    /**
+     * The period of {@link #samplingTask} in milliseconds.
+     */
+    private long samplingIntervalMs;
+
+    StatsSampler(WebRTCModule webRTCModule) {
+        this.webRTCModule = webRTCModule;
+    }
+
+    /**
+     * Registers a specific {@code Listener} to be notified of stats no more
+     * often than every {@code intervalMs} milliseconds. Starts sampling if it
+     * is not running yet.
+     */
+    synchronized void addListener(Listener listener, long intervalMs) {
+        removeListener(listener);
+        registrations.add(new Registration(listener, Math.max(intervalMs, 100)));
+        reschedule();
+    }
+
+    /**
+     * Unregisters a specific {@code Listener}. Stops sampling if no listeners
+     * remain.
+     */
+    synchronized void removeListener(Listener listener) {
+        for (Registration registration : registrations) {
+            if (registration.listener == listener) {
+                registrations.remove(registration);
+            }
+        }
+        reschedule();
+    }
+
+    /**
+     * Runs a specific {@code Runnable} on the thread which delivers stats to
+     * the listeners, so that it does not race with them.
+     */
+    void execute(Runnable runnable) {
+        executor.execute(runnable);
+    }
+
+    private void reschedule() {
+        long intervalMs = Long.MAX_VALUE;
+        for (Registration registration : registrations) {
+            intervalMs = Math.min(intervalMs, registration.intervalMs);
+        }
+
+        if (intervalMs == Long.MAX_VALUE) {
+            if (samplingTask != null) {
+                Log.d(TAG, "StatsSampler stopped");
+                samplingTask.cancel(false);
+                samplingTask = null;
+            }
+        } else if (samplingTask == null || intervalMs != samplingIntervalMs) {
+            if (samplingTask != null) {
+                samplingTask.cancel(false);
+            }
+            Log.d(TAG, "StatsSampler sampling every " + intervalMs + " ms");
+            samplingIntervalMs = intervalMs;
+            samplingTask = executor.scheduleAtFixedRate(
+                () -> ThreadUtils.runOnExecutor(this::sample),
+                intervalMs, intervalMs, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * Requests the stats of all {@code PeerConnection}s. Invoked on the
+     * executor of {@link ThreadUtils} because that is where the
+     * {@code PeerConnection}s are managed.
+     */
+    private void sample() {
+        SparseArray<PeerConnectionObserver> observers
+            = webRTCModule.getPeerConnectionObservers();
+        final int size = observers.size();
+        final SparseArray<RTCStatsReport> reports = new SparseArray<>(size);
+        final long timestampMs = System.currentTimeMillis();
+
+        if (size == 0) {
+            executor.execute(() -> deliver(timestampMs, reports));
+            return;
+        }
+
+        // Each report is handed over to the sampler thread as soon as it
+        // arrives; the last one triggers the delivery to the listeners.
+        final AtomicInteger pending = new AtomicInteger(size);
+        for (int i = 0; i < size; i++) {
+            final int id = observers.keyAt(i);
+            PeerConnection peerConnection
+                = observers.valueAt(i).getPeerConnection();
+
+            if (peerConnection == null) {
+                if (pending.decrementAndGet() == 0) {
+                    executor.execute(() -> deliver(timestampMs, reports));
+                }
+                continue;
+            }
+            peerConnection.getStats(report -> executor.execute(() -> {
+                reports.put(id, report);
+                if (pending.decrementAndGet() == 0) {
+                    deliver(timestampMs, reports);
+                }
+            }));
+        }
+    }
+
+    /**
+     * Delivers a sample of stats to the listeners whose intervals have
+     * elapsed. Invoked on the sampler thread.
+     */
+    private void deliver(long timestampMs, SparseArray<RTCStatsReport> reports) {
+        for (Registration registration : registrations) {
+            // Allow for some jitter of the sampling task.
+            long dueMs = registration.lastDeliveryMs + registration.intervalMs
+                - samplingIntervalMs / 2;
+            if (timestampMs < dueMs) {
+                continue;
+            }
+            registration.lastDeliveryMs = timestampMs;
+            try {
+                registration.listener.onStatsSampled(timestampMs, reports);
+            } catch (Throwable t) {
+                Log.e(TAG, "StatsSampler listener failed", t);
+            }
+        }
+    }
+
+    /**
+     * Receives the stats sampled by a {@code StatsSampler}.
+     */
+    interface Listener {
+        /**
+         * Notifies this listener about the stats of all
+         * {@code PeerConnection}s sampled at a specific time. Invoked on the
+         * sampler thread.
+         *
+         * @param timestampMs the wall clock time of the sample
+         * @param reports the {@code RTCStatsReport}s mapped by
+         * {@code PeerConnection} ID. Must not be modified.
+         */
+        void onStatsSampled(long timestampMs, SparseArray<RTCStatsReport> reports);
+    }
+
+    private static class Registration {
+        final long intervalMs;
+        long lastDeliveryMs;
+        final Listener listener;
+
+        Registration(Listener listener, long intervalMs) {
+            this.listener = listener;
+            this.intervalMs = intervalMs;
+        }
+    }
+}
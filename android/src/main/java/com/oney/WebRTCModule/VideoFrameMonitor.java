@@ -0,0 +1,258 @@
+package com.oney.WebRTCModule;
+
+import com.facebook.react.bridge.Arguments;
+import com.facebook.react.bridge.WritableArray;
+import com.facebook.react.bridge.WritableMap;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import org.webrtc.VideoFrame;
+
+/**
+ * Monitors the frames of a remote video track: received framerate,
+ * inter-frame gaps, freezes and resolution changes. {@link #onFrame} is
+ * invoked on the decoder thread which is the only writer of the counters, so
+ * they are plain volatile fields read without locks by {@link #toMap()}.
+ *
+ * A gap is considered a freeze as in the W3C WebRTC statistics: when it
+ * exceeds both three times the average inter-frame interval and the average
+ * interval plus 150 ms. Freezes are kept out of the average so that they do
+ * not inflate the threshold for the next ones, but only for a few in a row:
+ * gaps which keep exceeding the threshold are a lasting drop of the framerate
+ * (e.g. a screen share of static content) and become the new average.
+ */
+class VideoFrameMonitor {
+    /**
+     * The upper bounds (inclusive, in milliseconds) of the buckets of the
+     * inter-frame gap histogram. A last bucket counts the longer gaps.
+     */
+    static final long[] GAP_BUCKETS_MS = { 20, 40, 70, 100, 200, 500, 1000 };
+
+    /**
+     * The number of frames needed before the average inter-frame interval is
+     * trusted to detect freezes.
+     */
+    private static final int MIN_FRAMES_FOR_FREEZES = 5;
+
+    /**
+     * The number of consecutive freezes after which the gaps are taken for
+     * the new inter-frame interval.
+     */
+    static final int MAX_CONSECUTIVE_FREEZES = 3;
+
+    /**
+     * The number of the latest gaps averaged by {@link #getRecentIntervalMs()}.
+     */
+    static final int RECENT_GAPS = 5;
+
+    /**
+     * The weight of the latest gap in {@link #averageIntervalMs}.
+     */
+    private static final double SMOOTHING = 0.1;
+
+    private static final long WINDOW_NS = TimeUnit.SECONDS.toNanos(1);
+
+    private volatile double averageIntervalMs = Double.NaN;
+
+    private int consecutiveFreezes;
+
+    /**
+     * The latest gaps in milliseconds, indexed by the number of the frame
+     * which ended them modulo {@link #RECENT_GAPS}.
+     */
+    private final double[] recentGapsMs = new double[RECENT_GAPS];
+
+    private volatile double recentIntervalMs = Double.NaN;
+
+    private volatile long framesReceived;
+
+    private volatile double framesPerSecond = Double.NaN;
+
+    private volatile long freezeCount;
+
+    private final AtomicLongArray gapHistogram
+        = new AtomicLongArray(GAP_BUCKETS_MS.length + 1);
+
+    private volatile int height;
+
+    private volatile long lastFrameTimeNs;
+
+    private final Listener listener;
+
+    private volatile long resolutionChanges;
+
+    private volatile long totalFreezesDurationMs;
+
+    private volatile int width;
+
+    private long windowFrames;
+
+    private long windowStartNs;
+
+    VideoFrameMonitor(Listener listener) {
+        this.listener = listener;
+    }
+
+    /**
+     * Gets the smoothed interval between frames in milliseconds or
+     * {@code NaN} if too few frames have been received yet.
+     */
+    double getAverageIntervalMs() {
+        return (framesReceived < MIN_FRAMES_FOR_FREEZES)
+            ? Double.NaN
+            : averageIntervalMs;
+    }
+
+    /**
+     * Gets the mean of the latest {@link #RECENT_GAPS} gaps between frames in
+     * milliseconds, freezes and slow frames included, or {@code NaN} until
+     * the second frame. Unlike {@link #getAverageIntervalMs()} it follows any
+     * change of the framerate within a few frames.
+     */
+    double getRecentIntervalMs() {
+        return recentIntervalMs;
+    }
+
+    long getFramesReceived() {
+        return framesReceived;
+    }
+
+    long getFreezeCount() {
+        return freezeCount;
+    }
+
+    /**
+     * Records the arrival of a specific frame. Invoked on the decoder thread.
+     */
+    void onFrame(VideoFrame frame, long nowNs) {
+        long frames = framesReceived + 1;
+        long previousFrameTimeNs = lastFrameTimeNs;
+
+        framesReceived = frames;
+        lastFrameTimeNs = nowNs;
+
+        if (frames == 1) {
+            windowStartNs = nowNs;
+        } else {
+            double gapMs = (nowNs - previousFrameTimeNs) / 1e6;
+            double averageMs = averageIntervalMs;
+
+            recordGap(gapMs);
+            recordRecentGap(frames, gapMs);
+            if (frames > MIN_FRAMES_FOR_FREEZES
+                    && gapMs > Math.max(3 * averageMs, averageMs + 150)) {
+                freezeCount++;
+                totalFreezesDurationMs += (long) gapMs;
+                listener.onFreeze((long) gapMs);
+                if (++consecutiveFreezes >= MAX_CONSECUTIVE_FREEZES) {
+                    // The framerate has dropped for good rather than frozen.
+                    averageIntervalMs = gapMs;
+                    consecutiveFreezes = 0;
+                }
+            } else {
+                // Freezes are left out so that they do not inflate the
+                // threshold for the next ones.
+                consecutiveFreezes = 0;
+                averageIntervalMs
+                    = Double.isNaN(averageMs)
+                        ? gapMs
+                        : averageMs + SMOOTHING * (gapMs - averageMs);
+            }
+        }
+
+        windowFrames++;
+        long windowNs = nowNs - windowStartNs;
+        if (windowNs >= WINDOW_NS) {
+            framesPerSecond = windowFrames * 1e9 / windowNs;
+            windowFrames = 0;
+            windowStartNs = nowNs;
+        }
+
+        int frameWidth = frame.getRotatedWidth();
+        int frameHeight = frame.getRotatedHeight();
+        if (frameWidth != width || frameHeight != height) {
+            if (frames != 1) {
+                resolutionChanges++;
+            }
+            width = frameWidth;
+            height = frameHeight;
+            listener.onResolutionChanged(frameWidth, frameHeight);
+        }
+    }
+
+    private void recordRecentGap(long frames, double gapMs) {
+        recentGapsMs[(int) (frames % RECENT_GAPS)] = gapMs;
+
+        int count = (int) Math.min(frames - 1, RECENT_GAPS);
+        double sumMs = 0;
+        for (int i = 0; i < RECENT_GAPS; i++) {
+            sumMs += recentGapsMs[i];
+        }
+        // The slots of the gaps yet to be observed are still 0.
+        recentIntervalMs = sumMs / count;
+    }
+
+    private void recordGap(double gapMs) {
+        int i = 0;
+        while (i < GAP_BUCKETS_MS.length && gapMs > GAP_BUCKETS_MS[i]) {
+            i++;
+        }
+        gapHistogram.incrementAndGet(i);
+    }
+
+    /**
+     * Describes a snapshot of the counters in a {@code WritableMap} for JS.
+     * May be invoked on any thread.
+     */
+    WritableMap toMap() {
+        WritableMap map = Arguments.createMap();
+        long sinceLastFrameNs = System.nanoTime() - lastFrameTimeNs;
+        double fps = framesPerSecond;
+        double interval = getAverageIntervalMs();
+
+        map.putDouble("framesReceived", framesReceived);
+        if (framesReceived == 0 || sinceLastFrameNs > 2 * WINDOW_NS) {
+            // The window is only closed by frames so it is stale by now.
+            fps = 0;
+        }
+        if (!Double.isNaN(fps)) {
+            map.putDouble("framesPerSecond", fps);
+        }
+        if (!Double.isNaN(interval)) {
+            map.putDouble("averageFrameIntervalMs", interval);
+        }
+        if (framesReceived != 0) {
+            map.putDouble(
+                "timeSinceLastFrameMs",
+                TimeUnit.NANOSECONDS.toMillis(sinceLastFrameNs));
+        }
+        map.putDouble("freezeCount", freezeCount);
+        map.putDouble("totalFreezesDurationMs", totalFreezesDurationMs);
+        map.putInt("frameWidth", width);
+        map.putInt("frameHeight", height);
+        map.putDouble("resolutionChanges", resolutionChanges);
+
+        WritableArray buckets = Arguments.createArray();
+        for (int i = 0; i < gapHistogram.length(); i++) {
+            WritableMap bucket = Arguments.createMap();
+            if (i < GAP_BUCKETS_MS.length) {
+                bucket.putDouble("maxGapMs", GAP_BUCKETS_MS[i]);
+            }
+            bucket.putDouble("count", gapHistogram.get(i));
+            buckets.pushMap(bucket);
+        }
+        map.putArray("gapHistogram", buckets);
+
+        return map;
+    }
+
+    /**
+     * Notified about noteworthy changes of the frames on the decoder thread.
+     */
+    interface Listener {
+        void onFreeze(long durationMs);
+
+        void onResolutionChanged(int width, int height);
+    }
+}
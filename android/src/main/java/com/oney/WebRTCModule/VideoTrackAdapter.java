@@ -10,21 +10,76 @@ import com.facebook.react.bridge.Arguments;
 import com.facebook.react.bridge.WritableMap;
 
 import java.util.*;
-import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 /**
  * Implements mute/unmute events for remote video tracks.
- * Mute event is fired when there are no frames to be render for 1500ms
- * initially and 500ms after the first frame was received.
+ * Mute event is fired when there are no frames to be render for 3000ms
+ * initially and, after the first frame was received, for a delay adapted to
+ * the latest inter-frame gaps of the track, slow ones included: the sum of
+ * the last few gaps (so never less than any of them) but no less than 500ms
+ * (quick freeze detection for high framerates) and no more than 10000ms.
+ * A track whose framerate drops, like a screen share of static content, is
+ * thus muted at most once as the gaps grow. Until a few gaps have been
+ * observed the delay is no less than 1500ms, and it is 10000ms while the
+ * first gap is yet to be observed. JS may override both delays per track.
+ *
+ * All instances share a single {@link HashedWheelTimer} which is only armed
+ * for the moment a track would become muted if no further frames arrived;
+ * frames merely record their arrival time and only the first frame after a
+ * mute schedules the unmute.
  */
 public class VideoTrackAdapter {
     static final String TAG = VideoTrackAdapter.class.getCanonicalName();
     static final long INITIAL_MUTE_DELAY = 3000;
     static final long MUTE_DELAY = 1500;
+    static final long MIN_MUTE_DELAY = 500;
+    static final long MAX_MUTE_DELAY = 10000;
 
-    private Map<String, TrackMuteUnmuteImpl> muteImplMap = new HashMap<>();
+    /**
+     * The number of recent inter-frame intervals without a frame after which
+     * a track is muted. As many as {@link VideoFrameMonitor#RECENT_GAPS} so
+     * that the delay is at least the longest of those gaps.
+     */
+    static final int MUTE_DELAY_INTERVALS = VideoFrameMonitor.RECENT_GAPS;
 
-    private Timer timer = new Timer("VideoTrackMutedTimer");
+    /**
+     * Gets the time in milliseconds without frames after which a track is
+     * muted, which is not overridden, once it has received a frame.
+     */
+    static long getAdaptiveMuteDelay(VideoFrameMonitor frameMonitor) {
+        double intervalMs = frameMonitor.getRecentIntervalMs();
+        if (Double.isNaN(intervalMs)) {
+            // A slow screen share must not be muted before its second frame.
+            return MAX_MUTE_DELAY;
+        }
+
+        long minMuteDelay
+            = (frameMonitor.getFramesReceived() > VideoFrameMonitor.RECENT_GAPS)
+                ? MIN_MUTE_DELAY
+                : MUTE_DELAY;
+        return Math.max(
+            minMuteDelay,
+            Math.min(
+                MAX_MUTE_DELAY,
+                (long) (intervalMs * MUTE_DELAY_INTERVALS)));
+    }
+
+    /**
+     * The timer shared by the mute detection of all remote video tracks.
+     */
+    private static final HashedWheelTimer timer
+        = new HashedWheelTimer("VideoTrackMutedTimer", 100, 64);
+
+    /**
+     * Modified on the signaling thread as remote tracks come and go and on
+     * the executor of {@link ThreadUtils} as their <tt>PeerConnection</tt> is
+     * closed, and read on the latter.
+     */
+    private final Map<String, TrackMuteUnmuteImpl> muteImplMap
+        = new ConcurrentHashMap<>();
 
     private final int peerConnectionId;
 
@@ -37,11 +92,10 @@ public class VideoTrackAdapter {
 
     public void addAdapter(String streamReactTag, VideoTrack videoTrack) {
         String trackId = videoTrack.id();
-        if (!muteImplMap.containsKey(trackId)) {
-            TrackMuteUnmuteImpl onMuteImpl
-                = new TrackMuteUnmuteImpl(streamReactTag, trackId);
+        TrackMuteUnmuteImpl onMuteImpl
+            = new TrackMuteUnmuteImpl(streamReactTag, trackId);
+        if (muteImplMap.putIfAbsent(trackId, onMuteImpl) == null) {
             Log.d(TAG, "Created adapter for " + trackId);
-            muteImplMap.put(trackId, onMuteImpl);
             videoTrack.addSink(onMuteImpl);
             onMuteImpl.start();
         } else {
@@ -50,6 +104,41 @@ public class VideoTrackAdapter {
         }
     }
 
+    /**
+     * Gets a snapshot of the frame statistics of a specific remote video
+     * track as described by {@link VideoFrameMonitor#toMap()}.
+     *
+     * @return the statistics or {@code null} if there is no adapter for the
+     * track
+     */
+    WritableMap getFrameStats(String trackId) {
+        TrackMuteUnmuteImpl onMuteImpl = muteImplMap.get(trackId);
+
+        return (onMuteImpl == null) ? null : onMuteImpl.frameMonitor.toMap();
+    }
+
+    /**
+     * Overrides the mute delays of a specific remote video track.
+     *
+     * @param initialMuteDelayMs the delay before the first frame or a negative
+     * value for the default
+     * @param muteDelayMs the delay after the first frame or a negative value
+     * for the adaptive one
+     * @return {@code false} if there is no adapter for the track
+     */
+    boolean setMuteDelays(
+            String trackId,
+            long initialMuteDelayMs,
+            long muteDelayMs) {
+        TrackMuteUnmuteImpl onMuteImpl = muteImplMap.get(trackId);
+
+        if (onMuteImpl == null) {
+            return false;
+        }
+        onMuteImpl.setMuteDelays(initialMuteDelayMs, muteDelayMs);
+        return true;
+    }
+
     public void removeAdapter(VideoTrack videoTrack) {
         String trackId = videoTrack.id();
         TrackMuteUnmuteImpl onMuteImpl = muteImplMap.remove(trackId);
@@ -66,23 +155,38 @@ public class VideoTrackAdapter {
      * Implements 'mute'/'unmute' events for remote video tracks through
      * the {@link VideoSink} interface.
      */
-    private class TrackMuteUnmuteImpl implements VideoSink {
-        private TimerTask emitMuteTask;
+    private class TrackMuteUnmuteImpl
+            implements VideoSink, VideoFrameMonitor.Listener {
+        /**
+         * The scheduled check of {@link #lastFrameTimeNs}, if any. Only
+         * accessed with the monitor of this instance held.
+         */
+        private HashedWheelTimer.Timeout checkTimeout;
         private volatile boolean disposed;
-        private AtomicInteger frameCounter;
-        private boolean mutedState;
+        private volatile long initialMuteDelayOverride = -1;
+        private volatile long muteDelayOverride = -1;
+        private final VideoFrameMonitor frameMonitor
+            = new VideoFrameMonitor(this);
+        private volatile long lastFrameTimeNs;
+        private volatile boolean mutedState;
         private final String streamReactTag;
         private final String trackId;
+        private final AtomicBoolean unmuteScheduled = new AtomicBoolean();
 
         TrackMuteUnmuteImpl(String streamReactTag, String trackId) {
             this.streamReactTag = streamReactTag;
             this.trackId = trackId;
-            this.frameCounter = new AtomicInteger();
         }
 
         @Override
         public void onFrame(VideoFrame frame) {
-            frameCounter.addAndGet(1);
+            long nowNs = System.nanoTime();
+
+            lastFrameTimeNs = nowNs;
+            frameMonitor.onFrame(frame, nowNs);
+            if (mutedState && unmuteScheduled.compareAndSet(false, true)) {
+                timer.schedule(this::unmute, 0);
+            }
         }
 
         private void start() {
@@ -90,36 +194,128 @@ public class VideoTrackAdapter {
                 return;
             }
 
-            synchronized (this) {
-                if (emitMuteTask != null) {
-                    emitMuteTask.cancel();
+            lastFrameTimeNs = System.nanoTime();
+            scheduleCheck(getMuteDelay());
+        }
+
+        void setMuteDelays(long initialMuteDelayMs, long muteDelayMs) {
+            initialMuteDelayOverride = initialMuteDelayMs;
+            muteDelayOverride = muteDelayMs;
+            Log.d(TAG, "Mute delays of " + trackId + " overridden: "
+                + initialMuteDelayMs + " ms initially, " + muteDelayMs + " ms");
+
+            // Re-evaluate with the new delays unless muted, in which case only
+            // a frame changes the state.
+            if (!mutedState) {
+                scheduleCheck(0);
+            }
+        }
+
+        /**
+         * Gets the time in milliseconds without frames after which this track
+         * is muted.
+         */
+        private long getMuteDelay() {
+            if (frameMonitor.getFramesReceived() == 0) {
+                long override = initialMuteDelayOverride;
+                return (override >= 0) ? override : INITIAL_MUTE_DELAY;
+            }
+
+            long override = muteDelayOverride;
+            if (override >= 0) {
+                return override;
+            }
+
+            return getAdaptiveMuteDelay(frameMonitor);
+        }
+
+        private synchronized void scheduleCheck(long delayMs) {
+            if (disposed) {
+                return;
+            }
+            if (checkTimeout != null) {
+                checkTimeout.cancel();
+            }
+            checkTimeout = timer.schedule(this::check, delayMs);
+        }
+
+        /**
+         * Mutes this track if no frame has arrived for its mute delay or
+         * rearms the check for the moment that will be the case. Invoked on
+         * the thread of {@link #timer}.
+         */
+        private void check() {
+            if (disposed || mutedState) {
+                return;
+            }
+
+            long lastFrameTimeNs = this.lastFrameTimeNs;
+            long sinceLastFrameMs
+                = TimeUnit.NANOSECONDS.toMillis(
+                    System.nanoTime() - lastFrameTimeNs);
+
+            long muteDelayMs = getMuteDelay();
+
+            if (sinceLastFrameMs >= muteDelayMs) {
+                mutedState = true;
+                emitMuteEvent(true);
+                // A frame which arrived before mutedState was set did not
+                // schedule the unmute.
+                if (this.lastFrameTimeNs != lastFrameTimeNs
+                        && unmuteScheduled.compareAndSet(false, true)) {
+                    unmute();
                 }
-                emitMuteTask = new TimerTask() {
-                    private int lastFrameNumber = frameCounter.get();
-
-                    @Override
-                    public void run() {
-                        if (disposed) {
-                            return;
-                        }
-                        boolean isMuted = lastFrameNumber == frameCounter.get();
-                        if (isMuted != mutedState) {
-                            mutedState = isMuted;
-                            emitMuteEvent(isMuted);
-                        }
-
-                        lastFrameNumber = frameCounter.get();
-                    }
-                };
-                timer.schedule(emitMuteTask, INITIAL_MUTE_DELAY, MUTE_DELAY);
+            } else {
+                scheduleCheck(muteDelayMs - sinceLastFrameMs);
             }
         }
 
-        private void emitMuteEvent(boolean muted) {
+        /**
+         * Unmutes this track after a frame has arrived while it was muted.
+         * Invoked on the thread of {@link #timer}.
+         */
+        private void unmute() {
+            unmuteScheduled.set(false);
+            if (disposed || !mutedState) {
+                return;
+            }
+
+            mutedState = false;
+            emitMuteEvent(false);
+            scheduleCheck(getMuteDelay());
+        }
+
+        @Override
+        public void onFreeze(long durationMs) {
+            // Do not hold up the decoder thread with the bridge.
+            timer.schedule(() -> {
+                WritableMap params = createEventParams();
+                params.putDouble("durationMs", durationMs);
+                webRTCModule.sendEvent("mediaStreamTrackFreeze", params);
+            }, 0);
+        }
+
+        @Override
+        public void onResolutionChanged(int width, int height) {
+            timer.schedule(() -> {
+                WritableMap params = createEventParams();
+                params.putInt("width", width);
+                params.putInt("height", height);
+                webRTCModule.sendEvent(
+                    "mediaStreamTrackResolutionChanged", params);
+            }, 0);
+        }
+
+        private WritableMap createEventParams() {
             WritableMap params = Arguments.createMap();
             params.putInt("peerConnectionId", peerConnectionId);
             params.putString("streamReactTag", streamReactTag);
             params.putString("trackId", trackId);
+            return params;
+        }
+
+        private void emitMuteEvent(boolean muted) {
+            WritableMap params = createEventParams();
             params.putBoolean("muted", muted);
 
             Log.d(TAG,
@@ -135,9 +331,9 @@ public class VideoTrackAdapter {
         void dispose() {
             disposed = true;
             synchronized (this) {
-                if (emitMuteTask != null) {
-                    emitMuteTask.cancel();
-                    emitMuteTask = null;
+                if (checkTimeout != null) {
+                    checkTimeout.cancel();
+                    checkTimeout = null;
                 }
             }
         }
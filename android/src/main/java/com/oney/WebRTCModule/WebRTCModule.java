@@ -1,6 +1,8 @@
 package com.oney.WebRTCModule;
 
 import androidx.annotation.Nullable;
+import android.content.Context;
+import android.content.SharedPreferences;
 import android.util.Log;
 import android.util.SparseArray;
 
@@ -22,6 +24,10 @@ import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.webrtc.*;
 import org.webrtc.audio.AudioDeviceModule;
@@ -35,15 +41,162 @@ public class WebRTCModule extends ReactContextBaseJavaModule {
     private final SparseArray<PeerConnectionObserver> mPeerConnectionObservers;
     final Map<String, MediaStream> localStreams;
 
+    /**
+     * The index of all local and remote <tt>MediaStream</tt>s and
+     * <tt>MediaStreamTrack</tt>s.
+     */
+    final MediaRegistry mediaRegistry = new MediaRegistry();
+
     private GetUserMediaImpl getUserMediaImpl;
 
+    /**
+     * The idle <tt>PeerConnection</tt>s created ahead of time. Only accessed
+     * on the executor of {@link ThreadUtils}.
+     */
+    private final PeerConnectionPool peerConnectionPool
+        = new PeerConnectionPool();
+
+    /**
+     * The thread on which <tt>PeerConnection</tt>s are closed and disposed of
+     * so that the executor of {@link ThreadUtils} is not held up.
+     */
+    private final ExecutorService reaper
+        = Executors.newSingleThreadExecutor(r -> {
+            Thread thread = new Thread(r, "PeerConnectionReaper");
+            thread.setDaemon(true);
+            return thread;
+        });
+
+    /**
+     * The parsed <tt>RTCConfiguration</tt>s and the named configuration
+     * profiles.
+     */
+    private final RTCConfigurationCache configurationCache
+        = new RTCConfigurationCache(this::parseRTCConfiguration);
+
+    final StatsSampler statsSampler;
+
+    /**
+     * The {@link StatsRecorder} currently registered with
+     * {@link #statsSampler}, if any. Only accessed on the sampler thread.
+     */
+    private StatsRecorder statsRecorder;
+
+    /**
+     * The {@link QualityAlarms} currently registered with
+     * {@link #statsSampler}, if any. Only accessed on the sampler thread.
+     */
+    private QualityAlarms qualityAlarms;
+
+    /**
+     * The {@link QualityEstimator} currently registered with
+     * {@link #statsSampler}, if any. Written on the sampler thread, read by
+     * {@link #peerConnectionGetQuality(int)} on the JS thread.
+     */
+    private volatile QualityEstimator qualityEstimator;
+
+    /**
+     * The {@link BandwidthController}s registered with {@link #statsSampler}
+     * mapped by the IDs of their <tt>PeerConnection</tt>s. Only accessed on
+     * the sampler thread.
+     */
+    private final SparseArray<BandwidthController> bandwidthControllers
+        = new SparseArray<>();
+
+    /**
+     * The persistent cache of the formats of the cameras used by
+     * {@link Camera1Enumerator}. Only accessed on the executor of
+     * {@link ThreadUtils}.
+     */
+    private CameraFormatCache cameraFormatCache;
+
+    /**
+     * The name of the <tt>SharedPreferences</tt> in which the settings made
+     * from JS that take effect at initialization are persisted.
+     */
+    static final String PREFERENCES_NAME = "WebRTCModule";
+
+    /**
+     * The encoder factory created in {@link #initAsync(Options)} unless the
+     * application provided its own.
+     */
+    private volatile InstrumentedVideoEncoderFactory instrumentedEncoderFactory;
+
+    /**
+     * The options of the hardware video encoders resolved in
+     * {@link #initAsync(Options)} which {@link CodecBenchmark} is to use too.
+     */
+    private volatile boolean enableH264HighProfile;
+    private volatile boolean enableIntelVp8Encoder = true;
+
+    /**
+     * The video codec factories created or provided in
+     * {@link #initAsync(Options)} and, if it is known which codecs are decoded
+     * in hardware, the factory of the hardware decoders.
+     */
+    private VideoDecoderFactory videoDecoderFactory;
+    private VideoEncoderFactory videoEncoderFactory;
+    private VideoDecoderFactory hardwareVideoDecoderFactory;
+
+    /**
+     * The capabilities of {@link #videoEncoderFactory} and
+     * {@link #videoDecoderFactory} once collected. Only accessed on the
+     * executor of {@link ThreadUtils}.
+     */
+    private CodecCapabilities codecCapabilities;
+
+    /**
+     * Whether {@link CodecBenchmark} is running.
+     */
+    private final AtomicBoolean codecBenchmarkRunning = new AtomicBoolean();
+
     public static class Options {
         private VideoEncoderFactory videoEncoderFactory = null;
         private VideoDecoderFactory videoDecoderFactory = null;
         private AudioDeviceModule audioDeviceModule = null;
+        private Boolean enableH264HighProfile = null;
+        private Boolean enableHardwareVideoEncoder = null;
+        private Boolean enableIntelVp8Encoder = null;
+        private boolean enableCamera2 = false;
 
         public Options() {}
 
+        /**
+         * Sets whether cameras are captured with the Camera2 API on devices
+         * which support it (better than legacy). Otherwise the legacy Camera
+         * API is used, as it is by default.
+         */
+        public void setEnableCamera2(boolean enableCamera2) {
+            this.enableCamera2 = enableCamera2;
+        }
+
+        /**
+         * Sets whether the hardware H.264 encoder offers High Profile (when
+         * the default video encoder factory is used). Overrides the value set
+         * from JS. Disabled by default.
+         */
+        public void setEnableH264HighProfile(boolean enableH264HighProfile) {
+            this.enableH264HighProfile = enableH264HighProfile;
+        }
+
+        /**
+         * Sets whether hardware video encoders are preferred over software
+         * ones (when the default video encoder factory is used). Overrides the
+         * value set from JS. Enabled by default.
+         */
+        public void setEnableHardwareVideoEncoder(boolean enableHardwareVideoEncoder) {
+            this.enableHardwareVideoEncoder = enableHardwareVideoEncoder;
+        }
+
+        /**
+         * Sets whether the Intel hardware VP8 encoder is used (when the
+         * default video encoder factory is used). Overrides the value set from
+         * JS. Enabled by default.
+         */
+        public void setEnableIntelVp8Encoder(boolean enableIntelVp8Encoder) {
+            this.enableIntelVp8Encoder = enableIntelVp8Encoder;
+        }
+
         public void setAudioDeviceModule(AudioDeviceModule audioDeviceModule) {
             this.audioDeviceModule = audioDeviceModule;
         }
@@ -66,6 +219,7 @@ public class WebRTCModule extends ReactContextBaseJavaModule {
 
         mPeerConnectionObservers = new SparseArray<>();
         localStreams = new HashMap<>();
+        statsSampler = new StatsSampler(this);
 
         ThreadUtils.runOnExecutor(() -> initAsync(options));
     }
@@ -94,19 +248,59 @@ public class WebRTCModule extends ReactContextBaseJavaModule {
             // Initialize EGL context required for HW acceleration.
             EglBase.Context eglContext = EglUtils.getRootEglBaseContext();
 
+            SharedPreferences preferences
+                = reactContext.getSharedPreferences(
+                    PREFERENCES_NAME, Context.MODE_PRIVATE);
+            boolean enableHardwareVideoEncoder
+                = getEncoderOption(
+                    options == null ? null : options.enableHardwareVideoEncoder,
+                    preferences,
+                    "enableHardwareVideoEncoder",
+                    true);
+            InstrumentedVideoEncoderFactory instrumentedEncoderFactory;
+
             if (eglContext != null) {
-                encoderFactory
-                    = new DefaultVideoEncoderFactory(
-                    eglContext,
-                    /* enableIntelVp8Encoder */ true,
-                    /* enableH264HighProfile */ false);
+                boolean enableIntelVp8Encoder
+                    = getEncoderOption(
+                        options == null ? null : options.enableIntelVp8Encoder,
+                        preferences,
+                        "enableIntelVp8Encoder",
+                        true);
+                boolean enableH264HighProfile
+                    = getEncoderOption(
+                        options == null ? null : options.enableH264HighProfile,
+                        preferences,
+                        "enableH264HighProfile",
+                        false);
+
+                this.enableIntelVp8Encoder = enableIntelVp8Encoder;
+                this.enableH264HighProfile = enableH264HighProfile;
+                instrumentedEncoderFactory
+                    = new InstrumentedVideoEncoderFactory(
+                        enableHardwareVideoEncoder
+                            ? new HardwareVideoEncoderFactory(
+                                eglContext,
+                                enableIntelVp8Encoder,
+                                enableH264HighProfile)
+                            : null,
+                        CodecBenchmark.load(preferences));
                 decoderFactory = new DefaultVideoDecoderFactory(eglContext);
+                hardwareVideoDecoderFactory = new HardwareVideoDecoderFactory(eglContext);
+                Log.d(TAG, "Video encoders: hardware " + enableHardwareVideoEncoder
+                    + ", Intel VP8 " + enableIntelVp8Encoder
+                    + ", H.264 High Profile " + enableH264HighProfile);
             } else {
-                encoderFactory = new SoftwareVideoEncoderFactory();
+                instrumentedEncoderFactory
+                    = new InstrumentedVideoEncoderFactory(null, null);
                 decoderFactory = new SoftwareVideoDecoderFactory();
             }
+            encoderFactory = instrumentedEncoderFactory;
+            this.instrumentedEncoderFactory = instrumentedEncoderFactory;
         }
 
+        videoEncoderFactory = encoderFactory;
+        videoDecoderFactory = decoderFactory;
+
         if (adm == null) {
             adm = JavaAudioDeviceModule.builder(reactContext).createAudioDeviceModule();
         }
@@ -118,7 +312,148 @@ public class WebRTCModule extends ReactContextBaseJavaModule {
                 .setVideoDecoderFactory(decoderFactory)
                 .createPeerConnectionFactory();
 
-        getUserMediaImpl = new GetUserMediaImpl(this, reactContext);
+        cameraFormatCache
+            = new CameraFormatCache(
+                reactContext.getSharedPreferences(
+                    PREFERENCES_NAME, Context.MODE_PRIVATE));
+        Camera1Enumerator.setPersistentCache(cameraFormatCache);
+
+        getUserMediaImpl
+            = new GetUserMediaImpl(
+                this,
+                reactContext,
+                options != null && options.enableCamera2);
+    }
+
+    /**
+     * Gets the value of an option of the default video encoder factory: the
+     * one set in {@link Options}, else the one set from JS, else a default.
+     */
+    private static boolean getEncoderOption(
+            Boolean value,
+            SharedPreferences preferences,
+            String key,
+            boolean defaultValue) {
+        return (value != null)
+            ? value
+            : preferences.getBoolean(key, defaultValue);
+    }
+
+    /**
+     * Persists the options of the default video encoder factory:
+     * <tt>enableH264HighProfile</tt>, <tt>enableHardwareVideoEncoder</tt> and
+     * <tt>enableIntelVp8Encoder</tt>. As the factory is created when this
+     * module is initialized, they take effect the next time the application
+     * starts. Values set in {@link Options} take precedence.
+     */
+    @ReactMethod
+    public void videoEncoderSetOptions(ReadableMap options, Promise promise) {
+        SharedPreferences.Editor editor
+            = getReactApplicationContext()
+                .getSharedPreferences(PREFERENCES_NAME, Context.MODE_PRIVATE)
+                .edit();
+
+        for (String key : new String[] {
+                "enableH264HighProfile",
+                "enableHardwareVideoEncoder",
+                "enableIntelVp8Encoder" }) {
+            if (options.hasKey(key)) {
+                if (options.isNull(key)) {
+                    editor.remove(key);
+                } else {
+                    editor.putBoolean(key, options.getBoolean(key));
+                }
+            }
+        }
+        editor.apply();
+        promise.resolve(null);
+    }
+
+    /**
+     * Describes the video encoders created so far: the implementation
+     * (hardware or software) and codec of each, the initialization time of the
+     * hardware ones and their fallbacks to software. Resolves with
+     * <tt>null</tt> if the application provided its own encoder factory.
+     */
+    @ReactMethod
+    public void videoEncoderGetStats(Promise promise) {
+        InstrumentedVideoEncoderFactory factory = instrumentedEncoderFactory;
+
+        promise.resolve((factory == null) ? null : factory.getStats());
+    }
+
+    /**
+     * Gets the video codecs (and their profiles) which can be encoded and
+     * decoded and whether each is hardware-accelerated. Collected on the
+     * first call and cached.
+     */
+    @ReactMethod
+    public void getCodecCapabilities(Promise promise) {
+        ThreadUtils.runOnExecutor(() -> {
+            if (codecCapabilities == null) {
+                InstrumentedVideoEncoderFactory encoders = instrumentedEncoderFactory;
+                codecCapabilities
+                    = new CodecCapabilities(
+                        videoEncoderFactory.getSupportedCodecs(),
+                        (encoders == null) ? null : encoders.getHardwareCodecs(),
+                        videoDecoderFactory.getSupportedCodecs(),
+                        (hardwareVideoDecoderFactory == null)
+                            ? null
+                            : hardwareVideoDecoderFactory.getSupportedCodecs());
+            }
+            promise.resolve(codecCapabilities.toMap());
+        });
+    }
+
+    /**
+     * Benchmarks the hardware video encoders on a background thread (for a
+     * few seconds per codec) and persists the results. From the next start of
+     * the application, the hardware encoders found too slow or broken are
+     * skipped and the fastest codecs are preferred.
+     */
+    @ReactMethod
+    public void videoEncoderRunBenchmark(Promise promise) {
+        if (!codecBenchmarkRunning.compareAndSet(false, true)) {
+            promise.reject("E_INVALID", "The codec benchmark is already running");
+            return;
+        }
+
+        SharedPreferences preferences
+            = getReactApplicationContext()
+                .getSharedPreferences(PREFERENCES_NAME, Context.MODE_PRIVATE);
+        // Without an EGL context, the encoders take byte buffers which the
+        // benchmark can synthesize.
+        HardwareVideoEncoderFactory factory
+            = new HardwareVideoEncoderFactory(
+                /* sharedContext */ null,
+                enableIntelVp8Encoder,
+                enableH264HighProfile);
+        Thread thread = new Thread(() -> {
+            try {
+                promise.resolve(CodecBenchmark.run(factory, preferences).toMap());
+            } catch (RuntimeException e) {
+                Log.e(TAG, "Codec benchmark failed", e);
+                promise.reject("E_INVALID", "Codec benchmark failed: " + e.getMessage());
+            } finally {
+                codecBenchmarkRunning.set(false);
+            }
+        }, "CodecBenchmark");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * Gets the persisted results of the codec benchmark or <tt>null</tt> if
+     * it has not been run on the current build of the device.
+     */
+    @ReactMethod
+    public void videoEncoderGetBenchmark(Promise promise) {
+        CodecBenchmark.Results results
+            = CodecBenchmark.load(
+                getReactApplicationContext()
+                    .getSharedPreferences(PREFERENCES_NAME, Context.MODE_PRIVATE));
+
+        promise.resolve((results == null) ? null : results.toMap());
     }
 
     @Override
@@ -126,11 +461,30 @@ public class WebRTCModule extends ReactContextBaseJavaModule {
         return "WebRTCModule";
     }
 
+    /**
+     * Disposes of the idle <tt>PeerConnection</tt>s of
+     * {@link #peerConnectionPool} as the React instance goes away, since JS
+     * can no longer take or clear them.
+     */
+    @Override
+    public void onCatalystInstanceDestroy() {
+        super.onCatalystInstanceDestroy();
+        ThreadUtils.runOnExecutor(peerConnectionPool::clear);
+    }
+
     private PeerConnection getPeerConnection(int id) {
         PeerConnectionObserver pco = mPeerConnectionObservers.get(id);
         return (pco == null) ? null : pco.getPeerConnection();
     }
 
+    /**
+     * Gets the {@code PeerConnectionObserver}s mapped by their IDs. Must be
+     * invoked on the executor of {@link ThreadUtils}.
+     */
+    SparseArray<PeerConnectionObserver> getPeerConnectionObservers() {
+        return mPeerConnectionObservers;
+    }
+
     void sendEvent(String eventName, @Nullable WritableMap params) {
         getReactApplicationContext()
             .getJSModule(DeviceEventManagerModule.RCTDeviceEventEmitter.class)
@@ -316,6 +670,22 @@ public class WebRTCModule extends ReactContextBaseJavaModule {
             }
         }
 
+        // sdpSemantics (private api)
+        if (map.hasKey("sdpSemantics")
+                && map.getType("sdpSemantics") == ReadableType.String) {
+            final String v = map.getString("sdpSemantics");
+            if (v != null) {
+                switch (v) {
+                case "plan-b":
+                    conf.sdpSemantics = PeerConnection.SdpSemantics.PLAN_B;
+                    break;
+                case "unified-plan":
+                    conf.sdpSemantics = PeerConnection.SdpSemantics.UNIFIED_PLAN;
+                    break;
+                }
+            }
+        }
+
         // continualGatheringPolicy (private api)
         if (map.hasKey("continualGatheringPolicy")
                 && map.getType("continualGatheringPolicy") == ReadableType.String) {
@@ -381,60 +751,143 @@ public class WebRTCModule extends ReactContextBaseJavaModule {
 
     @ReactMethod
     public void peerConnectionInit(ReadableMap configuration, int id) {
-        PeerConnection.RTCConfiguration rtcConfiguration
-            = parseRTCConfiguration(configuration);
+        RTCConfigurationCache.Entry entry = configurationCache.get(configuration);
 
-        ThreadUtils.runOnExecutor(() ->
-            peerConnectionInitAsync(rtcConfiguration, id));
+        ThreadUtils.runOnExecutor(() -> peerConnectionInitAsync(entry, id));
+    }
+
+    /**
+     * Creates a <tt>PeerConnection</tt> with a configuration profile
+     * registered by {@link #peerConnectionRegisterConfiguration}.
+     */
+    @ReactMethod
+    public void peerConnectionInitWithProfile(String profile, int id) {
+        RTCConfigurationCache.Entry entry = configurationCache.getProfile(profile);
+
+        if (entry == null) {
+            Log.e(TAG, "peerConnectionInitWithProfile() unknown profile: "
+                + profile + ", using the default configuration");
+            entry = configurationCache.get(null);
+        }
+
+        RTCConfigurationCache.Entry finalEntry = entry;
+        ThreadUtils.runOnExecutor(() -> peerConnectionInitAsync(finalEntry, id));
     }
 
     private void peerConnectionInitAsync(
-            PeerConnection.RTCConfiguration configuration,
+            RTCConfigurationCache.Entry configuration,
             int id) {
         PeerConnectionObserver observer = new PeerConnectionObserver(this, id);
         PeerConnection peerConnection
-            = mFactory.createPeerConnection(configuration, observer);
+            = peerConnectionPool.take(configuration.key, observer);
 
-        observer.setPeerConnection(peerConnection);
+        if (peerConnection == null) {
+            peerConnection
+                = mFactory.createPeerConnection(
+                    configuration.configuration,
+                    observer);
+        }
+
+        observer.setPeerConnection(
+            peerConnection,
+            configuration.configuration.sdpSemantics
+                == PeerConnection.SdpSemantics.UNIFIED_PLAN);
         mPeerConnectionObservers.put(id, observer);
     }
 
-    MediaStream getStreamForReactTag(String streamReactTag) {
-        MediaStream stream = localStreams.get(streamReactTag);
+    /**
+     * Registers (or replaces) a named configuration profile which
+     * <tt>peerConnectionInitWithProfile</tt> and
+     * <tt>peerConnectionSetConfigurationWithProfile</tt> use without parsing
+     * the configuration again.
+     */
+    @ReactMethod
+    public void peerConnectionRegisterConfiguration(
+            String profile,
+            ReadableMap configuration) {
+        configurationCache.putProfile(profile, configuration);
+    }
 
-        if (stream == null) {
-            for (int i = 0, size = mPeerConnectionObservers.size(); i < size; i++) {
-                PeerConnectionObserver pco = mPeerConnectionObservers.valueAt(i);
-                stream = pco.remoteStreams.get(streamReactTag);
-                if (stream != null) {
-                    break;
-                }
-            }
-        }
+    @ReactMethod
+    public void peerConnectionUnregisterConfiguration(String profile) {
+        configurationCache.removeProfile(profile);
+    }
 
-        return stream;
+    /**
+     * Describes the number of cached configurations and profiles and how many
+     * configurations were found in the cache (hits) or parsed (misses).
+     */
+    @ReactMethod
+    public void peerConnectionGetConfigurationCacheStats(Promise promise) {
+        promise.resolve(configurationCache.getStats());
     }
 
-    private MediaStreamTrack getTrack(String trackId) {
-        MediaStreamTrack track = getLocalTrack(trackId);
+    /**
+     * Creates idle <tt>PeerConnection</tt>s ahead of time so that a later
+     * <tt>peerConnectionInit</tt> with an equal configuration adopts one of
+     * them, ICE candidates (with a non-zero <tt>iceCandidatePoolSize</tt>) and
+     * the DTLS certificate readily available.
+     *
+     * @param count the number of idle <tt>PeerConnection</tt>s to keep for
+     * <tt>configuration</tt>
+     */
+    @ReactMethod
+    public void peerConnectionPoolPrewarm(
+            ReadableMap configuration,
+            int count,
+            Promise promise) {
+        RTCConfigurationCache.Entry entry = configurationCache.get(configuration);
 
-        if (track == null) {
-            for (int i = 0, size = mPeerConnectionObservers.size(); i < size; i++) {
-                PeerConnectionObserver pco = mPeerConnectionObservers.valueAt(i);
-                track = pco.remoteTracks.get(trackId);
-                if (track != null) {
-                    break;
-                }
-            }
-        }
+        ThreadUtils.runOnExecutor(() ->
+            promise.resolve(
+                peerConnectionPool.prewarm(
+                    mFactory, entry.key, entry.configuration, count)));
+    }
 
-        return track;
+    @ReactMethod
+    public void peerConnectionPoolClear(Promise promise) {
+        ThreadUtils.runOnExecutor(() -> {
+            peerConnectionPool.clear();
+            promise.resolve(null);
+        });
+    }
+
+    /**
+     * Describes the number of idle <tt>PeerConnection</tt>s and how many
+     * <tt>peerConnectionInit</tt> calls adopted one (hits) or not (misses).
+     */
+    @ReactMethod
+    public void peerConnectionPoolGetStats(Promise promise) {
+        ThreadUtils.runOnExecutor(() ->
+            promise.resolve(peerConnectionPool.getStats()));
+    }
+
+    /**
+     * Gets a local or remote <tt>MediaStream</tt> by its react tag. May be
+     * invoked on any thread.
+     */
+    MediaStream getStreamForReactTag(String streamReactTag) {
+        return mediaRegistry.getStream(streamReactTag);
+    }
+
+    private MediaStreamTrack getTrack(String trackId) {
+        return mediaRegistry.getTrack(trackId);
     }
 
     MediaStreamTrack getLocalTrack(String trackId) {
         return getUserMediaImpl.getTrack(trackId);
     }
 
+    /**
+     * Scales the capture format of a specific local video track down. Must be
+     * invoked on the executor of {@link ThreadUtils}.
+     *
+     * @see GetUserMediaImpl#scaleCaptureFormat
+     */
+    boolean scaleCaptureFormat(String trackId, double scale, int fps) {
+        return getUserMediaImpl.scaleCaptureFormat(trackId, scale, fps);
+    }
+
     private static MediaStreamTrack getLocalTrack(
             MediaStream localStream,
             String trackId) {
@@ -501,6 +954,7 @@ public class WebRTCModule extends ReactContextBaseJavaModule {
     private void mediaStreamCreateAsync(String id) {
         MediaStream mediaStream = mFactory.createLocalMediaStream(id);
         localStreams.put(id, mediaStream);
+        mediaRegistry.putStream(id, mediaStream, MediaRegistry.LOCAL);
     }
 
     @ReactMethod
@@ -562,13 +1016,13 @@ public class WebRTCModule extends ReactContextBaseJavaModule {
         }
 
         localStreams.remove(id);
+        mediaRegistry.removeStream(id, MediaRegistry.LOCAL);
 
         // MediaStream.dispose() may be called without an exception only if
         // it's no longer added to any PeerConnection.
         for (int i = 0, size = mPeerConnectionObservers.size(); i < size; i++) {
             mPeerConnectionObservers.valueAt(i).removeStream(stream);
         }
-
         stream.dispose();
     }
 
@@ -614,21 +1068,157 @@ public class WebRTCModule extends ReactContextBaseJavaModule {
         }
     }
 
+    /**
+     * Enables or disables the warm standby of the camera which
+     * {@link #mediaStreamTrackSwitchCamera} would switch to. Only Camera2
+     * cameras which the device can stream concurrently are kept on standby.
+     */
+    @ReactMethod
+    public void mediaStreamTrackSetCameraStandby(String id, boolean enabled) {
+        ThreadUtils.runOnExecutor(() -> {
+            MediaStreamTrack track = getLocalTrack(id);
+            if (track != null) {
+                getUserMediaImpl.setCameraStandby(id, enabled);
+            }
+        });
+    }
+
+    /**
+     * Gets the latencies of the camera switches of a specific local video
+     * track, with and without a standby camera, and the state of the standby.
+     */
+    @ReactMethod
+    public void mediaStreamTrackGetCameraSwitchStats(String id, Promise promise) {
+        ThreadUtils.runOnExecutor(() -> {
+            WritableMap stats = getUserMediaImpl.getCameraSwitchStats(id);
+            if (stats == null) {
+                promise.reject("E_NOT_FOUND", "No local camera track found for id: " + id);
+            } else {
+                promise.resolve(stats);
+            }
+        });
+    }
+
+    /**
+     * Describes how often the formats of the cameras were loaded from
+     * {@link CameraFormatCache} rather than enumerated by opening the cameras
+     * and how long either took.
+     */
+    @ReactMethod
+    public void cameraFormatCacheGetStats(Promise promise) {
+        ThreadUtils.runOnExecutor(() -> promise.resolve(cameraFormatCache.getStats()));
+    }
+
+    /**
+     * Gets the stats of the buffers into which the camera of a specific local
+     * video track captures: their number, how many were in flight at most and
+     * how often the camera was starved of them.
+     */
+    @ReactMethod
+    public void mediaStreamTrackGetCaptureStats(String trackId, Promise promise) {
+        ThreadUtils.runOnExecutor(() -> {
+            WritableMap stats = getUserMediaImpl.getCaptureStats(trackId);
+            if (stats == null) {
+                promise.reject(
+                    "E_NOT_FOUND",
+                    "No local video track capturing into buffers found for id: " + trackId);
+            } else {
+                promise.resolve(stats);
+            }
+        });
+    }
+
+    /**
+     * Gets a snapshot of the frame statistics (framerate, inter-frame gaps,
+     * freezes and resolution) of a specific remote video track.
+     */
+    @ReactMethod
+    public void mediaStreamTrackGetFrameStats(String trackId, Promise promise) {
+        ThreadUtils.runOnExecutor(() -> {
+            for (int i = 0, size = mPeerConnectionObservers.size(); i < size; i++) {
+                WritableMap stats
+                    = mPeerConnectionObservers.valueAt(i).getFrameStats(trackId);
+                if (stats != null) {
+                    promise.resolve(stats);
+                    return;
+                }
+            }
+            promise.reject(
+                "E_NOT_FOUND",
+                "No remote video track found for id: " + trackId);
+        });
+    }
+
+    /**
+     * Overrides the delays without frames after which a specific remote video
+     * track is muted.
+     *
+     * @param options <tt>initialMuteDelayMs</tt> (before the first frame) and
+     * <tt>muteDelayMs</tt> (after it); a missing or <tt>null</tt> value
+     * restores the default, which is adapted to the framerate of the track
+     * for <tt>muteDelayMs</tt>
+     */
+    @ReactMethod
+    public void mediaStreamTrackSetMuteDelays(
+            String trackId,
+            ReadableMap options,
+            Promise promise) {
+        long initialMuteDelayMs = getMuteDelay(options, "initialMuteDelayMs");
+        long muteDelayMs = getMuteDelay(options, "muteDelayMs");
+
+        ThreadUtils.runOnExecutor(() -> {
+            for (int i = 0, size = mPeerConnectionObservers.size(); i < size; i++) {
+                if (mPeerConnectionObservers.valueAt(i).setMuteDelays(
+                        trackId, initialMuteDelayMs, muteDelayMs)) {
+                    promise.resolve(null);
+                    return;
+                }
+            }
+            promise.reject(
+                "E_NOT_FOUND",
+                "No remote video track found for id: " + trackId);
+        });
+    }
+
+    private static long getMuteDelay(ReadableMap options, String key) {
+        return (options != null && options.hasKey(key) && !options.isNull(key))
+            ? Math.max(0, (long) options.getDouble(key))
+            : -1;
+    }
+
     @ReactMethod
     public void peerConnectionSetConfiguration(ReadableMap configuration,
                                                int id) {
+        PeerConnection.RTCConfiguration rtcConfiguration
+            = configurationCache.get(configuration).configuration;
+
         ThreadUtils.runOnExecutor(() ->
-            peerConnectionSetConfigurationAsync(configuration, id));
+            peerConnectionSetConfigurationAsync(rtcConfiguration, id));
     }
 
-    private void peerConnectionSetConfigurationAsync(ReadableMap configuration,
-                                                     int id) {
+    @ReactMethod
+    public void peerConnectionSetConfigurationWithProfile(String profile,
+                                                          int id) {
+        RTCConfigurationCache.Entry entry = configurationCache.getProfile(profile);
+        if (entry == null) {
+            Log.e(TAG, "peerConnectionSetConfigurationWithProfile() unknown profile: "
+                + profile);
+            return;
+        }
+
+        ThreadUtils.runOnExecutor(() ->
+            peerConnectionSetConfigurationAsync(entry.configuration, id));
+    }
+
+    private void peerConnectionSetConfigurationAsync(
+            PeerConnection.RTCConfiguration configuration,
+            int id) {
         PeerConnection peerConnection = getPeerConnection(id);
         if (peerConnection == null) {
             Log.d(TAG, "peerConnectionSetConfiguration() peerConnection is null");
             return;
         }
-        peerConnection.setConfiguration(parseRTCConfiguration(configuration));
+        peerConnection.setConfiguration(configuration);
     }
 
     @ReactMethod
@@ -667,6 +1257,278 @@ public class WebRTCModule extends ReactContextBaseJavaModule {
         }
     }
 
+    /**
+     * Adds a specific local track to a <tt>PeerConnection</tt> and resolves
+     * with a description of the created <tt>RtpSender</tt>.
+     *
+     * @param streamIds the IDs of the <tt>MediaStream</tt>s the remote peer is
+     * to associate the track with
+     */
+    @ReactMethod
+    public void peerConnectionAddTrack(int id,
+                                       String trackId,
+                                       ReadableArray streamIds,
+                                       Promise promise) {
+        List<String> ids = new ArrayList<>();
+        if (streamIds != null) {
+            for (int i = 0; i < streamIds.size(); i++) {
+                ids.add(streamIds.getString(i));
+            }
+        }
+
+        ThreadUtils.runOnExecutor(() -> {
+            PeerConnectionObserver pco = mPeerConnectionObservers.get(id);
+            MediaStreamTrack track = getLocalTrack(trackId);
+            if (pco == null || track == null) {
+                promise.reject(
+                    "E_NOT_FOUND",
+                    "No PeerConnection or local track found for id: " + id
+                        + ", " + trackId);
+                return;
+            }
+
+            WritableMap sender = pco.addTrack(track, ids);
+            if (sender == null) {
+                promise.reject("E_INVALID", "Failed to add track: " + trackId);
+            } else {
+                promise.resolve(sender);
+            }
+        });
+    }
+
+    /**
+     * Adds a transceiver to a <tt>PeerConnection</tt> with the Unified Plan
+     * SDP semantics and resolves with a description of it.
+     *
+     * @param options <tt>trackId</tt> (of the local track to send) or
+     * <tt>kind</tt> (<tt>audio</tt> or <tt>video</tt>), and optionally
+     * <tt>direction</tt>, <tt>streamIds</tt> and <tt>sendEncodings</tt> (e.g.
+     * the simulcast layers with their <tt>rid</tt>s)
+     */
+    @ReactMethod
+    public void peerConnectionAddTransceiver(int id,
+                                             ReadableMap options,
+                                             Promise promise) {
+        String trackId
+            = options.hasKey("trackId") ? options.getString("trackId") : null;
+        MediaStreamTrack.MediaType kind
+            = "audio".equals(ReactBridgeUtil.getMapStrValue(options, "kind"))
+                ? MediaStreamTrack.MediaType.MEDIA_TYPE_AUDIO
+                : MediaStreamTrack.MediaType.MEDIA_TYPE_VIDEO;
+        RtpTransceiver.RtpTransceiverDirection direction
+            = RtpTransceiver.RtpTransceiverDirection.SEND_RECV;
+        String d = ReactBridgeUtil.getMapStrValue(options, "direction");
+        if (d != null) {
+            switch (d) {
+            case "sendrecv":
+                break;
+            case "sendonly":
+                direction = RtpTransceiver.RtpTransceiverDirection.SEND_ONLY;
+                break;
+            case "recvonly":
+                direction = RtpTransceiver.RtpTransceiverDirection.RECV_ONLY;
+                break;
+            case "inactive":
+                direction = RtpTransceiver.RtpTransceiverDirection.INACTIVE;
+                break;
+            default:
+                promise.reject("E_INVALID", "Invalid direction: " + d);
+                return;
+            }
+        }
+        List<String> streamIds = new ArrayList<>();
+        if (options.hasKey("streamIds")) {
+            ReadableArray array = options.getArray("streamIds");
+            for (int i = 0; i < array.size(); i++) {
+                streamIds.add(array.getString(i));
+            }
+        }
+        RtpTransceiver.RtpTransceiverInit init;
+        if (options.hasKey("sendEncodings") && !options.isNull("sendEncodings")) {
+            try {
+                init = new RtpTransceiver.RtpTransceiverInit(
+                    direction,
+                    streamIds,
+                    RtpParametersUtil.parseEncodings(options.getArray("sendEncodings")));
+            } catch (IllegalArgumentException e) {
+                promise.reject("E_INVALID", e.getMessage());
+                return;
+            }
+        } else {
+            init = new RtpTransceiver.RtpTransceiverInit(direction, streamIds);
+        }
+
+        ThreadUtils.runOnExecutor(() -> {
+            PeerConnectionObserver pco = mPeerConnectionObservers.get(id);
+            if (pco == null) {
+                promise.reject("E_NOT_FOUND", "No PeerConnection found for id: " + id);
+                return;
+            }
+            MediaStreamTrack track = null;
+            if (trackId != null) {
+                track = getLocalTrack(trackId);
+                if (track == null) {
+                    promise.reject("E_NOT_FOUND", "No local track found for id: " + trackId);
+                    return;
+                }
+            }
+
+            WritableMap transceiver = pco.addTransceiver(track, kind, init);
+            if (transceiver == null) {
+                promise.reject(
+                    "E_INVALID",
+                    "Failed to add transceiver (Unified Plan is required)");
+            } else {
+                promise.resolve(transceiver);
+            }
+        });
+    }
+
+    @ReactMethod
+    public void peerConnectionRemoveTrack(int id,
+                                          String senderId,
+                                          Promise promise) {
+        ThreadUtils.runOnExecutor(() -> {
+            PeerConnectionObserver pco = mPeerConnectionObservers.get(id);
+            if (pco == null || !pco.removeTrack(senderId)) {
+                promise.reject("E_NOT_FOUND", "No sender found for id: " + senderId);
+            } else {
+                promise.resolve(null);
+            }
+        });
+    }
+
+    /**
+     * Replaces the track sent by a specific <tt>RtpSender</tt> without a
+     * renegotiation.
+     *
+     * @param trackId the ID of the new local track or <tt>null</tt> to stop
+     * sending
+     */
+    @ReactMethod
+    public void peerConnectionReplaceTrack(int id,
+                                           String senderId,
+                                           String trackId,
+                                           Promise promise) {
+        ThreadUtils.runOnExecutor(() -> {
+            PeerConnectionObserver pco = mPeerConnectionObservers.get(id);
+            MediaStreamTrack track = null;
+            if (trackId != null) {
+                track = getLocalTrack(trackId);
+                if (track == null) {
+                    promise.reject("E_NOT_FOUND", "No local track found for id: " + trackId);
+                    return;
+                }
+            }
+            if (pco == null || !pco.replaceTrack(senderId, track)) {
+                promise.reject("E_INVALID", "Failed to replace the track of sender: " + senderId);
+            } else {
+                promise.resolve(null);
+            }
+        });
+    }
+
+    /**
+     * Gets the encoding parameters of a specific <tt>RtpSender</tt> as
+     * described by {@link RtpParametersUtil#toMap}.
+     */
+    @ReactMethod
+    public void peerConnectionGetSenderParameters(int id,
+                                                  String senderId,
+                                                  Promise promise) {
+        ThreadUtils.runOnExecutor(() -> {
+            PeerConnectionObserver pco = mPeerConnectionObservers.get(id);
+            RtpSender sender = (pco == null) ? null : pco.getSender(senderId);
+            if (sender == null) {
+                promise.reject("E_NOT_FOUND", "No sender found for id: " + senderId);
+            } else {
+                promise.resolve(RtpParametersUtil.toMap(sender.getParameters()));
+            }
+        });
+    }
+
+    /**
+     * Gets the <tt>outbound-rtp</tt> statistics of each layer (i.e.
+     * encoding, e.g. with simulcast) sent by a specific <tt>RtpSender</tt>.
+     */
+    @ReactMethod
+    public void peerConnectionGetSenderStats(int id,
+                                             String senderId,
+                                             Promise promise) {
+        ThreadUtils.runOnExecutor(() -> {
+            PeerConnectionObserver pco = mPeerConnectionObservers.get(id);
+            if (pco == null || !pco.getSenderStats(senderId, promise)) {
+                promise.reject("E_NOT_FOUND", "No sender found for id: " + senderId);
+            }
+        });
+    }
+
+    /**
+     * Updates the encoding parameters (e.g. <tt>maxBitrate</tt>,
+     * <tt>maxFramerate</tt> and <tt>scaleResolutionDownBy</tt> of encodings,
+     * and <tt>degradationPreference</tt>) of a specific <tt>RtpSender</tt>.
+     * They take effect without a renegotiation.
+     */
+    @ReactMethod
+    public void peerConnectionSetSenderParameters(int id,
+                                                  String senderId,
+                                                  ReadableMap parameters,
+                                                  Promise promise) {
+        ThreadUtils.runOnExecutor(() -> {
+            PeerConnectionObserver pco = mPeerConnectionObservers.get(id);
+            RtpSender sender = (pco == null) ? null : pco.getSender(senderId);
+            if (sender == null) {
+                promise.reject("E_NOT_FOUND", "No sender found for id: " + senderId);
+                return;
+            }
+
+            RtpParameters rtpParameters = sender.getParameters();
+            try {
+                RtpParametersUtil.apply(rtpParameters, parameters);
+            } catch (IllegalArgumentException e) {
+                promise.reject("E_INVALID", e.getMessage());
+                return;
+            }
+            if (sender.setParameters(rtpParameters)) {
+                promise.resolve(RtpParametersUtil.toMap(sender.getParameters()));
+            } else {
+                promise.reject("E_INVALID", "Failed to set the parameters of sender: " + senderId);
+            }
+        });
+    }
+
+    /**
+     * Configures the transformation applied natively to the SDPs created by
+     * <tt>peerConnectionCreateOffer</tt> and <tt>peerConnectionCreateAnswer</tt>
+     * before they are delivered to JS (see {@link SdpTransformer}).
+     *
+     * @param options the transformation or <tt>null</tt> to leave the SDPs as
+     * they are created
+     */
+    @ReactMethod
+    public void peerConnectionSetSdpTransform(int id,
+                                              ReadableMap options,
+                                              Promise promise) {
+        SdpTransformer sdpTransformer;
+
+        try {
+            sdpTransformer = (options == null) ? null : new SdpTransformer(options);
+        } catch (RuntimeException e) {
+            promise.reject("E_INVALID", "Invalid SDP transform: " + e.getMessage());
+            return;
+        }
+
+        ThreadUtils.runOnExecutor(() -> {
+            PeerConnectionObserver pco = mPeerConnectionObservers.get(id);
+            if (pco == null) {
+                promise.reject("E_NOT_FOUND", "No PeerConnection found for id: " + id);
+                return;
+            }
+            pco.setSdpTransformer(sdpTransformer);
+            promise.resolve(null);
+        });
+    }
+
     @ReactMethod
     public void peerConnectionCreateOffer(int id,
                                           ReadableMap options,
@@ -678,7 +1540,9 @@ public class WebRTCModule extends ReactContextBaseJavaModule {
     private void peerConnectionCreateOfferAsync(int id,
                                                 ReadableMap options,
                                                 final Callback callback) {
-        PeerConnection peerConnection = getPeerConnection(id);
+        PeerConnectionObserver pco = mPeerConnectionObservers.get(id);
+        PeerConnection peerConnection
+            = (pco == null) ? null : pco.getPeerConnection();
 
         if (peerConnection != null) {
             peerConnection.createOffer(new SdpObserver() {
@@ -690,7 +1554,7 @@ public class WebRTCModule extends ReactContextBaseJavaModule {
                 @Override
                 public void onCreateSuccess(SessionDescription sdp) {
                     WritableMap params = Arguments.createMap();
-                    params.putString("sdp", sdp.description);
+                    params.putString("sdp", pco.transformSdp(sdp.description));
                     params.putString("type", sdp.type.canonicalForm());
                     callback.invoke(true, params);
                 }
@@ -718,7 +1582,9 @@ public class WebRTCModule extends ReactContextBaseJavaModule {
     private void peerConnectionCreateAnswerAsync(int id,
                                                  ReadableMap options,
                                                  final Callback callback) {
-        PeerConnection peerConnection = getPeerConnection(id);
+        PeerConnectionObserver pco = mPeerConnectionObservers.get(id);
+        PeerConnection peerConnection
+            = (pco == null) ? null : pco.getPeerConnection();
 
         if (peerConnection != null) {
             peerConnection.createAnswer(new SdpObserver() {
@@ -730,7 +1596,7 @@ public class WebRTCModule extends ReactContextBaseJavaModule {
                 @Override
                 public void onCreateSuccess(SessionDescription sdp) {
                     WritableMap params = Arguments.createMap();
-                    params.putString("sdp", sdp.description);
+                    params.putString("sdp", pco.transformSdp(sdp.description));
                     params.putString("type", sdp.type.canonicalForm());
                     callback.invoke(true, params);
                 }
@@ -812,6 +1678,7 @@ public class WebRTCModule extends ReactContextBaseJavaModule {
                 SessionDescription.Type.fromCanonicalForm(sdpMap.getString("type")),
                 sdpMap.getString("sdp")
             );
+            PeerConnectionObserver observer = mPeerConnectionObservers.get(id);
 
             peerConnection.setRemoteDescription(new SdpObserver() {
                 @Override
@@ -820,6 +1687,7 @@ public class WebRTCModule extends ReactContextBaseJavaModule {
 
                 @Override
                 public void onSetSuccess() {
+                    observer.removeEndedRemoteTracks();
                     callback.invoke(true);
                 }
 
@@ -885,19 +1753,350 @@ public class WebRTCModule extends ReactContextBaseJavaModule {
         }
     }
 
+    @ReactMethod
+    public void peerConnectionGetAllStats(String trackId, Callback cb) {
+        ThreadUtils.runOnExecutor(() ->
+            peerConnectionGetAllStatsAsync(trackId, cb));
+    }
+
+    /**
+     * Requests the stats of all <tt>PeerConnection</tt>s at once and invokes
+     * <tt>cb</tt> a single time, after the last of them has reported, with a
+     * JSON object which maps <tt>PeerConnection</tt> IDs to their stats and
+     * carries the duration of the whole collection in <tt>durationMs</tt>.
+     *
+     * @param trackId the ID of the <tt>MediaStreamTrack</tt> to limit the
+     * stats to or empty for the stats of the whole <tt>PeerConnection</tt>s.
+     * <tt>PeerConnection</tt>s which do not know the track are skipped.
+     * @param cb the <tt>Callback</tt> to invoke with the combined stats
+     */
+    private void peerConnectionGetAllStatsAsync(String trackId, Callback cb) {
+        final long startTimeNs = System.nanoTime();
+        final int size = mPeerConnectionObservers.size();
+        final int[] ids = new int[size];
+        final String[] results = new String[size];
+        // One extra count is held until all requests have been issued so that
+        // an early report cannot complete the collection prematurely.
+        final AtomicInteger pending = new AtomicInteger(size + 1);
+        final Runnable complete = () -> {
+            double durationMs = (System.nanoTime() - startTimeNs) / 1e6;
+            StringBuilder s = new StringBuilder();
+            int count = 0;
+
+            s.append("{\"durationMs\":").append(durationMs).append(",\"stats\":{");
+            for (int i = 0; i < size; i++) {
+                if (results[i] != null) {
+                    if (count++ != 0) {
+                        s.append(',');
+                    }
+                    s.append('"').append(ids[i]).append("\":").append(results[i]);
+                }
+            }
+            s.append("}}");
+
+            Log.d(TAG, "peerConnectionGetAllStats() collected " + count
+                + " PeerConnection(s) in " + durationMs + " ms");
+            cb.invoke(true, s.toString());
+        };
+        boolean trackFound = false;
+
+        for (int i = 0; i < size; i++) {
+            final int index = i;
+            PeerConnectionObserver pco = mPeerConnectionObservers.valueAt(i);
+
+            ids[i] = mPeerConnectionObservers.keyAt(i);
+            if (pco.getPeerConnection() != null
+                    && pco.collectStats(trackId, json -> {
+                        results[index] = json;
+                        if (pending.decrementAndGet() == 0) {
+                            complete.run();
+                        }
+                    })) {
+                trackFound = true;
+            } else {
+                pending.decrementAndGet();
+            }
+        }
+
+        if (!trackFound && trackId != null && !trackId.isEmpty()) {
+            Log.e(TAG, "peerConnectionGetAllStats() MediaStreamTrack not found for id: " + trackId);
+            cb.invoke(false, "Track not found");
+        } else if (pending.decrementAndGet() == 0) {
+            complete.run();
+        }
+    }
+
+    /**
+     * Starts recording the stats of all <tt>PeerConnection</tt>s into rotating
+     * NDJSON files in the app-private storage. Restarts the recording if it
+     * is already running.
+     *
+     * @param options the <tt>intervalMs</tt>, <tt>maxFileBytes</tt>,
+     * <tt>maxFileAgeMs</tt>, <tt>maxFiles</tt> and <tt>gzip</tt> of the
+     * recording
+     */
+    @ReactMethod
+    public void statsRecorderStart(ReadableMap options, Promise promise) {
+        StatsRecorder recorder
+            = new StatsRecorder(getReactApplicationContext(), options);
+
+        statsSampler.execute(() -> {
+            stopStatsRecorder();
+            statsRecorder = recorder;
+            statsSampler.addListener(recorder, recorder.getIntervalMs());
+            promise.resolve(
+                StatsRecorder.getDirectory(getReactApplicationContext())
+                    .getAbsolutePath());
+        });
+    }
+
+    @ReactMethod
+    public void statsRecorderStop(Promise promise) {
+        // Resolved once the last file has been compressed, if requested.
+        statsSampler.execute(() -> {
+            stopStatsRecorder();
+            StatsRecorder.execute(() -> promise.resolve(null));
+        });
+    }
+
+    @ReactMethod
+    public void statsRecorderGetFiles(Promise promise) {
+        statsSampler.execute(() ->
+            StatsRecorder.execute(() ->
+                promise.resolve(
+                    StatsRecorder.getFiles(getReactApplicationContext()))));
+    }
+
+    @ReactMethod
+    public void statsRecorderDeleteFiles(Promise promise) {
+        statsSampler.execute(() -> {
+            stopStatsRecorder();
+            StatsRecorder.execute(() -> {
+                StatsRecorder.deleteFiles(getReactApplicationContext());
+                promise.resolve(null);
+            });
+        });
+    }
+
+    /**
+     * Stops {@link #statsRecorder}, if any. Invoked on the sampler thread.
+     */
+    private void stopStatsRecorder() {
+        if (statsRecorder != null) {
+            statsSampler.removeListener(statsRecorder);
+            statsRecorder.close();
+            statsRecorder = null;
+        }
+    }
+
+    /**
+     * Replaces the quality alarm rules evaluated natively against the stats of
+     * all <tt>PeerConnection</tt>s. Changes of the state of a rule are emitted
+     * as <tt>peerConnectionQualityAlarm</tt> events. An empty array of rules
+     * stops the evaluation.
+     *
+     * @param rules the rules as described by {@link QualityAlarms}
+     * @param intervalMs the interval in milliseconds at which the rules are
+     * evaluated
+     */
+    @ReactMethod
+    public void qualityAlarmsSetRules(
+            ReadableArray rules,
+            double intervalMs,
+            Promise promise) {
+        QualityAlarms alarms;
+
+        try {
+            alarms
+                = rules.size() == 0
+                    ? null
+                    : new QualityAlarms(this, rules, (long) intervalMs);
+        } catch (IllegalArgumentException e) {
+            promise.reject("E_INVALID", e.getMessage());
+            return;
+        }
+
+        statsSampler.execute(() -> {
+            if (qualityAlarms != null) {
+                statsSampler.removeListener(qualityAlarms);
+            }
+            qualityAlarms = alarms;
+            if (alarms != null) {
+                statsSampler.addListener(alarms, alarms.getIntervalMs());
+            }
+            promise.resolve(null);
+        });
+    }
+
+    /**
+     * Starts, restarts or stops the native estimation of the call quality of
+     * all <tt>PeerConnection</tt>s. Changes of the score of a
+     * <tt>PeerConnection</tt> are emitted as
+     * <tt>peerConnectionQualityChanged</tt> events.
+     *
+     * @param intervalMs the interval in milliseconds at which the quality is
+     * estimated or <tt>0</tt> to stop the estimation
+     */
+    @ReactMethod
+    public void qualityEstimatorSetInterval(double intervalMs, Promise promise) {
+        statsSampler.execute(() -> {
+            if (qualityEstimator != null) {
+                statsSampler.removeListener(qualityEstimator);
+                qualityEstimator = null;
+            }
+            if (intervalMs > 0) {
+                QualityEstimator estimator
+                    = new QualityEstimator(this, (long) intervalMs);
+                qualityEstimator = estimator;
+                statsSampler.addListener(estimator, estimator.getIntervalMs());
+            }
+            promise.resolve(null);
+        });
+    }
+
+    /**
+     * Synchronously gets the latest quality estimate of a specific
+     * <tt>PeerConnection</tt> including the metrics it was computed from.
+     *
+     * @return the estimate or <tt>null</tt> if the estimation is not running
+     * or has not sampled the <tt>PeerConnection</tt> yet
+     */
+    @ReactMethod(isBlockingSynchronousMethod = true)
+    public WritableMap peerConnectionGetQuality(int id) {
+        QualityEstimator estimator = qualityEstimator;
+        QualityEstimator.Estimate estimate
+            = (estimator == null) ? null : estimator.get(id);
+
+        return (estimate == null) ? null : estimate.toMap(true);
+    }
+
+    /**
+     * Starts, restarts or stops the native adaptation of the video sent by a
+     * specific <tt>PeerConnection</tt> to its link. Each step is emitted as a
+     * <tt>peerConnectionBandwidthDecision</tt> event.
+     *
+     * @param options the options of the {@link BandwidthController} or
+     * <tt>null</tt> to stop the adaptation
+     */
+    @ReactMethod
+    public void peerConnectionSetBandwidthController(
+            int id,
+            @Nullable ReadableMap options,
+            Promise promise) {
+        BandwidthController controller;
+
+        try {
+            controller
+                = (options == null)
+                    ? null
+                    : new BandwidthController(this, id, options);
+        } catch (IllegalArgumentException e) {
+            promise.reject("E_INVALID", e.getMessage());
+            return;
+        }
+
+        statsSampler.execute(() -> {
+            setBandwidthController(id, controller);
+            if (controller != null) {
+                controller.start();
+            }
+            promise.resolve(null);
+        });
+    }
+
+    /**
+     * Replaces the {@link BandwidthController} of a specific
+     * <tt>PeerConnection</tt>. Must be invoked on the sampler thread.
+     */
+    private void setBandwidthController(
+            int id,
+            @Nullable BandwidthController controller) {
+        BandwidthController previous = bandwidthControllers.get(id);
+        if (previous != null) {
+            statsSampler.removeListener(previous);
+            bandwidthControllers.remove(id);
+            previous.stop();
+        }
+        if (controller != null) {
+            bandwidthControllers.put(id, controller);
+            statsSampler.addListener(controller, controller.getIntervalMs());
+        }
+    }
+
+    /**
+     * Describes the remote <tt>MediaStream</tt>s of a specific
+     * <tt>PeerConnection</tt> and how many lookups of their react tags were
+     * served by its reverse index.
+     */
+    @ReactMethod
+    public void peerConnectionGetStreamIndexStats(int id, Promise promise) {
+        ThreadUtils.runOnExecutor(() -> {
+            PeerConnectionObserver pco = mPeerConnectionObservers.get(id);
+            if (pco == null) {
+                promise.reject("E_NOT_FOUND", "PeerConnection ID not found");
+            } else {
+                promise.resolve(pco.getStreamIndexStats());
+            }
+        });
+    }
+
     @ReactMethod
     public void peerConnectionClose(int id) {
         ThreadUtils.runOnExecutor(() -> peerConnectionCloseAsync(id));
     }
 
+    /**
+     * Detaches the <tt>PeerConnection</tt> with a specific ID from this module
+     * right away and closes and disposes of it on {@link #reaper}. The
+     * completion is signalled by a <tt>peerConnectionClosed</tt> event which
+     * carries the durations of the teardown.
+     */
     private void peerConnectionCloseAsync(int id) {
         PeerConnectionObserver pco = mPeerConnectionObservers.get(id);
         if (pco == null || pco.getPeerConnection() == null) {
             Log.d(TAG, "peerConnectionClose() peerConnection is null");
-        } else {
-            pco.close();
-            mPeerConnectionObservers.remove(id);
+            // Already closed (or never created): complete right away.
+            WritableMap params = Arguments.createMap();
+            params.putInt("id", id);
+            params.putDouble("queuedMs", 0);
+            params.putDouble("teardownMs", 0);
+            params.putDouble("durationMs", 0);
+            sendEvent("peerConnectionClosed", params);
+            return;
         }
+
+        final long requestTimeNs = System.nanoTime();
+
+        mPeerConnectionObservers.remove(id);
+        statsSampler.execute(() -> setBandwidthController(id, null));
+        // Release what the observer registered here, on the executor which
+        // the rest of the module uses, and leave only the native teardown to
+        // the reaper.
+        PeerConnection peerConnection = pco.detach();
+
+        reaper.execute(() -> {
+            long startTimeNs = System.nanoTime();
+
+            try {
+                PeerConnectionObserver.close(peerConnection);
+            } catch (Throwable t) {
+                Log.e(TAG, "peerConnectionClose() failed for " + id, t);
+            }
+
+            long endTimeNs = System.nanoTime();
+            double queuedMs = (startTimeNs - requestTimeNs) / 1e6;
+            double teardownMs = (endTimeNs - startTimeNs) / 1e6;
+
+            Log.d(TAG, "peerConnectionClose() " + id + " took " + teardownMs
+                + " ms after " + queuedMs + " ms in queue");
+
+            WritableMap params = Arguments.createMap();
+            params.putInt("id", id);
+            params.putDouble("queuedMs", queuedMs);
+            params.putDouble("teardownMs", teardownMs);
+            params.putDouble("durationMs", (endTimeNs - requestTimeNs) / 1e6);
+            sendEvent("peerConnectionClosed", params);
+        });
     }
 
     @ReactMethod